@@ -0,0 +1,19 @@
+package space.typro;
+
+public class JwtClientException extends RuntimeException {
+    private final int statusCode;
+
+    public JwtClientException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public JwtClientException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = -1;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,282 @@
+package space.typro;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client for the {@code /jwt/*} endpoints of bearer-authentication.
+ * <p>
+ * Tokens are requested from {@code /jwt/tokens} once and cached until they expire. The access token
+ * is renewed through {@code /jwt/refresh} in the background {@code refreshAhead} before it expires,
+ * falling back to {@code /jwt/tokens} when the refresh token has expired or been rejected.
+ * Concurrent renewals, whether triggered in the background or by callers finding an expired
+ * access token, share a single in-flight request. A renewal that completes after {@link #logout()}
+ * is handed to the callers that were waiting for it, but not cached.
+ */
+public class JwtTokenClient implements AutoCloseable {
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final URI baseUri;
+
+    private final String basicCredentials;
+
+    private final HttpClient httpClient;
+
+    private final Duration refreshAhead;
+
+    private final Clock clock;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // guards the renewal state, so a renewal cannot cache tokens after a logout
+    private final Object lock = new Object();
+
+    private CompletableFuture<CachedTokens> inFlightRenewal;
+
+    private long generation;
+
+    private volatile CachedTokens tokens;
+
+    private volatile ScheduledFuture<?> scheduledRenewal;
+
+    private JwtTokenClient(Builder builder) {
+        this.baseUri = Objects.requireNonNull(builder.baseUri, "baseUri");
+        this.basicCredentials = Base64.getEncoder().encodeToString((Objects.requireNonNull(builder.username, "username")
+                + ":" + Objects.requireNonNull(builder.password, "password")).getBytes(StandardCharsets.UTF_8));
+        this.httpClient = builder.httpClient != null ? builder.httpClient : HttpClient.newHttpClient();
+        this.refreshAhead = builder.refreshAhead;
+        this.clock = builder.clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> Thread.ofPlatform()
+                .name("jwt-token-client")
+                .daemon()
+                .unstarted(runnable));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a valid access token, blocking only when there is no cached one.
+     */
+    public String accessToken() {
+        try {
+            return this.accessTokenAsync().join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof JwtClientException clientException) {
+                throw clientException;
+            }
+            throw exception;
+        }
+    }
+
+    public CompletableFuture<String> accessTokenAsync() {
+        var current = this.tokens;
+        if (current != null && current.accessTokenExpiry().isAfter(this.clock.instant())) {
+            return CompletableFuture.completedFuture(current.accessToken());
+        }
+        return this.renew().thenApply(CachedTokens::accessToken);
+    }
+
+    public HttpRequest.Builder authorize(HttpRequest.Builder request) {
+        return request.header("Authorization", "Bearer " + this.accessToken());
+    }
+
+    public void logout() {
+        CachedTokens current;
+        synchronized (this.lock) {
+            this.generation++;
+            current = this.tokens;
+            this.tokens = null;
+            this.cancelScheduledRenewal();
+            this.inFlightRenewal = null;
+        }
+        if (current != null && current.refreshTokenExpiry().isAfter(this.clock.instant())) {
+            var response = this.send(HttpRequest.newBuilder(this.baseUri.resolve("/jwt/logout"))
+                    .header("Authorization", "Bearer " + current.refreshToken())
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build());
+            if (response.statusCode() != 204) {
+                throw new JwtClientException("Logout failed", response.statusCode());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        this.scheduler.shutdownNow();
+    }
+
+    CompletableFuture<CachedTokens> renew() {
+        var renewal = new CompletableFuture<CachedTokens>();
+        long renewalGeneration;
+        synchronized (this.lock) {
+            if (this.inFlightRenewal != null) {
+                return this.inFlightRenewal;
+            }
+            this.inFlightRenewal = renewal;
+            renewalGeneration = this.generation;
+        }
+
+        CompletableFuture.supplyAsync(this::fetchTokens, this.scheduler)
+                .whenComplete((renewed, exception) -> {
+                    synchronized (this.lock) {
+                        if (this.generation == renewalGeneration) {
+                            if (exception == null) {
+                                this.tokens = renewed;
+                                this.scheduleRenewal(renewed.accessTokenExpiry().minus(this.refreshAhead));
+                            } else {
+                                this.scheduleRenewal(this.clock.instant().plus(RETRY_DELAY));
+                            }
+                        }
+                        if (this.inFlightRenewal == renewal) {
+                            this.inFlightRenewal = null;
+                        }
+                    }
+                    if (exception == null) {
+                        renewal.complete(renewed);
+                    } else {
+                        renewal.completeExceptionally(exception instanceof CompletionException ?
+                                exception.getCause() : exception);
+                    }
+                });
+        return renewal;
+    }
+
+    private CachedTokens fetchTokens() {
+        var current = this.tokens;
+        if (current != null && current.refreshTokenExpiry().isAfter(this.clock.instant().plus(this.refreshAhead))) {
+            var response = this.send(HttpRequest.newBuilder(this.baseUri.resolve("/jwt/refresh"))
+                    .header("Authorization", "Bearer " + current.refreshToken())
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build());
+            if (response.statusCode() == 200) {
+                var refreshed = this.readTokens(response);
+                return new CachedTokens(refreshed.accessToken(), Instant.parse(refreshed.accessTokenExpiry()),
+                        current.refreshToken(), current.refreshTokenExpiry());
+            }
+            if (response.statusCode() != 401 && response.statusCode() != 403) {
+                throw new JwtClientException("Token refresh failed", response.statusCode());
+            }
+        }
+
+        var response = this.send(HttpRequest.newBuilder(this.baseUri.resolve("/jwt/tokens"))
+                .header("Authorization", "Basic " + this.basicCredentials)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build());
+        if (response.statusCode() != 200) {
+            throw new JwtClientException("Token request failed", response.statusCode());
+        }
+        var issued = this.readTokens(response);
+        return new CachedTokens(issued.accessToken(), Instant.parse(issued.accessTokenExpiry()),
+                issued.refreshToken(), Instant.parse(issued.refreshTokenExpiry()));
+    }
+
+    private void scheduleRenewal(Instant at) {
+        this.cancelScheduledRenewal();
+        if (this.scheduler.isShutdown()) {
+            return;
+        }
+        var delay = Math.max(0, Duration.between(this.clock.instant(), at).toMillis());
+        this.scheduledRenewal = this.scheduler.schedule(this::renew, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelScheduledRenewal() {
+        var scheduled = this.scheduledRenewal;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest request) {
+        try {
+            return this.httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException exception) {
+            throw new JwtClientException("Request to %s failed".formatted(request.uri()), exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new JwtClientException("Request to %s was interrupted".formatted(request.uri()), exception);
+        }
+    }
+
+    private Tokens readTokens(HttpResponse<String> response) {
+        try {
+            return this.objectMapper.readValue(response.body(), Tokens.class);
+        } catch (IOException exception) {
+            throw new JwtClientException("Malformed token response", exception);
+        }
+    }
+
+    record CachedTokens(String accessToken,
+                        Instant accessTokenExpiry,
+                        String refreshToken,
+                        Instant refreshTokenExpiry) {}
+
+    public static class Builder {
+        private URI baseUri;
+
+        private String username;
+
+        private String password;
+
+        private HttpClient httpClient;
+
+        private Duration refreshAhead = Duration.ofSeconds(30);
+
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+        }
+
+        public Builder baseUri(URI baseUri) {
+            this.baseUri = baseUri;
+            return this;
+        }
+
+        public Builder credentials(String username, String password) {
+            this.username = username;
+            this.password = password;
+            return this;
+        }
+
+        public Builder httpClient(HttpClient httpClient) {
+            this.httpClient = httpClient;
+            return this;
+        }
+
+        public Builder refreshAhead(Duration refreshAhead) {
+            this.refreshAhead = refreshAhead;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public JwtTokenClient build() {
+            return new JwtTokenClient(this);
+        }
+    }
+}
@@ -1,12 +1,27 @@
 package space.typro;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
 
 public class Main {
-    public static void main(String[] args) {
-        System.out.println("Hello and welcome!");
+    public static void main(String[] args) throws Exception {
+        var baseUri = URI.create(args.length > 0 ? args[0] : "https://localhost:8443");
+        var httpClient = HttpClient.newHttpClient();
+
+        try (var tokenClient = JwtTokenClient.builder()
+                .baseUri(baseUri)
+                .credentials("j.jameson", "password")
+                .httpClient(httpClient)
+                .build()) {
+            var response = httpClient.send(tokenClient.authorize(HttpRequest.newBuilder(baseUri.resolve("/manager.html")))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            System.out.println(response.statusCode() + " " + response.body());
 
-        for (int i = 1; i <= 5; i++) {
-            System.out.println("i = " + i);
+            tokenClient.logout();
         }
     }
 
@@ -1,4 +1,4 @@
-package pro.akosarev.sandbox;
+package space.typro;
 
 public record Tokens(String accessToken,
                      String accessTokenExpiry,
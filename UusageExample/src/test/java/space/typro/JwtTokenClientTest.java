@@ -0,0 +1,241 @@
+package space.typro;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokenClientTest {
+
+    private final AtomicInteger tokensRequests = new AtomicInteger();
+
+    private final AtomicInteger refreshRequests = new AtomicInteger();
+
+    private final AtomicInteger logoutRequests = new AtomicInteger();
+
+    private final MutableClock clock = new MutableClock();
+
+    private volatile Duration accessTokenTimeToLive = Duration.ofMinutes(5);
+
+    private volatile int refreshStatus = 200;
+
+    private volatile CountDownLatch tokensResponseGate = new CountDownLatch(0);
+
+    private HttpServer server;
+
+    private JwtTokenClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/jwt/tokens", exchange -> {
+            var request = this.tokensRequests.incrementAndGet();
+            try {
+                this.tokensResponseGate.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            this.respond(exchange, 200, """
+                    {"accessToken":"access-%1$d","accessTokenExpiry":"%2$s",\
+                    "refreshToken":"refresh-%1$d","refreshTokenExpiry":"%3$s"}"""
+                    .formatted(request, this.clock.instant().plus(this.accessTokenTimeToLive),
+                            this.clock.instant().plus(Duration.ofDays(1))));
+        });
+        this.server.createContext("/jwt/refresh", exchange -> {
+            var request = this.refreshRequests.incrementAndGet();
+            if (this.refreshStatus != 200) {
+                this.respond(exchange, this.refreshStatus, "");
+                return;
+            }
+            try {
+                this.tokensResponseGate.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            this.respond(exchange, 200, """
+                    {"accessToken":"refreshed-%d","accessTokenExpiry":"%s"}"""
+                    .formatted(request, this.clock.instant().plus(this.accessTokenTimeToLive)));
+        });
+        this.server.createContext("/jwt/logout", exchange -> {
+            this.logoutRequests.incrementAndGet();
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        this.server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (this.client != null) {
+            this.client.close();
+        }
+        this.server.stop(0);
+    }
+
+    @Test
+    void accessToken_TokensCached_ReturnsCachedAccessToken() {
+        this.client = this.buildClient(Duration.ofSeconds(30));
+
+        assertEquals("access-1", this.client.accessToken());
+        assertEquals("access-1", this.client.accessToken());
+        assertEquals(1, this.tokensRequests.get());
+        assertEquals(0, this.refreshRequests.get());
+    }
+
+    @Test
+    void accessToken_AccessTokenAboutToExpire_RefreshesItInBackground() {
+        this.accessTokenTimeToLive = Duration.ofSeconds(2);
+        this.client = this.buildClient(Duration.ofMillis(1500));
+        assertEquals("access-1", this.client.accessToken());
+        var accessTokenExpiry = this.clock.instant().plus(this.accessTokenTimeToLive);
+        this.accessTokenTimeToLive = Duration.ofMinutes(5);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (!this.client.accessToken().equals("refreshed-1")) {
+                Thread.sleep(10);
+            }
+        });
+
+        assertTrue(this.clock.instant().isBefore(accessTokenExpiry));
+        assertEquals(1, this.refreshRequests.get());
+        assertEquals(1, this.tokensRequests.get());
+    }
+
+    @Test
+    void accessToken_ConcurrentCallersWithExpiredAccessToken_ShareOneRefresh() throws Exception {
+        this.client = this.buildClient(Duration.ofSeconds(30));
+        assertEquals("access-1", this.client.accessToken());
+        this.clock.advance(Duration.ofMinutes(10));
+        this.tokensResponseGate = new CountDownLatch(1);
+
+        var callers = new ArrayList<CompletableFuture<String>>();
+        var executor = Executors.newFixedThreadPool(8);
+        try {
+            for (var i = 0; i < 8; i++) {
+                callers.add(CompletableFuture.supplyAsync(this.client::accessToken, executor));
+            }
+            Thread.sleep(200);
+            this.tokensResponseGate.countDown();
+
+            for (var caller : callers) {
+                assertEquals("refreshed-1", caller.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, this.refreshRequests.get());
+        assertEquals(1, this.tokensRequests.get());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {401, 403})
+    void accessToken_RefreshTokenRejected_RequestsNewTokens(int status) {
+        this.client = this.buildClient(Duration.ofSeconds(30));
+        assertEquals("access-1", this.client.accessToken());
+        this.clock.advance(Duration.ofMinutes(10));
+        this.refreshStatus = status;
+
+        assertEquals("access-2", this.client.accessToken());
+        assertEquals(1, this.refreshRequests.get());
+        assertEquals(2, this.tokensRequests.get());
+    }
+
+    @Test
+    void logout_RenewalInFlight_DoesNotCacheRenewedTokens() {
+        this.client = this.buildClient(Duration.ofSeconds(30));
+        this.tokensResponseGate = new CountDownLatch(1);
+        var renewal = this.client.accessTokenAsync();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (this.tokensRequests.get() == 0) {
+                Thread.sleep(10);
+            }
+        });
+        this.client.logout();
+        this.tokensResponseGate.countDown();
+
+        assertEquals("access-1", renewal.join());
+        assertEquals("access-2", this.client.accessToken());
+        assertEquals(2, this.tokensRequests.get());
+        assertEquals(0, this.logoutRequests.get());
+    }
+
+    @Test
+    void logout_TokensCached_LogsOutRefreshToken() {
+        this.client = this.buildClient(Duration.ofSeconds(30));
+        assertEquals("access-1", this.client.accessToken());
+
+        this.client.logout();
+
+        assertEquals(1, this.logoutRequests.get());
+        assertEquals("access-2", this.client.accessToken());
+        assertEquals(2, this.tokensRequests.get());
+    }
+
+    private JwtTokenClient buildClient(Duration refreshAhead) {
+        return JwtTokenClient.builder()
+                .baseUri(URI.create("http://127.0.0.1:%d".formatted(this.server.getAddress().getPort())))
+                .credentials("j.jameson", "password")
+                .refreshAhead(refreshAhead)
+                .clock(this.clock)
+                .build();
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        var bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (var responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    /**
+     * System time that can be moved forward, to expire tokens without waiting.
+     */
+    static class MutableClock extends Clock {
+        private volatile Duration offset = Duration.ZERO;
+
+        void advance(Duration duration) {
+            this.offset = this.offset.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.now().plus(this.offset);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package pro.akosarev.sandbox;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.Getter;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.function.Function;
+
+/**
+ * Issues access and refresh token pairs for a JSON array of subjects on behalf of a service principal, one
+ * whose name starts with {@code servicePrincipalPrefix} and that has the {@code requiredAuthority}.
+ * <p>
+ * Subjects are loaded with the {@link UserDetailsService} and their tokens are built, signed and encrypted
+ * on the executor, with at most {@code maximumInFlight} subjects in progress at a time. Loading a subject
+ * blocks on the database, so the executor should be a bounded pool of its own; without one the subjects are
+ * issued on the request thread. Every pair is written as one NDJSON line as soon as it is ready, so the response
+ * is streamed in completion order rather than buffered. Subjects that cannot be issued tokens get a line with
+ * an {@code error} instead.
+ */
+@Setter
+public class BatchJwtTokensFilter extends OncePerRequestFilter implements JwtEndpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchJwtTokensFilter.class);
+
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    @Getter
+    private RequestMatcher requestMatcher = new MethodPathRequestMatcher(HttpMethod.POST.name(), "/jwt/tokens/batch");
+
+    @Getter
+    private SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
+
+    private String requiredAuthority = "JWT_BATCH_ISSUE";
+
+    private String servicePrincipalPrefix = "svc-";
+
+    private int maximumBatchSize = 10_000;
+
+    private int maximumInFlight = Runtime.getRuntime().availableProcessors() * 4;
+
+    private Executor executor = Runnable::run;
+
+    private Function<Authentication, Token> refreshTokenFactory = new DefaultRefreshTokenFactory();
+
+    private Function<Token, Token> accessTokenFactory = new DefaultAccessTokenFactory();
+
+    private Function<Token, String> refreshTokenStringSerializer = Object::toString;
+
+    private Function<Token, String> accessTokenStringSerializer = Object::toString;
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+    private final UserDetailsService userDetailsService;
+
+    public BatchJwtTokensFilter(UserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (this.requestMatcher.matches(request)) {
+            this.handle(request, response, this.securityContextRepository.containsContext(request) ?
+                    this.securityContextRepository.loadDeferredContext(request).get() : null);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response, SecurityContext context)
+            throws IOException {
+        if (context != null && context.getAuthentication() != null &&
+                !(context.getAuthentication() instanceof PreAuthenticatedAuthenticationToken) &&
+                context.getAuthentication().getName().startsWith(this.servicePrincipalPrefix) &&
+                context.getAuthentication().getAuthorities()
+                        .contains(new SimpleGrantedAuthority(this.requiredAuthority))) {
+            String[] subjects;
+            try {
+                subjects = this.objectMapper.readValue(request.getInputStream(), String[].class);
+            } catch (JsonProcessingException exception) {
+                subjects = null;
+            }
+            if (subjects == null) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Subjects must be a JSON array of strings");
+                return;
+            }
+            if (subjects.length > this.maximumBatchSize) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                        "At most %d subjects are allowed".formatted(this.maximumBatchSize));
+                return;
+            }
+
+            var startedAt = System.nanoTime();
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(NDJSON_CONTENT_TYPE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            this.issueAll(subjects, response);
+            this.metrics.recordBatchIssued(subjects.length, System.nanoTime() - startedAt);
+            return;
+        }
+
+        throw new AccessDeniedException("Service principal must be authenticated with authority " +
+                this.requiredAuthority);
+    }
+
+    private void issueAll(String[] subjects, HttpServletResponse response) throws IOException {
+        var completionService = new ExecutorCompletionService<IssuedTokens>(this.executor);
+        var objectWriter = this.objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        var writer = response.getWriter();
+        try {
+            var submitted = 0;
+            for (var completed = 0; completed < subjects.length; completed++) {
+                while (submitted < subjects.length && submitted - completed < this.maximumInFlight) {
+                    var subject = subjects[submitted++];
+                    completionService.submit(() -> this.issue(subject));
+                }
+
+                objectWriter.writeValue(writer, completionService.take().get());
+                writer.write('\n');
+                if (completed % 64 == 63) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while issuing tokens", exception);
+        } catch (ExecutionException exception) {
+            throw new IOException("Failed to issue tokens", exception.getCause());
+        }
+    }
+
+    private IssuedTokens issue(String subject) {
+        try {
+            var user = this.userDetailsService.loadUserByUsername(subject);
+            if (!user.isEnabled() || !user.isAccountNonLocked() || !user.isAccountNonExpired()) {
+                return IssuedTokens.failed(subject, "subject_disabled");
+            }
+
+            var refreshToken = this.refreshTokenFactory.apply(
+                    UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+            var accessToken = this.accessTokenFactory.apply(refreshToken);
+            var accessTokenString = this.accessTokenStringSerializer.apply(accessToken);
+            var refreshTokenString = this.refreshTokenStringSerializer.apply(refreshToken);
+            if (accessTokenString == null || refreshTokenString == null) {
+                return IssuedTokens.failed(subject, "signing_failed");
+            }
+            return new IssuedTokens(subject, accessTokenString, accessToken.expiresAt().toString(),
+                    refreshTokenString, refreshToken.expiresAt().toString(), null);
+        } catch (UsernameNotFoundException exception) {
+            return IssuedTokens.failed(subject, "unknown_subject");
+        } catch (RuntimeException exception) {
+            LOGGER.error("Failed to issue tokens for {}", subject, exception);
+            return IssuedTokens.failed(subject, "issue_failed");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs password verification on a dedicated executor with a fixed number of threads and a bounded queue,
+ * so a burst of logins cannot occupy every request thread with hashing.
+ * <p>
+ * When the queue is full, or a verification has waited in the queue longer than {@code maximumWait},
+ * {@link PasswordHashingRejectedException} is thrown instead of hashing. Only the queue wait is bounded,
+ * a verification that has started always runs to completion.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, MeterBinder, AutoCloseable {
+    private final PasswordEncoder delegate;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Duration maximumWait;
+
+    private final LongAdder queueNanos = new LongAdder();
+
+    private final LongAdder hashNanos = new LongAdder();
+
+    private final LongAdder verifications = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int concurrency, int queueDepth, Duration maximumWait) {
+        this.delegate = delegate;
+        this.maximumWait = maximumWait;
+        var threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth), runnable -> Thread.ofPlatform()
+                .name("password-hashing-" + threadNumber.incrementAndGet())
+                .daemon()
+                .unstarted(runnable), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return this.delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        var submittedAt = System.nanoTime();
+        var future = this.submit(() -> {
+            var startedAt = System.nanoTime();
+            if (startedAt - submittedAt > this.maximumWait.toNanos()) {
+                this.rejections.increment();
+                throw new PasswordHashingRejectedException("Password verification timed out in queue");
+            }
+            this.queueNanos.add(startedAt - submittedAt);
+            try {
+                return this.delegate.matches(rawPassword, encodedPassword);
+            } finally {
+                this.hashNanos.add(System.nanoTime() - startedAt);
+                this.verifications.increment();
+            }
+        });
+
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Password verification was interrupted");
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return this.delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public Duration totalQueueTime() {
+        return Duration.ofNanos(this.queueNanos.sum());
+    }
+
+    public Duration totalHashTime() {
+        return Duration.ofNanos(this.hashNanos.sum());
+    }
+
+    public long verificationCount() {
+        return this.verifications.sum();
+    }
+
+    public long rejectionCount() {
+        return this.rejections.sum();
+    }
+
+    public int queueSize() {
+        return this.executor.getQueue().size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("jwt.password-hashing.queue", this, BoundedPasswordEncoder::verificationCount,
+                        encoder -> encoder.totalQueueTime().toNanos(), TimeUnit.NANOSECONDS)
+                .register(registry);
+        FunctionTimer.builder("jwt.password-hashing.verification", this, BoundedPasswordEncoder::verificationCount,
+                        encoder -> encoder.totalHashTime().toNanos(), TimeUnit.NANOSECONDS)
+                .register(registry);
+        FunctionCounter.builder("jwt.password-hashing.rejections", this, BoundedPasswordEncoder::rejectionCount)
+                .register(registry);
+        Gauge.builder("jwt.password-hashing.queue.size", this, BoundedPasswordEncoder::queueSize)
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+
+    private Future<Boolean> submit(Callable<Boolean> verification) {
+        try {
+            return this.executor.submit(verification);
+        } catch (RejectedExecutionException exception) {
+            this.rejections.increment();
+            throw new PasswordHashingRejectedException("Password verification queue is full");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package pro.akosarev.sandbox;
+
+import lombok.Setter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Revocation storage split into a ring of tables, one per expiry window.
+ * <p>
+ * A token goes to the table of the window its {@code c_keep_until} falls into. Once a window is over,
+ * every row of its table has expired, so the whole table is truncated instead of deleting rows one by one,
+ * and the table is reused for a later window. Lookups go through a {@code union all} view over the ring.
+ * The ring should cover the longest token lifetime: tokens kept for more than {@code (buckets - 2) * window}
+ * go to an overflow table, whose expired rows are deleted one by one. Only portable DDL is used, so the store
+ * runs on both Postgres and H2.
+ */
+public class BucketedDeactivatedTokenStore implements TokenRevocationChecker, DeactivatedTokenWriter {
+    public static final String VIEW_NAME = "v_deactivated_token";
+
+    private static final String TABLE_NAME = "t_deactivated_token_%d";
+
+    private static final String OVERFLOW_TABLE_NAME = "t_deactivated_token_overflow";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final long windowMillis;
+
+    private final int buckets;
+
+    private final JdbcDeactivatedTokenWriter[] writers;
+
+    private final JdbcDeactivatedTokenWriter overflowWriter;
+
+    @Setter
+    private Clock clock = Clock.systemUTC();
+
+    public BucketedDeactivatedTokenStore(JdbcTemplate jdbcTemplate, Duration window, int buckets) {
+        if (buckets < 3) {
+            throw new IllegalArgumentException("At least three buckets are required");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.windowMillis = window.toMillis();
+        this.buckets = buckets;
+        this.writers = IntStream.range(0, buckets)
+                .mapToObj(bucket -> new JdbcDeactivatedTokenWriter(jdbcTemplate, TABLE_NAME.formatted(bucket)))
+                .toArray(JdbcDeactivatedTokenWriter[]::new);
+        this.overflowWriter = new JdbcDeactivatedTokenWriter(jdbcTemplate, OVERFLOW_TABLE_NAME);
+    }
+
+    public void initialize() {
+        var tableNames = IntStream.range(0, this.buckets)
+                .mapToObj(TABLE_NAME::formatted)
+                .collect(Collectors.toCollection(ArrayList::new));
+        tableNames.add(OVERFLOW_TABLE_NAME);
+        for (var tableName : tableNames) {
+            this.jdbcTemplate.execute("""
+                    create table if not exists %s
+                    (
+                        id               uuid primary key,
+                        c_keep_until     timestamp not null,
+                        c_deactivated_at timestamp not null default current_timestamp
+                    )""".formatted(tableName));
+            this.jdbcTemplate.execute("create index if not exists i_%s_deactivated_at on %s (c_deactivated_at)"
+                    .formatted(tableName.substring(2), tableName));
+        }
+        this.jdbcTemplate.execute("create or replace view %s as %s".formatted(VIEW_NAME, tableNames.stream()
+                .map(tableName -> "select id, c_keep_until, c_deactivated_at from " + tableName)
+                .collect(Collectors.joining(" union all "))));
+    }
+
+    @Override
+    public boolean isRevoked(UUID tokenId) {
+        return Boolean.TRUE.equals(this.jdbcTemplate.queryForObject(
+                "select exists(select id from %s where id = ? and c_keep_until > ?)".formatted(VIEW_NAME),
+                Boolean.class, tokenId, Timestamp.from(this.clock.instant())));
+    }
+
+    @Override
+    public void deactivate(UUID tokenId, Instant keepUntil) {
+        this.writerOf(keepUntil).deactivate(tokenId, keepUntil);
+    }
+
+    @Override
+    public void deactivateAll(List<DeactivatedToken> tokens) {
+        tokens.stream()
+                .collect(Collectors.groupingBy(token -> this.writerOf(token.keepUntil())))
+                .forEach(DeactivatedTokenWriter::deactivateAll);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.bucketed.maintenance-interval:PT10M}")
+    public void purgeExpired() {
+        var previousWindow = Math.floorDiv(this.clock.millis(), this.windowMillis) - 1;
+        this.jdbcTemplate.execute("truncate table " +
+                TABLE_NAME.formatted(Math.floorMod(previousWindow, this.buckets)));
+        this.jdbcTemplate.update("delete from %s where c_keep_until <= ?".formatted(OVERFLOW_TABLE_NAME),
+                Timestamp.from(this.clock.instant()));
+    }
+
+    private JdbcDeactivatedTokenWriter writerOf(Instant keepUntil) {
+        var window = Math.floorDiv(keepUntil.toEpochMilli(), this.windowMillis);
+        var currentWindow = Math.floorDiv(this.clock.millis(), this.windowMillis);
+        if (window - currentWindow > this.buckets - 2) {
+            return this.overflowWriter;
+        }
+        return this.writers[(int) Math.floorMod(window, (long) this.buckets)];
+    }
+}
@@ -0,0 +1,170 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the number of connections borrowed from the delegate at the same time.
+ * <p>
+ * With virtual threads the number of request threads no longer limits how many of them wait for
+ * a pooled connection. Here they queue on a fair {@link Semaphore}, which parks virtual threads without
+ * pinning their carrier, and give up with {@link SQLTransientConnectionException} after {@code maximumWait}.
+ * The permit is released when the connection is closed.
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource implements MeterBinder, AutoCloseable {
+    private final Semaphore permits;
+
+    private final Duration maximumWait;
+
+    private final LongAdder queueNanos = new LongAdder();
+
+    private final LongAdder acquisitions = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    public ConcurrencyLimitingDataSource(DataSource delegate, int concurrency, Duration maximumWait) {
+        super(delegate);
+        this.permits = new Semaphore(concurrency, true);
+        this.maximumWait = maximumWait;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        this.acquire();
+        try {
+            return this.guard(super.getConnection());
+        } catch (SQLException | RuntimeException exception) {
+            this.permits.release();
+            throw exception;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        this.acquire();
+        try {
+            return this.guard(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException exception) {
+            this.permits.release();
+            throw exception;
+        }
+    }
+
+    public Duration totalQueueTime() {
+        return Duration.ofNanos(this.queueNanos.sum());
+    }
+
+    public long acquisitionCount() {
+        return this.acquisitions.sum();
+    }
+
+    public long rejectionCount() {
+        return this.rejections.sum();
+    }
+
+    public int queueLength() {
+        return this.permits.getQueueLength();
+    }
+
+    public int availablePermits() {
+        return this.permits.availablePermits();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("jwt.jdbc.queue", this, ConcurrencyLimitingDataSource::acquisitionCount,
+                        source -> source.totalQueueTime().toNanos(), TimeUnit.NANOSECONDS)
+                .description("Time spent waiting for a database connection permit")
+                .register(registry);
+        FunctionCounter.builder("jwt.jdbc.rejections", this, ConcurrencyLimitingDataSource::rejectionCount)
+                .register(registry);
+        Gauge.builder("jwt.jdbc.queue.size", this, ConcurrencyLimitingDataSource::queueLength)
+                .register(registry);
+        Gauge.builder("jwt.jdbc.available-permits", this, ConcurrencyLimitingDataSource::availablePermits)
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (this.getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private void acquire() throws SQLException {
+        var startedAt = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = this.permits.tryAcquire(this.maximumWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", exception);
+        } finally {
+            this.queueNanos.add(System.nanoTime() - startedAt);
+        }
+        if (!acquired) {
+            this.rejections.increment();
+            throw new SQLTransientConnectionException("No connection available within " + this.maximumWait);
+        }
+        this.acquisitions.increment();
+    }
+
+    private Connection guard(Connection connection) {
+        var released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (!released.compareAndSet(false, true)) {
+                                return null;
+                            }
+                            try {
+                                connection.close();
+                            } finally {
+                                this.permits.release();
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            if (released.get()) {
+                                return true;
+                            }
+                        }
+                        case "equals" -> {
+                            return proxy == args[0];
+                        }
+                        case "hashCode" -> {
+                            return System.identityHashCode(proxy);
+                        }
+                        case "unwrap" -> {
+                            if (((Class<?>) args[0]).isInstance(proxy)) {
+                                return proxy;
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException exception) {
+                        throw exception.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,7 @@
+package pro.akosarev.sandbox;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record DeactivatedToken(UUID id, Instant keepUntil) {
+}
@@ -0,0 +1,14 @@
+package pro.akosarev.sandbox;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface DeactivatedTokenWriter {
+
+    void deactivate(UUID tokenId, Instant keepUntil);
+
+    default void deactivateAll(List<DeactivatedToken> tokens) {
+        tokens.forEach(token -> this.deactivate(token.id(), token.keepUntil()));
+    }
+}
@@ -0,0 +1,22 @@
+package pro.akosarev.sandbox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Delivers events to the listeners of this JVM on the publishing thread, for single node deployments and tests.
+ */
+public class InProcessRevocationEventBus implements RevocationEventBus {
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(RevocationEvent event) {
+        this.listeners.forEach(listener -> listener.onRevoked(event));
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        this.listeners.add(listener);
+        listener.onSubscribed();
+    }
+}
@@ -0,0 +1,16 @@
+package pro.akosarev.sandbox;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IssuedTokens(String subject,
+                           String accessToken,
+                           String accessTokenExpiry,
+                           String refreshToken,
+                           String refreshTokenExpiry,
+                           String error) {
+
+    public static IssuedTokens failed(String subject, String error) {
+        return new IssuedTokens(subject, null, null, null, null, error);
+    }
+}
@@ -0,0 +1,62 @@
+package pro.akosarev.sandbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+public class JdbcDeactivatedTokenWriter implements DeactivatedTokenWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JdbcDeactivatedTokenWriter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String insertSql;
+
+    public JdbcDeactivatedTokenWriter(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, "t_deactivated_token");
+    }
+
+    public JdbcDeactivatedTokenWriter(JdbcTemplate jdbcTemplate, String tableName) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertSql = "insert into %s (id, c_keep_until) values (?, ?)".formatted(tableName);
+    }
+
+    @Override
+    public void deactivate(UUID tokenId, Instant keepUntil) {
+        this.jdbcTemplate.update(this.insertSql, tokenId, Date.from(keepUntil));
+    }
+
+    @Override
+    public void deactivateAll(List<DeactivatedToken> tokens) {
+        var now = Instant.now();
+        var live = tokens.stream()
+                .filter(token -> token.keepUntil().isAfter(now))
+                .toList();
+        if (live.isEmpty()) {
+            return;
+        }
+
+        try {
+            this.jdbcTemplate.batchUpdate(this.insertSql, live, live.size(), (ps, token) -> {
+                ps.setObject(1, token.id());
+                ps.setTimestamp(2, Timestamp.from(token.keepUntil()));
+            });
+        } catch (DataAccessException exception) {
+            LOGGER.warn("Batch insert of {} deactivated tokens failed, inserting one by one", live.size(), exception);
+            for (var token : live) {
+                try {
+                    this.deactivate(token.id(), token.keepUntil());
+                } catch (DataIntegrityViolationException violation) {
+                    LOGGER.debug("Token {} is already deactivated or expired", token.id());
+                }
+            }
+        }
+    }
+}
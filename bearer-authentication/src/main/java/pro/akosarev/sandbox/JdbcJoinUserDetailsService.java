@@ -0,0 +1,45 @@
+package pro.akosarev.sandbox;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.ArrayList;
+
+@AllArgsConstructor
+public class JdbcJoinUserDetailsService implements UserDetailsService {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        var user = this.jdbcTemplate.query("""
+                select u.c_username, u.c_password, a.c_authority
+                from t_user u
+                         left join t_user_authority a on a.id_user = u.id
+                where u.c_username = ?""", rs -> {
+            User.UserBuilder builder = null;
+            var authorities = new ArrayList<GrantedAuthority>();
+            while (rs.next()) {
+                if (builder == null) {
+                    builder = User.builder()
+                            .username(rs.getString("c_username"))
+                            .password(rs.getString("c_password"));
+                }
+                var authority = rs.getString("c_authority");
+                if (authority != null) {
+                    authorities.add(new SimpleGrantedAuthority(authority));
+                }
+            }
+            return builder != null ? builder.authorities(authorities).build() : null;
+        }, username);
+        if (user == null) {
+            throw new UsernameNotFoundException("User %s not found".formatted(username));
+        }
+        return user;
+    }
+}
@@ -0,0 +1,97 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Loads the access and refresh token keys from a JWK set file and reloads the registered key rings
+ * when the file changes.
+ * <p>
+ * Access token keys are the {@code oct} keys with {@code "use":"sig"}, refresh token keys those with
+ * {@code "use":"enc"}, in the order of the file, so the first key of each kind is the current one.
+ * All key rings are built before any of them is swapped, so a file that cannot be read or holds invalid keys
+ * is logged and every key ring keeps its keys.
+ */
+public class JwkSetFileKeyRingLoader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwkSetFileKeyRingLoader.class);
+
+    private final Path location;
+
+    private final List<KeyRing<?>> signingKeyRings = new CopyOnWriteArrayList<>();
+
+    private final List<KeyRing<?>> encryptionKeyRings = new CopyOnWriteArrayList<>();
+
+    private volatile JWKSet keys;
+
+    private FileTime lastModified;
+
+    public JwkSetFileKeyRingLoader(Path location) throws IOException, ParseException {
+        this.location = location;
+        this.lastModified = Files.getLastModifiedTime(location);
+        this.keys = JWKSet.load(location.toFile());
+    }
+
+    public List<OctetSequenceKey> signingKeys() {
+        return keys(this.keys, KeyUse.SIGNATURE);
+    }
+
+    public List<OctetSequenceKey> encryptionKeys() {
+        return keys(this.keys, KeyUse.ENCRYPTION);
+    }
+
+    public <T> KeyRing<T> signingKeyRing(KeyRing.Factory<T> factory) {
+        var keyRing = new KeyRing<>(factory, this.signingKeys());
+        this.signingKeyRings.add(keyRing);
+        return keyRing;
+    }
+
+    public <T> KeyRing<T> encryptionKeyRing(KeyRing.Factory<T> factory) {
+        var keyRing = new KeyRing<>(factory, this.encryptionKeys());
+        this.encryptionKeyRings.add(keyRing);
+        return keyRing;
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.key-ring.reload-interval:PT1M}")
+    public void reload() {
+        try {
+            var modified = Files.getLastModifiedTime(this.location);
+            if (modified.equals(this.lastModified)) {
+                return;
+            }
+
+            var keys = JWKSet.load(this.location.toFile());
+            var signingKeys = keys(keys, KeyUse.SIGNATURE);
+            var encryptionKeys = keys(keys, KeyUse.ENCRYPTION);
+            var reloads = new ArrayList<Runnable>();
+            this.signingKeyRings.forEach(keyRing -> reloads.add(keyRing.prepareReload(signingKeys)));
+            this.encryptionKeyRings.forEach(keyRing -> reloads.add(keyRing.prepareReload(encryptionKeys)));
+            reloads.forEach(Runnable::run);
+            this.keys = keys;
+            this.lastModified = modified;
+            LOGGER.info("Reloaded {} signing and {} encryption keys from {}", signingKeys.size(),
+                    encryptionKeys.size(), this.location);
+        } catch (IOException | ParseException | IllegalArgumentException exception) {
+            LOGGER.warn("Could not reload keys from {}", this.location, exception);
+        }
+    }
+
+    private static List<OctetSequenceKey> keys(JWKSet keys, KeyUse keyUse) {
+        return keys.getKeys().stream()
+                .filter(key -> key instanceof OctetSequenceKey && keyUse.equals(key.getKeyUse()))
+                .map(OctetSequenceKey.class::cast)
+                .toList();
+    }
+}
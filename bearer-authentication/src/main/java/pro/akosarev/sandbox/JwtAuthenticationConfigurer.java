@@ -3,17 +3,23 @@ package pro.akosarev.sandbox;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.Builder;
 import lombok.Setter;
+import org.springframework.http.HttpMethod;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AccountStatusException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.CsrfConfigurer;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.access.ExceptionTranslationFilter;
 import org.springframework.security.web.authentication.AuthenticationFilter;
 import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationProvider;
 import org.springframework.security.web.csrf.CsrfFilter;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.header.HeaderWriterFilter;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 @Setter
@@ -30,40 +36,124 @@ public class JwtAuthenticationConfigurer
 
     private JdbcTemplate jdbcTemplate;
 
+    private RevokedTokenSet revokedTokenSet;
+
+    private TokenRevocationChecker tokenRevocationChecker;
+
+    private DeactivatedTokenWriter deactivatedTokenWriter;
+
+    private SingleFlightAccessTokenCache refreshAccessTokenCache;
+
+    private TokenEpochRegistry tokenEpochRegistry;
+
+    private JwtMetrics metrics;
+
+    private UserDetailsService batchUserDetailsService;
+
+    private Executor batchExecutor;
+
+    private String batchServicePrincipalPrefix;
+
+    private TokenBucketRateLimiter addressRateLimiter;
+
+    private TokenBucketRateLimiter subjectRateLimiter;
+
+    private RejectedTokenCache rejectedTokenCache;
+
     @Override
     public void init(HttpSecurity builder) throws Exception {
         var csrfConfigurer = builder.getConfigurer(CsrfConfigurer.class);
         if (csrfConfigurer != null) {
-            csrfConfigurer.ignoringRequestMatchers(new AntPathRequestMatcher("/jwt/tokens", "POST"));
+            csrfConfigurer.ignoringRequestMatchers(
+                    new MethodPathRequestMatcher(HttpMethod.POST.name(), "/jwt/tokens"),
+                    new MethodPathRequestMatcher(HttpMethod.POST.name(), "/jwt/tokens/batch"));
         }
     }
 
     @Override
     public void configure(HttpSecurity builder) throws Exception {
+        var metrics = this.metrics != null ? this.metrics : JwtMetrics.noop();
+
         var requestJwtTokensFilter = new RequestJwtTokensFilter();
         requestJwtTokensFilter.setAccessTokenStringSerializer(this.accessTokenStringSerializer);
         requestJwtTokensFilter.setRefreshTokenStringSerializer(this.refreshTokenStringSerializer);
+        requestJwtTokensFilter.setMetrics(metrics);
 
+        var jwtAuthenticationConverter = new JwtAuthenticationConverter(this.accessTokenStringDeserializer,
+                this.refreshTokenStringDeserializer);
+        jwtAuthenticationConverter.setMetrics(metrics);
+        jwtAuthenticationConverter.setRejectedTokenCache(this.rejectedTokenCache);
         var jwtAuthenticationFilter = new AuthenticationFilter(builder.getSharedObject(AuthenticationManager.class),
-                new JwtAuthenticationConverter(this.accessTokenStringDeserializer, this.refreshTokenStringDeserializer));
+                jwtAuthenticationConverter);
         jwtAuthenticationFilter
-                .setSuccessHandler((request, response, authentication) -> CsrfFilter.skipRequest(request));
+                .setSuccessHandler((request, response, authentication) -> {
+                    metrics.recordAuthentication(true);
+                    CsrfFilter.skipRequest(request);
+                });
         jwtAuthenticationFilter
-                .setFailureHandler((request, response, exception) -> response.sendError(HttpServletResponse.SC_FORBIDDEN));
+                .setFailureHandler((request, response, exception) -> {
+                    metrics.recordAuthentication(false);
+                    if (this.rejectedTokenCache != null && exception instanceof AccountStatusException &&
+                            request.getAttribute(JwtAuthenticationConverter.TOKEN_DIGEST_ATTRIBUTE)
+                                    instanceof TokenDigest digest) {
+                        this.rejectedTokenCache.put(digest, RejectedTokenCache.Rejection.AUTHENTICATION_FAILED);
+                    }
+                    response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                });
 
         var authenticationProvider = new PreAuthenticatedAuthenticationProvider();
-        authenticationProvider.setPreAuthenticatedUserDetailsService(
-                new TokenAuthenticationUserDetailsService(this.jdbcTemplate));
+        TokenRevocationChecker tokenRevocationChecker = this.revokedTokenSet;
+        if (tokenRevocationChecker == null) {
+            tokenRevocationChecker = this.tokenRevocationChecker != null ?
+                    this.tokenRevocationChecker : new JdbcTokenRevocationChecker(this.jdbcTemplate);
+        }
+        var userDetailsService = new TokenAuthenticationUserDetailsService(
+                new TimedTokenRevocationChecker(tokenRevocationChecker, metrics));
+        userDetailsService.setTokenEpochRegistry(this.tokenEpochRegistry);
+        authenticationProvider.setPreAuthenticatedUserDetailsService(userDetailsService);
+
+        var refreshTokenFactory = new DefaultRefreshTokenFactory();
+        refreshTokenFactory.setTokenEpochRegistry(this.tokenEpochRegistry);
+        requestJwtTokensFilter.setRefreshTokenFactory(refreshTokenFactory);
 
         var refreshTokenFilter = new RefreshTokenFilter();
         refreshTokenFilter.setAccessTokenStringSerializer(this.accessTokenStringSerializer);
+        refreshTokenFilter.setAccessTokenCache(this.refreshAccessTokenCache);
+        refreshTokenFilter.setMetrics(metrics);
 
-        var jwtLogoutFilter = new JwtLogoutFilter(this.jdbcTemplate);
+        var jwtLogoutFilter = new JwtLogoutFilter(this.deactivatedTokenWriter != null ?
+                this.deactivatedTokenWriter : new JdbcDeactivatedTokenWriter(this.jdbcTemplate));
+        jwtLogoutFilter.setRevokedTokenSet(this.revokedTokenSet);
+        jwtLogoutFilter.setMetrics(metrics);
 
-        builder.addFilterAfter(requestJwtTokensFilter, ExceptionTranslationFilter.class)
+        var endpoints = new ArrayList<JwtEndpoint>(
+                List.of(requestJwtTokensFilter, refreshTokenFilter, jwtLogoutFilter));
+        if (this.tokenEpochRegistry != null) {
+            var jwtLogoutEverywhereFilter = new JwtLogoutEverywhereFilter(this.tokenEpochRegistry);
+            jwtLogoutEverywhereFilter.setMetrics(metrics);
+            endpoints.add(jwtLogoutEverywhereFilter);
+        }
+        if (this.batchUserDetailsService != null) {
+            var batchJwtTokensFilter = new BatchJwtTokensFilter(this.batchUserDetailsService);
+            batchJwtTokensFilter.setAccessTokenStringSerializer(this.accessTokenStringSerializer);
+            batchJwtTokensFilter.setRefreshTokenStringSerializer(this.refreshTokenStringSerializer);
+            batchJwtTokensFilter.setRefreshTokenFactory(refreshTokenFactory);
+            batchJwtTokensFilter.setMetrics(metrics);
+            if (this.batchExecutor != null) {
+                batchJwtTokensFilter.setExecutor(this.batchExecutor);
+            }
+            if (this.batchServicePrincipalPrefix != null) {
+                batchJwtTokensFilter.setServicePrincipalPrefix(this.batchServicePrincipalPrefix);
+            }
+            endpoints.add(batchJwtTokensFilter);
+        }
+
+        if (this.addressRateLimiter != null || this.subjectRateLimiter != null) {
+            builder.addFilterBefore(new RateLimitingFilter(this.addressRateLimiter, this.subjectRateLimiter),
+                    HeaderWriterFilter.class);
+        }
+        builder.addFilterAfter(new JwtEndpointsFilter(endpoints), ExceptionTranslationFilter.class)
                 .addFilterBefore(jwtAuthenticationFilter, CsrfFilter.class)
-                .addFilterAfter(refreshTokenFilter, ExceptionTranslationFilter.class)
-                .addFilterAfter(jwtLogoutFilter, ExceptionTranslationFilter.class)
                 .authenticationProvider(authenticationProvider);
     }
 }
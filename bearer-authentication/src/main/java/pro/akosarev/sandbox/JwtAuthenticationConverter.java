@@ -1,7 +1,7 @@
 package pro.akosarev.sandbox;
 
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.AllArgsConstructor;
+import lombok.Setter;
 import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.authentication.AuthenticationConverter;
@@ -9,27 +9,64 @@ import org.springframework.security.web.authentication.preauth.PreAuthenticatedA
 
 import java.util.function.Function;
 
-@AllArgsConstructor
 public class JwtAuthenticationConverter implements AuthenticationConverter {
-    private final Function<String, Token> accessTokenStringDeserializer;
+    /**
+     * Request attribute with the {@link TokenDigest} of the bearer token, set when a {@link RejectedTokenCache}
+     * is used, so the token can be remembered as rejected without digesting it again.
+     */
+    public static final String TOKEN_DIGEST_ATTRIBUTE = JwtAuthenticationConverter.class.getName() + ".TOKEN_DIGEST";
 
-    private final Function<String, Token> refreshTokenStringDeserializer;
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final BearerTokenDeserializer bearerTokenDeserializer;
+
+    @Setter
+    private RejectedTokenCache rejectedTokenCache;
+
+    public JwtAuthenticationConverter(Function<String, Token> accessTokenStringDeserializer,
+                                      Function<String, Token> refreshTokenStringDeserializer) {
+        this.bearerTokenDeserializer = new BearerTokenDeserializer(accessTokenStringDeserializer,
+                refreshTokenStringDeserializer);
+    }
+
+    public void setMetrics(JwtMetrics metrics) {
+        this.bearerTokenDeserializer.setMetrics(metrics);
+    }
 
     @Override
     public Authentication convert(HttpServletRequest request) {
         var authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
-        if (authorization != null && authorization.startsWith("Bearer ")) {
-            var token = authorization.replace("Bearer ", "");
-            var accessToken = this.accessTokenStringDeserializer.apply(token);
-            if (accessToken != null) {
-                return new PreAuthenticatedAuthenticationToken(accessToken, token);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            var token = authorization.substring(BEARER_PREFIX.length());
+            // tokens of no known format are rejected faster than they are digested
+            if (this.rejectedTokenCache == null || TokenFormat.of(token) == TokenFormat.UNKNOWN) {
+                return this.deserialize(token) instanceof TokenDeserializationResult.Success success ?
+                        new PreAuthenticatedAuthenticationToken(success.token(), token) : null;
             }
 
-            var refreshToken = this.refreshTokenStringDeserializer.apply(token);
-            if (refreshToken != null) {
-                return new PreAuthenticatedAuthenticationToken(refreshToken, token);
+            var digest = TokenDigest.of(token);
+            var rejection = this.rejectedTokenCache.get(digest);
+            if (rejection == RejectedTokenCache.Rejection.AUTHENTICATION_FAILED) {
+                throw new RejectedTokenException("Token was rejected recently");
+            } else if (rejection == RejectedTokenCache.Rejection.DESERIALIZATION_FAILED) {
+                return null;
+            }
+
+            var result = this.bearerTokenDeserializer.deserialize(token, digest);
+            if (result instanceof TokenDeserializationResult.Success success) {
+                request.setAttribute(TOKEN_DIGEST_ATTRIBUTE, digest);
+                return new PreAuthenticatedAuthenticationToken(success.token(), token);
+            }
+            // the key of a token may not have been loaded yet
+            if (!(result instanceof TokenDeserializationResult.Failure failure &&
+                    failure.reason() == TokenDeserializationResult.Reason.UNKNOWN_KEY)) {
+                this.rejectedTokenCache.put(digest, RejectedTokenCache.Rejection.DESERIALIZATION_FAILED);
             }
         }
         return null;
     }
+
+    public TokenDeserializationResult deserialize(String token) {
+        return this.bearerTokenDeserializer.deserialize(token);
+    }
 }
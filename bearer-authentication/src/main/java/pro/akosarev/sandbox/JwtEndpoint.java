@@ -0,0 +1,27 @@
+package pro.akosarev.sandbox;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.io.IOException;
+
+/**
+ * An endpoint under {@code /jwt/*}, handling the requests its matcher matches with the security context
+ * that {@link JwtEndpointsFilter} loads from its repository.
+ */
+public interface JwtEndpoint {
+
+    RequestMatcher getRequestMatcher();
+
+    SecurityContextRepository getSecurityContextRepository();
+
+    /**
+     * Handles a matched request, {@code context} is {@code null} when the request has no security context.
+     */
+    void handle(HttpServletRequest request, HttpServletResponse response, SecurityContext context)
+            throws ServletException, IOException;
+}
@@ -0,0 +1,111 @@
+package pro.akosarev.sandbox;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dispatches requests to the {@code /jwt/*} endpoints from a single filter.
+ * <p>
+ * Endpoints matched by a {@link MethodPathRequestMatcher} are put into a path and method lookup table, so a request
+ * to any other path costs one map lookup. Endpoints with other matchers are evaluated in order after the table.
+ * The table is rebuilt when the matcher of an endpoint is replaced. For a matched request the security context is
+ * loaded from the repository of the endpoint.
+ */
+public class JwtEndpointsFilter extends OncePerRequestFilter {
+    private final List<JwtEndpoint> endpoints;
+
+    private volatile EndpointTable table;
+
+    public JwtEndpointsFilter(List<? extends JwtEndpoint> endpoints) {
+        this.endpoints = List.copyOf(endpoints);
+        this.table = EndpointTable.of(this.endpoints);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        var endpoint = this.currentTable().lookup(request);
+        if (endpoint == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var securityContextRepository = endpoint.getSecurityContextRepository();
+        endpoint.handle(request, response, securityContextRepository.containsContext(request) ?
+                securityContextRepository.loadDeferredContext(request).get() : null);
+    }
+
+    private EndpointTable currentTable() {
+        var table = this.table;
+        if (!table.isCurrent(this.endpoints)) {
+            synchronized (this) {
+                table = this.table;
+                if (!table.isCurrent(this.endpoints)) {
+                    table = EndpointTable.of(this.endpoints);
+                    this.table = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    private record EndpointTable(List<RequestMatcher> requestMatchers,
+                                 Map<String, Map<String, JwtEndpoint>> endpointsByPath,
+                                 List<JwtEndpoint> matchedEndpoints) {
+
+        static EndpointTable of(List<JwtEndpoint> endpoints) {
+            var requestMatchers = new ArrayList<RequestMatcher>(endpoints.size());
+            var endpointsByPath = new HashMap<String, Map<String, JwtEndpoint>>();
+            var matchedEndpoints = new ArrayList<JwtEndpoint>();
+            for (var endpoint : endpoints) {
+                var requestMatcher = endpoint.getRequestMatcher();
+                requestMatchers.add(requestMatcher);
+                if (requestMatcher instanceof MethodPathRequestMatcher matcher) {
+                    if (endpointsByPath.computeIfAbsent(matcher.path(), path -> new HashMap<>())
+                            .putIfAbsent(matcher.method(), endpoint) != null) {
+                        throw new IllegalArgumentException("Duplicate endpoint for %s %s"
+                                .formatted(matcher.method(), matcher.path()));
+                    }
+                } else {
+                    matchedEndpoints.add(endpoint);
+                }
+            }
+            return new EndpointTable(requestMatchers, endpointsByPath, matchedEndpoints);
+        }
+
+        boolean isCurrent(List<JwtEndpoint> endpoints) {
+            for (var i = 0; i < endpoints.size(); i++) {
+                if (endpoints.get(i).getRequestMatcher() != this.requestMatchers.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        JwtEndpoint lookup(HttpServletRequest request) {
+            var endpointsByMethod = this.endpointsByPath.get(MethodPathRequestMatcher.requestPath(request));
+            if (endpointsByMethod != null) {
+                var endpoint = endpointsByMethod.get(request.getMethod());
+                if (endpoint != null) {
+                    return endpoint;
+                }
+            }
+            for (var endpoint : this.matchedEndpoints) {
+                if (endpoint.getRequestMatcher().matches(request)) {
+                    return endpoint;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package pro.akosarev.sandbox;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Revokes every token of a subject by advancing its {@link TokenEpochRegistry token epoch}.
+ * <p>
+ * Without the {@code subject} parameter the subject of the caller's refresh token is logged out everywhere.
+ * Logging out another subject requires the {@code requiredAuthority} authority, e.g. in an access token.
+ */
+public class JwtLogoutEverywhereFilter extends OncePerRequestFilter implements JwtEndpoint {
+    @Getter
+    @Setter
+    private RequestMatcher requestMatcher = new MethodPathRequestMatcher(HttpMethod.POST.name(), "/jwt/logout/all");
+
+    @Getter
+    @Setter
+    private SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
+
+    @Setter
+    private String requiredAuthority = "JWT_LOGOUT_ALL";
+
+    @Setter
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+    private final TokenEpochRegistry tokenEpochRegistry;
+
+    public JwtLogoutEverywhereFilter(TokenEpochRegistry tokenEpochRegistry) {
+        this.tokenEpochRegistry = tokenEpochRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain
+    ) throws ServletException, IOException {
+        if (this.requestMatcher.matches(request)) {
+            this.handle(request, response, this.securityContextRepository.containsContext(request) ?
+                    this.securityContextRepository.loadDeferredContext(request).get() : null);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response, SecurityContext context) {
+        var startedAt = System.nanoTime();
+        if (context != null && context.getAuthentication() instanceof PreAuthenticatedAuthenticationToken &&
+                context.getAuthentication().getPrincipal() instanceof TokenPrincipal user) {
+            var subject = request.getParameter("subject");
+            if (subject == null && user.hasAuthority("JWT_LOGOUT")) {
+                this.tokenEpochRegistry.advance(user.getToken().subject());
+            } else if (subject != null && !subject.isBlank() && user.hasAuthority(this.requiredAuthority)) {
+                this.tokenEpochRegistry.advance(subject);
+            } else {
+                throw new AccessDeniedException("User is not allowed to log out the subject everywhere");
+            }
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            this.metrics.recordSubjectLoggedOut(System.nanoTime() - startedAt);
+            return;
+        }
+        throw new AccessDeniedException("User must be authenticated with JWT");
+    }
+}
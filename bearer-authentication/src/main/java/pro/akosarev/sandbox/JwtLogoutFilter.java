@@ -4,32 +4,43 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.Getter;
 import lombok.Setter;
 import org.springframework.http.HttpMethod;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
 import org.springframework.security.web.context.SecurityContextRepository;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Date;
 
-public class JwtLogoutFilter extends OncePerRequestFilter {
+public class JwtLogoutFilter extends OncePerRequestFilter implements JwtEndpoint {
+    @Getter
     @Setter
-    private RequestMatcher requestMatcher = new AntPathRequestMatcher("/jwt/logout", HttpMethod.POST.name());
+    private RequestMatcher requestMatcher = new MethodPathRequestMatcher(HttpMethod.POST.name(), "/jwt/logout");
 
+    @Getter
     @Setter
     private SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
 
-    private final JdbcTemplate jdbcTemplate;
+    @Setter
+    private RevokedTokenSet revokedTokenSet;
+
+    @Setter
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+    private final DeactivatedTokenWriter deactivatedTokenWriter;
 
     public JwtLogoutFilter(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+        this(new JdbcDeactivatedTokenWriter(jdbcTemplate));
+    }
+
+    public JwtLogoutFilter(DeactivatedTokenWriter deactivatedTokenWriter) {
+        this.deactivatedTokenWriter = deactivatedTokenWriter;
     }
 
 
@@ -39,20 +50,27 @@ public class JwtLogoutFilter extends OncePerRequestFilter {
                                     FilterChain filterChain
     ) throws ServletException, IOException {
         if (this.requestMatcher.matches(request)) {
-            if (this.securityContextRepository.containsContext(request)) {
-                var context = this.securityContextRepository.loadDeferredContext(request).get();
-                if (context != null && context.getAuthentication() instanceof PreAuthenticatedAuthenticationToken &&
-                        context.getAuthentication().getPrincipal() instanceof TokenUser user &&
-                        context.getAuthentication().getAuthorities()
-                                .contains(new SimpleGrantedAuthority("JWT_LOGOUT"))) {
-                    this.jdbcTemplate.update("insert into t_deactivated_token (id, c_keep_until) values (?, ?)",
-                            user.getToken().id(), Date.from(user.getToken().expiresAt()));
-                    response.setStatus(HttpServletResponse.SC_NO_CONTENT);
-                    return;
-                }
-            }
-            throw new AccessDeniedException("User must be authenticated with JWT");
+            this.handle(request, response, this.securityContextRepository.containsContext(request) ?
+                    this.securityContextRepository.loadDeferredContext(request).get() : null);
+            return;
         }
         filterChain.doFilter(request, response);
     }
+
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response, SecurityContext context) {
+        var startedAt = System.nanoTime();
+        if (context != null && context.getAuthentication() instanceof PreAuthenticatedAuthenticationToken &&
+                context.getAuthentication().getPrincipal() instanceof TokenPrincipal user &&
+                user.hasAuthority("JWT_LOGOUT")) {
+            if (this.revokedTokenSet != null) {
+                this.revokedTokenSet.add(user.getToken().id(), user.getToken().expiresAt());
+            }
+            this.deactivatedTokenWriter.deactivate(user.getToken().id(), user.getToken().expiresAt());
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+            this.metrics.recordTokenRevoked(System.nanoTime() - startedAt);
+            return;
+        }
+        throw new AccessDeniedException("User must be authenticated with JWT");
+    }
 }
@@ -0,0 +1,47 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+/**
+ * Hints for a native image of the application that Spring AOT can not infer from the bean definitions.
+ * <p>
+ * The responses are written by object mappers that the filters create themselves, so the records are
+ * registered for Jackson binding. Nimbus and {@link HmacKey} look JCA services up by algorithm names
+ * computed at runtime, so the implementations of the algorithms the tokens are signed and encrypted with
+ * are registered explicitly.
+ */
+public class JwtRuntimeHints implements RuntimeHintsRegistrar {
+    private static final String[] JCA_SERVICES = {
+            "com.sun.crypto.provider.HmacCore$HmacSHA256",
+            "com.sun.crypto.provider.HmacCore$HmacSHA384",
+            "com.sun.crypto.provider.HmacCore$HmacSHA512",
+            "com.sun.crypto.provider.GaloisCounterMode$AESGCM",
+            "com.sun.crypto.provider.AESCipher$General",
+            "sun.security.provider.SHA2$SHA256"
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        var bindingHints = new BindingReflectionHintsRegistrar();
+        bindingHints.registerReflectionHints(hints.reflection(), Token.class, Tokens.class, IssuedTokens.class);
+
+        for (var type : new Class<?>[]{MACSigner.class, MACVerifier.class, DirectEncrypter.class,
+                DirectDecrypter.class, OctetSequenceKey.class, JWKSet.class}) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        for (var service : JCA_SERVICES) {
+            hints.reflection().registerType(TypeReference.of(service), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        }
+    }
+}
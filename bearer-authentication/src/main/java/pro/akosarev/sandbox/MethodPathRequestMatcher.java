@@ -0,0 +1,26 @@
+package pro.akosarev.sandbox;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+/**
+ * Matches requests with exactly the given method and path, like an {@code AntPathRequestMatcher}
+ * with a pattern without wildcards, but exposes both so {@link JwtEndpointsFilter} can look endpoints up
+ * by method and path instead of evaluating matchers.
+ */
+public record MethodPathRequestMatcher(String method, String path) implements RequestMatcher {
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        return this.method.equals(request.getMethod()) && this.path.equals(requestPath(request));
+    }
+
+    static String requestPath(HttpServletRequest request) {
+        var servletPath = request.getServletPath();
+        var pathInfo = request.getPathInfo();
+        if (pathInfo == null) {
+            return servletPath;
+        }
+        return servletPath == null || servletPath.isEmpty() ? pathInfo : servletPath + pathInfo;
+    }
+}
@@ -0,0 +1,10 @@
+package pro.akosarev.sandbox;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
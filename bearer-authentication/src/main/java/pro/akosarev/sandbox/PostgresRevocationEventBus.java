@@ -0,0 +1,209 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * {@link RevocationEventBus} on Postgres {@code LISTEN/NOTIFY}.
+ * <p>
+ * Events are sent with {@code pg_notify} through the {@link JdbcTemplate}, a batch of events in one statement.
+ * Every payload is {@code tokenId,keepUntilMillis,publishedAtMillis}. The listener thread keeps its own
+ * connection from {@code listenerDataSource}, which should not be pooled, as it is held for as long as the bus
+ * runs. When the connection fails it reconnects after {@code reconnectDelay} and calls
+ * {@link Listener#onSubscribed()} on all listeners, as notifications sent meanwhile are lost. The channel is
+ * a lower-case identifier, as {@code LISTEN} cannot take it as a bind parameter.
+ */
+public class PostgresRevocationEventBus implements RevocationEventBus, MeterBinder, AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PostgresRevocationEventBus.class);
+
+    public static final String DEFAULT_CHANNEL = "jwt_revocation";
+
+    private static final Pattern CHANNEL_PATTERN = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DataSource listenerDataSource;
+
+    private final String channel;
+
+    private final Duration pollTimeout;
+
+    private final Duration reconnectDelay;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong reconnects = new AtomicLong();
+
+    private volatile boolean running;
+
+    private Thread listenerThread;
+
+    public PostgresRevocationEventBus(JdbcTemplate jdbcTemplate, DataSource listenerDataSource) {
+        this(jdbcTemplate, listenerDataSource, DEFAULT_CHANNEL, Duration.ofMillis(500), Duration.ofSeconds(5));
+    }
+
+    public PostgresRevocationEventBus(JdbcTemplate jdbcTemplate, DataSource listenerDataSource, String channel,
+                                      Duration pollTimeout, Duration reconnectDelay) {
+        // LISTEN takes an identifier rather than a bind parameter
+        if (!CHANNEL_PATTERN.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid channel name " + channel);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.listenerDataSource = listenerDataSource;
+        this.channel = channel;
+        this.pollTimeout = pollTimeout;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    public synchronized void start() {
+        if (this.listenerThread == null) {
+            this.running = true;
+            this.listenerThread = Thread.ofPlatform()
+                    .name("revocation-event-listener")
+                    .daemon()
+                    .start(this::run);
+        }
+    }
+
+    @Override
+    public void publish(RevocationEvent event) {
+        this.jdbcTemplate.queryForObject("select pg_notify(?, ?)", Object.class, this.channel, payload(event));
+    }
+
+    @Override
+    public void publishAll(List<RevocationEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        var payloads = events.stream().map(PostgresRevocationEventBus::payload).toArray(String[]::new);
+        this.jdbcTemplate.execute((ConnectionCallback<Object>) connection -> {
+            try (var statement = connection.prepareStatement("select pg_notify(?, payload) from unnest(?) payload")) {
+                statement.setString(1, this.channel);
+                statement.setArray(2, connection.createArrayOf("text", payloads));
+                statement.executeQuery().close();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void subscribe(Listener listener) {
+        this.listeners.add(listener);
+    }
+
+    public long reconnectCount() {
+        return this.reconnects.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.revocation.event-bus.reconnects", this,
+                        PostgresRevocationEventBus::reconnectCount)
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        Thread listenerThread;
+        synchronized (this) {
+            this.running = false;
+            listenerThread = this.listenerThread;
+        }
+        if (listenerThread != null) {
+            listenerThread.join(this.pollTimeout.multipliedBy(4).toMillis());
+        }
+    }
+
+    private void run() {
+        var connected = false;
+        while (this.running) {
+            try (var connection = this.listenerDataSource.getConnection()) {
+                try (var statement = connection.createStatement()) {
+                    statement.execute("listen \"%s\"".formatted(this.channel));
+                }
+                if (connected) {
+                    this.reconnects.incrementAndGet();
+                }
+                connected = true;
+                this.listeners.forEach(this::catchUp);
+                this.listen(connection);
+            } catch (SQLException | RuntimeException exception) {
+                if (!this.running) {
+                    return;
+                }
+                LOGGER.warn("Listening on {} failed, reconnecting in {}", this.channel, this.reconnectDelay, exception);
+                try {
+                    Thread.sleep(this.reconnectDelay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void listen(Connection connection) throws SQLException {
+        var pgConnection = connection.unwrap(PGConnection.class);
+        var timeout = (int) this.pollTimeout.toMillis();
+        while (this.running) {
+            var notifications = pgConnection.getNotifications(timeout);
+            if (notifications == null) {
+                continue;
+            }
+            for (var notification : notifications) {
+                RevocationEvent event;
+                try {
+                    event = parse(notification.getParameter());
+                } catch (IllegalArgumentException exception) {
+                    LOGGER.warn("Ignoring malformed revocation event {}", notification.getParameter());
+                    continue;
+                }
+                for (var listener : this.listeners) {
+                    try {
+                        listener.onRevoked(event);
+                    } catch (RuntimeException exception) {
+                        LOGGER.error("Revocation listener {} failed", listener, exception);
+                    }
+                }
+            }
+        }
+    }
+
+    private void catchUp(Listener listener) {
+        try {
+            listener.onSubscribed();
+        } catch (RuntimeException exception) {
+            LOGGER.error("Catch-up of revocation listener {} failed", listener, exception);
+        }
+    }
+
+    private static String payload(RevocationEvent event) {
+        return "%s,%d,%d".formatted(event.tokenId(), event.keepUntil().toEpochMilli(),
+                event.publishedAt().toEpochMilli());
+    }
+
+    private static RevocationEvent parse(String payload) {
+        var parts = payload.split(",");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Unexpected payload " + payload);
+        }
+        return new RevocationEvent(UUID.fromString(parts[0]), Instant.ofEpochMilli(Long.parseLong(parts[1])),
+                Instant.ofEpochMilli(Long.parseLong(parts[2])));
+    }
+}
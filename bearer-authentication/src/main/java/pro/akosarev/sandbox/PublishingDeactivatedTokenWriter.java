@@ -0,0 +1,46 @@
+package pro.akosarev.sandbox;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Publishes tokens to a {@link RevocationEventBus} after the delegate stored them.
+ * <p>
+ * Behind a {@link WriteBehindDeactivatedTokenWriter} the events of a batch are published together
+ * off the request thread.
+ */
+public class PublishingDeactivatedTokenWriter implements DeactivatedTokenWriter {
+    private final DeactivatedTokenWriter delegate;
+
+    private final RevocationEventBus eventBus;
+
+    private final Clock clock;
+
+    public PublishingDeactivatedTokenWriter(DeactivatedTokenWriter delegate, RevocationEventBus eventBus) {
+        this(delegate, eventBus, Clock.systemUTC());
+    }
+
+    public PublishingDeactivatedTokenWriter(DeactivatedTokenWriter delegate, RevocationEventBus eventBus,
+                                            Clock clock) {
+        this.delegate = delegate;
+        this.eventBus = eventBus;
+        this.clock = clock;
+    }
+
+    @Override
+    public void deactivate(UUID tokenId, Instant keepUntil) {
+        this.delegate.deactivate(tokenId, keepUntil);
+        this.eventBus.publish(new RevocationEvent(tokenId, keepUntil, this.clock.instant()));
+    }
+
+    @Override
+    public void deactivateAll(List<DeactivatedToken> tokens) {
+        this.delegate.deactivateAll(tokens);
+        var publishedAt = this.clock.instant();
+        this.eventBus.publishAll(tokens.stream()
+                .map(token -> new RevocationEvent(token.id(), token.keepUntil(), publishedAt))
+                .toList());
+    }
+}
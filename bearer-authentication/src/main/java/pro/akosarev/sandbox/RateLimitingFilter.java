@@ -0,0 +1,92 @@
+package pro.akosarev.sandbox;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.Setter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests with {@code 429 Too Many Requests} before their credentials are checked, once the client
+ * address or the username of basic authentication ran out of permits.
+ * <p>
+ * By default only requests with an {@code Authorization} header are limited, as only those cost a signature
+ * check, a decryption or a password hash. Bearer tokens are limited by address only, as the subject of a token
+ * is not known before it is verified. The response is not sent as an error, so the rejected request is not
+ * dispatched to the error page, which would authenticate it after all.
+ * <p>
+ * The username is not verified before the password is, so a bucket per username would let anyone lock a user
+ * out. Its permits are only taken by requests to {@code subjectRequestMatcher}, the token endpoint by default,
+ * that fail with {@code 401 Unauthorized}, so only guessing a password is limited.
+ */
+public class RateLimitingFilter extends OncePerRequestFilter {
+    private static final String BASIC_PREFIX = "Basic ";
+
+    private final TokenBucketRateLimiter addressRateLimiter;
+
+    private final TokenBucketRateLimiter subjectRateLimiter;
+
+    @Setter
+    private RequestMatcher requestMatcher = request -> request.getHeader(HttpHeaders.AUTHORIZATION) != null;
+
+    @Setter
+    private RequestMatcher subjectRequestMatcher = new MethodPathRequestMatcher(HttpMethod.POST.name(), "/jwt/tokens");
+
+    public RateLimitingFilter(TokenBucketRateLimiter addressRateLimiter, TokenBucketRateLimiter subjectRateLimiter) {
+        this.addressRateLimiter = addressRateLimiter;
+        this.subjectRateLimiter = subjectRateLimiter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!this.requestMatcher.matches(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var wait = this.addressRateLimiter != null ? this.addressRateLimiter.acquire(request.getRemoteAddr()) : 0;
+        String username = null;
+        if (wait == 0 && this.subjectRateLimiter != null && this.subjectRequestMatcher.matches(request)) {
+            username = basicUsername(request.getHeader(HttpHeaders.AUTHORIZATION));
+            if (username != null) {
+                wait = this.subjectRateLimiter.check(username);
+            }
+        }
+        if (wait > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+        if (username != null && response.getStatus() == HttpStatus.UNAUTHORIZED.value()) {
+            this.subjectRateLimiter.consume(username);
+        }
+    }
+
+    private static String basicUsername(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BASIC_PREFIX, 0, BASIC_PREFIX.length())) {
+            return null;
+        }
+        try {
+            var credentials = new String(
+                    Base64.getDecoder().decode(authorization.substring(BASIC_PREFIX.length()).trim()),
+                    StandardCharsets.UTF_8);
+            var separator = credentials.indexOf(':');
+            return separator < 0 ? null : credentials.substring(0, separator);
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+}
@@ -1,19 +1,20 @@
 package pro.akosarev.sandbox;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.Getter;
 import lombok.Setter;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.AccessDeniedException;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
 import org.springframework.security.web.context.SecurityContextRepository;
-import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -21,41 +22,62 @@ import java.io.IOException;
 import java.util.function.Function;
 
 @Setter
-public class RefreshTokenFilter extends OncePerRequestFilter {
-    private RequestMatcher requestMatcher = new AntPathRequestMatcher("/jwt/refresh", HttpMethod.POST.name());
+public class RefreshTokenFilter extends OncePerRequestFilter implements JwtEndpoint {
+    @Getter
+    private RequestMatcher requestMatcher = new MethodPathRequestMatcher(HttpMethod.POST.name(), "/jwt/refresh");
 
+    @Getter
     private SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
 
     private Function<Token, Token> accessTokenFactory = new DefaultAccessTokenFactory();
 
     private Function<Token, String> accessTokenStringSerializer = Object::toString;
 
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private SingleFlightAccessTokenCache accessTokenCache;
 
+    private ObjectWriter tokensWriter = Tokens.WRITER;
+
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.tokensWriter = Tokens.writer(objectMapper);
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
         if (this.requestMatcher.matches(request)) {
-            if (this.securityContextRepository.containsContext(request)) {
-                var context = this.securityContextRepository.loadDeferredContext(request).get();
-                if (context != null && context.getAuthentication() instanceof PreAuthenticatedAuthenticationToken &&
-                        context.getAuthentication().getPrincipal() instanceof TokenUser user &&
-                        context.getAuthentication().getAuthorities()
-                                .contains(new SimpleGrantedAuthority("JWT_REFRESH"))
-                ) {
-                    var accessToken = this.accessTokenFactory.apply(user.getToken());
-
-                    response.setStatus(HttpServletResponse.SC_OK);
-                    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
-                    this.objectMapper.writeValue(response.getWriter(),
-                            new Tokens(this.accessTokenStringSerializer.apply(accessToken),
-                                    accessToken.expiresAt().toString(), null, null));
-                    return;
-                }
-            }
-            throw new AccessDeniedException("User must be authenticated with JWT");
+            this.handle(request, response, this.securityContextRepository.containsContext(request) ?
+                    this.securityContextRepository.loadDeferredContext(request).get() : null);
+            return;
         }
         filterChain.doFilter(request, response);
     }
+
+    @Override
+    public void handle(HttpServletRequest request, HttpServletResponse response, SecurityContext context)
+            throws IOException {
+        var startedAt = System.nanoTime();
+        if (context != null && context.getAuthentication() instanceof PreAuthenticatedAuthenticationToken &&
+                context.getAuthentication().getPrincipal() instanceof TokenPrincipal user &&
+                user.hasAuthority("JWT_REFRESH")
+        ) {
+            var tokens = this.accessTokenCache != null ?
+                    this.accessTokenCache.get(user.getToken(), this::issue) : this.issue(user.getToken());
+
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            this.tokensWriter.writeValue(response.getOutputStream(), tokens);
+            this.metrics.recordTokenRefreshed(System.nanoTime() - startedAt);
+            return;
+        }
+        throw new AccessDeniedException("User must be authenticated with JWT");
+    }
+
+    private Tokens issue(Token refreshToken) {
+        var accessToken = this.accessTokenFactory.apply(refreshToken);
+        return new Tokens(this.accessTokenStringSerializer.apply(accessToken),
+                accessToken.expiresAt().toString(), null, null);
+    }
 }
@@ -1,55 +0,0 @@
-package pro.akosarev.sandbox;
-
-import com.nimbusds.jose.*;
-import com.nimbusds.jwt.EncryptedJWT;
-import com.nimbusds.jwt.JWTClaimsSet;
-import lombok.Setter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import java.util.Date;
-import java.util.function.Function;
-
-public class RefreshTokenJweStringSerializer implements Function<Token, String> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshTokenJweStringSerializer.class);
-
-    private final JWEEncrypter jweEncrypter;
-
-    @Setter
-    private JWEAlgorithm jweAlgorithm = JWEAlgorithm.DIR;
-
-    @Setter
-    private EncryptionMethod encryptionMethod = EncryptionMethod.A128GCM;
-
-    public RefreshTokenJweStringSerializer(JWEEncrypter jweEncrypter) {
-        this.jweEncrypter = jweEncrypter;
-    }
-
-    public RefreshTokenJweStringSerializer(JWEEncrypter jweEncrypter, JWEAlgorithm jweAlgorithm, EncryptionMethod encryptionMethod) {
-        this.jweEncrypter = jweEncrypter;
-        this.jweAlgorithm = jweAlgorithm;
-        this.encryptionMethod = encryptionMethod;
-    }
-
-    @Override
-    public String apply(Token token) {
-        var jwsHeader = new JWEHeader.Builder(this.jweAlgorithm, this.encryptionMethod)
-                .keyID(token.id().toString())
-                .build();
-        var claimsSet = new JWTClaimsSet.Builder()
-                .jwtID(token.id().toString())
-                .subject(token.subject())
-                .issueTime(Date.from(token.createdAt()))
-                .expirationTime(Date.from(token.expiresAt()))
-                .claim("authorities", token.authorities())
-                .build();
-        var encryptedJWT = new EncryptedJWT(jwsHeader, claimsSet);
-        try {
-            encryptedJWT.encrypt(this.jweEncrypter);
-
-            return encryptedJWT.serialize();
-        } catch (JOSEException exception) {
-            LOGGER.error(exception.getMessage(), exception);
-        }
-        return null;
-    }
-}
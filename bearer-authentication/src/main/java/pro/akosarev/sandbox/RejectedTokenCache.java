@@ -0,0 +1,81 @@
+package pro.akosarev.sandbox;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Setter;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Remembers bearer tokens that were rejected for {@code timeToLive}, keyed by a digest of the token string,
+ * so a client retrying the same token is rejected without deserializing or authenticating it again.
+ * Entries leave the cache once they expire or when the cache grows beyond its maximum size.
+ */
+public class RejectedTokenCache implements MeterBinder {
+    private final Cache<TokenDigest, Rejection> rejections;
+
+    @Setter
+    private Clock clock = Clock.systemUTC();
+
+    public RejectedTokenCache(Duration timeToLive, int maximumSize) {
+        this.rejections = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .ticker(new ClockTicker(() -> this.clock))
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns why the token was rejected, or {@code null} if it was not rejected recently.
+     */
+    public Rejection get(TokenDigest digest) {
+        return this.rejections.getIfPresent(digest);
+    }
+
+    public void put(TokenDigest digest, Rejection rejection) {
+        this.rejections.put(digest, rejection);
+    }
+
+    public long hitCount() {
+        return this.rejections.stats().hitCount();
+    }
+
+    public long missCount() {
+        return this.rejections.stats().missCount();
+    }
+
+    public int size() {
+        return (int) this.rejections.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.rejected-token-cache.requests", this, RejectedTokenCache::hitCount)
+                .description("Bearer tokens rejected again without deserializing or authenticating them")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("jwt.rejected-token-cache.requests", this, RejectedTokenCache::missCount)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("jwt.rejected-token-cache.size", this, RejectedTokenCache::size)
+                .register(registry);
+    }
+
+    public enum Rejection {
+        /**
+         * The token could not be deserialized.
+         */
+        DESERIALIZATION_FAILED,
+        /**
+         * The token was deserialized, but is expired or revoked.
+         */
+        AUTHENTICATION_FAILED
+    }
+}
@@ -0,0 +1,13 @@
+package pro.akosarev.sandbox;
+
+import org.springframework.security.authentication.BadCredentialsException;
+
+/**
+ * Thrown for a bearer token that failed authentication shortly before, without authenticating it again.
+ */
+public class RejectedTokenException extends BadCredentialsException {
+
+    public RejectedTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,31 @@
+package pro.akosarev.sandbox;
+
+import java.util.List;
+
+/**
+ * Propagates revoked token ids between the nodes sharing a token store.
+ * <p>
+ * Delivery is best effort: a node that was disconnected from the bus learns about the revocations
+ * it missed from {@link Listener#onSubscribed()}, which is called whenever a subscription is (re)established.
+ */
+public interface RevocationEventBus {
+
+    void publish(RevocationEvent event);
+
+    default void publishAll(List<RevocationEvent> events) {
+        events.forEach(this::publish);
+    }
+
+    void subscribe(Listener listener);
+
+    interface Listener {
+
+        void onRevoked(RevocationEvent event);
+
+        /**
+         * Called when the listener starts or resumes receiving events, to catch up on the events it may have missed.
+         */
+        default void onSubscribed() {
+        }
+    }
+}
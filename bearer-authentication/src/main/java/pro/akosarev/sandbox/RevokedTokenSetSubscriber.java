@@ -0,0 +1,66 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adds revoked tokens received from a {@link RevocationEventBus} to a {@link RevokedTokenSet}
+ * and runs the catch-up, usually {@link JdbcRevokedTokenSetLoader#refresh()}, whenever the subscription
+ * is (re)established.
+ */
+public class RevokedTokenSetSubscriber implements RevocationEventBus.Listener, MeterBinder {
+    private final RevokedTokenSet revokedTokenSet;
+
+    private final Runnable catchUp;
+
+    private final Clock clock;
+
+    private final LongAdder propagations = new LongAdder();
+
+    private final LongAdder propagationNanos = new LongAdder();
+
+    public RevokedTokenSetSubscriber(RevokedTokenSet revokedTokenSet, Runnable catchUp) {
+        this(revokedTokenSet, catchUp, Clock.systemUTC());
+    }
+
+    public RevokedTokenSetSubscriber(RevokedTokenSet revokedTokenSet, Runnable catchUp, Clock clock) {
+        this.revokedTokenSet = revokedTokenSet;
+        this.catchUp = catchUp;
+        this.clock = clock;
+    }
+
+    @Override
+    public void onRevoked(RevocationEvent event) {
+        this.revokedTokenSet.add(event.tokenId(), event.keepUntil());
+        var lag = Duration.between(event.publishedAt(), this.clock.instant());
+        this.propagationNanos.add(lag.isNegative() ? 0 : lag.toNanos());
+        this.propagations.increment();
+    }
+
+    @Override
+    public void onSubscribed() {
+        this.catchUp.run();
+    }
+
+    public long propagationCount() {
+        return this.propagations.sum();
+    }
+
+    public Duration totalPropagationTime() {
+        return Duration.ofNanos(this.propagationNanos.sum());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionTimer.builder("jwt.revocation.propagation", this, RevokedTokenSetSubscriber::propagationCount,
+                        subscriber -> subscriber.totalPropagationTime().toNanos(), TimeUnit.NANOSECONDS)
+                .description("Time from publishing a revocation event to adding it to the revoked token set")
+                .register(registry);
+    }
+}
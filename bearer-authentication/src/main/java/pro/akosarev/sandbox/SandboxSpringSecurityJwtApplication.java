@@ -1,64 +1,364 @@
 package pro.akosarev.sandbox;
 
-import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.CompressionAlgorithm;
 import com.nimbusds.jose.crypto.DirectDecrypter;
 import com.nimbusds.jose.crypto.DirectEncrypter;
 import com.nimbusds.jose.crypto.MACSigner;
 import com.nimbusds.jose.crypto.MACVerifier;
 import com.nimbusds.jose.jwk.OctetSequenceKey;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.security.config.Customizer;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.text.ParseException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(JwtRuntimeHints.class)
 public class SandboxSpringSecurityJwtApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(SandboxSpringSecurityJwtApplication.class, args);
     }
 
+    @Bean
+    public JwtMetrics jwtMetrics(MeterRegistry meterRegistry) {
+        return new JwtMetrics(meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty("jwt.jdbc.concurrency-limit")
+    public static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(
+            @Value("${jwt.jdbc.concurrency-limit}") int concurrencyLimit,
+            @Value("${jwt.jdbc.maximum-wait:PT2S}") Duration maximumWait,
+            ObjectProvider<MeterRegistry> meterRegistry
+    ) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitingDataSource)) {
+                    var concurrencyLimitingDataSource = new ConcurrencyLimitingDataSource(dataSource,
+                            concurrencyLimit, maximumWait);
+                    meterRegistry.ifAvailable(concurrencyLimitingDataSource::bindTo);
+                    return concurrencyLimitingDataSource;
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean(initMethod = "initialize")
+    @ConditionalOnProperty(value = "jwt.revocation.storage", havingValue = "bucketed")
+    public BucketedDeactivatedTokenStore bucketedDeactivatedTokenStore(
+            JdbcTemplate jdbcTemplate,
+            @Value("${jwt.revocation.bucketed.window:PT6H}") Duration window,
+            @Value("${jwt.revocation.bucketed.buckets:8}") int buckets
+    ) {
+        return new BucketedDeactivatedTokenStore(jdbcTemplate, window, buckets);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "jwt.revocation.in-memory", havingValue = "true")
+    public RevokedTokenSet revokedTokenSet() {
+        return new RevokedTokenSet();
+    }
+
+    @Bean(initMethod = "load")
+    @ConditionalOnProperty(value = "jwt.revocation.in-memory", havingValue = "true")
+    public JdbcRevokedTokenSetLoader revokedTokenSetLoader(
+            JdbcTemplate jdbcTemplate,
+            RevokedTokenSet revokedTokenSet,
+            ObjectProvider<BucketedDeactivatedTokenStore> bucketedDeactivatedTokenStore,
+            ObjectProvider<RevocationEventBus> revocationEventBus,
+            MeterRegistry meterRegistry,
+            @Value("${jwt.revocation.safety-refresh-interval:PT5M}") Duration safetyRefreshInterval
+    ) {
+        var loader = new JdbcRevokedTokenSetLoader(jdbcTemplate, revokedTokenSet);
+        if (bucketedDeactivatedTokenStore.getIfAvailable() != null) {
+            loader.setTableName(BucketedDeactivatedTokenStore.VIEW_NAME);
+        }
+        revocationEventBus.ifAvailable(eventBus -> {
+            loader.setSafetyRefreshInterval(safetyRefreshInterval);
+            var subscriber = new RevokedTokenSetSubscriber(revokedTokenSet, loader::refresh);
+            subscriber.bindTo(meterRegistry);
+            eventBus.subscribe(subscriber);
+        });
+        return loader;
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "jwt.revocation.event-bus", havingValue = "in-process")
+    public InProcessRevocationEventBus inProcessRevocationEventBus() {
+        return new InProcessRevocationEventBus();
+    }
+
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(value = "jwt.revocation.event-bus", havingValue = "postgres")
+    public PostgresRevocationEventBus postgresRevocationEventBus(
+            JdbcTemplate jdbcTemplate,
+            DataSourceProperties dataSourceProperties,
+            @Value("${jwt.revocation.postgres.channel:jwt_revocation}") String channel,
+            @Value("${jwt.revocation.postgres.poll-timeout:500ms}") Duration pollTimeout,
+            @Value("${jwt.revocation.postgres.reconnect-delay:PT5S}") Duration reconnectDelay
+    ) {
+        return new PostgresRevocationEventBus(jdbcTemplate, dataSourceProperties.initializeDataSourceBuilder()
+                .type(SimpleDriverDataSource.class)
+                .build(), channel, pollTimeout, reconnectDelay);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = {"jwt.revocation.in-memory", "jwt.revocation.write-behind.enabled"},
+            havingValue = "true")
+    public WriteBehindDeactivatedTokenWriter writeBehindDeactivatedTokenWriter(
+            JdbcTemplate jdbcTemplate,
+            ObjectProvider<BucketedDeactivatedTokenStore> bucketedDeactivatedTokenStore,
+            @Value("${jwt.revocation.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${jwt.revocation.write-behind.batch-size:500}") int batchSize,
+            @Value("${jwt.revocation.write-behind.flush-interval:200ms}") Duration flushInterval,
+            @Value("${jwt.revocation.write-behind.offer-timeout:50ms}") Duration offerTimeout,
+            ObjectProvider<RevocationEventBus> revocationEventBus
+    ) {
+        DeactivatedTokenWriter delegate = bucketedDeactivatedTokenStore.getIfAvailable();
+        if (delegate == null) {
+            delegate = new JdbcDeactivatedTokenWriter(jdbcTemplate);
+        }
+        var eventBus = revocationEventBus.getIfAvailable();
+        if (eventBus != null) {
+            delegate = new PublishingDeactivatedTokenWriter(delegate, eventBus);
+        }
+        return new WriteBehindDeactivatedTokenWriter(delegate, queueCapacity, batchSize, flushInterval,
+                offerTimeout);
+    }
+
+    @Bean(initMethod = "load")
+    @ConditionalOnProperty(value = "jwt.token-epoch.enabled", havingValue = "true")
+    public JdbcTokenEpochRegistry tokenEpochRegistry(JdbcTemplate jdbcTemplate) {
+        return new JdbcTokenEpochRegistry(jdbcTemplate);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "jwt.refresh-coalescing.enabled", havingValue = "true")
+    public SingleFlightAccessTokenCache refreshAccessTokenCache(
+            @Value("${jwt.refresh-coalescing.reuse-window:PT0S}") Duration reuseWindow,
+            @Value("${jwt.refresh-coalescing.maximum-size:10000}") int maximumSize,
+            @Value("${jwt.refresh-coalescing.maximum-wait:PT5S}") Duration maximumWait
+    ) {
+        var cache = new SingleFlightAccessTokenCache(reuseWindow, maximumSize);
+        cache.setMaximumWait(maximumWait);
+        return cache;
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "jwt.rate-limit.enabled", havingValue = "true")
+    public TokenBucketRateLimiter addressRateLimiter(
+            @Value("${jwt.rate-limit.address.permits-per-second:50}") double permitsPerSecond,
+            @Value("${jwt.rate-limit.address.burst:100}") int burst,
+            @Value("${jwt.rate-limit.maximum-size:100000}") int maximumSize
+    ) {
+        return new TokenBucketRateLimiter("address", permitsPerSecond, burst, maximumSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty(value = "jwt.rate-limit.enabled", havingValue = "true")
+    public TokenBucketRateLimiter subjectRateLimiter(
+            @Value("${jwt.rate-limit.subject.permits-per-second:1}") double permitsPerSecond,
+            @Value("${jwt.rate-limit.subject.burst:10}") int burst,
+            @Value("${jwt.rate-limit.maximum-size:100000}") int maximumSize
+    ) {
+        return new TokenBucketRateLimiter("subject", permitsPerSecond, burst, maximumSize);
+    }
+
+    @Bean
+    @ConditionalOnProperty("jwt.key-ring.location")
+    public JwkSetFileKeyRingLoader jwkSetFileKeyRingLoader(@Value("${jwt.key-ring.location}") Path location)
+            throws IOException, ParseException {
+        return new JwkSetFileKeyRingLoader(location);
+    }
+
     @Bean
     public JwtAuthenticationConfigurer jwtAuthenticationConfigurer(
-            @Value("${jwt.access-token-key}") String accessTokenKey,
-            @Value("${jwt.refresh-token-key}") String refreshTokenKey,
-            JdbcTemplate jdbcTemplate
-    ) throws ParseException, JOSEException {
+            @Value("${jwt.access-token-key:}") String accessTokenKey,
+            @Value("${jwt.refresh-token-key:}") String refreshTokenKey,
+            @Value("${jwt.access-token-cache.maximum-size:0}") int accessTokenCacheMaximumSize,
+            @Value("${jwt.fast-access-token-signing:false}") boolean fastAccessTokenSigning,
+            @Value("${jwt.fast-access-token-verification:false}") boolean fastAccessTokenVerification,
+            @Value("${jwt.batch-issuance.enabled:false}") boolean batchIssuanceEnabled,
+            @Value("${jwt.batch-issuance.concurrency:8}") int batchIssuanceConcurrency,
+            @Value("${jwt.batch-issuance.queue-depth:256}") int batchIssuanceQueueDepth,
+            @Value("${jwt.batch-issuance.service-principal-prefix:svc-}") String batchServicePrincipalPrefix,
+            @Value("${jwt.compact-refresh-tokens.enabled:false}") boolean compactRefreshTokens,
+            @Value("${jwt.rejected-token-cache.time-to-live:PT0S}") Duration rejectedTokenTimeToLive,
+            @Value("${jwt.rejected-token-cache.maximum-size:10000}") int rejectedTokenCacheMaximumSize,
+            JdbcTemplate jdbcTemplate,
+            UserDetailsService userDetailsService,
+            ObjectProvider<RevokedTokenSet> revokedTokenSet,
+            ObjectProvider<BucketedDeactivatedTokenStore> bucketedDeactivatedTokenStore,
+            ObjectProvider<WriteBehindDeactivatedTokenWriter> writeBehindDeactivatedTokenWriter,
+            ObjectProvider<JwkSetFileKeyRingLoader> jwkSetFileKeyRingLoader,
+            ObjectProvider<RevocationEventBus> revocationEventBus,
+            ObjectProvider<TokenEpochRegistry> tokenEpochRegistry,
+            ObjectProvider<SingleFlightAccessTokenCache> refreshAccessTokenCache,
+            @Qualifier("addressRateLimiter") ObjectProvider<TokenBucketRateLimiter> addressRateLimiter,
+            @Qualifier("subjectRateLimiter") ObjectProvider<TokenBucketRateLimiter> subjectRateLimiter,
+            Environment environment,
+            JwtMetrics jwtMetrics,
+            MeterRegistry meterRegistry
+    ) throws ParseException {
+        var keyRingLoader = jwkSetFileKeyRingLoader.getIfAvailable();
+        KeyRings signingKeys;
+        KeyRings encryptionKeys;
+        if (keyRingLoader != null) {
+            signingKeys = keyRingLoader::signingKeyRing;
+            encryptionKeys = keyRingLoader::encryptionKeyRing;
+        } else {
+            signingKeys = KeyRings.of(OctetSequenceKey.parse(accessTokenKey));
+            encryptionKeys = KeyRings.of(OctetSequenceKey.parse(refreshTokenKey));
+        }
+
+        var hmacKeys = fastAccessTokenSigning || fastAccessTokenVerification ?
+                signingKeys.keyRing(HmacKey::of) : null;
+        Function<String, Token> accessTokenStringDeserializer = fastAccessTokenVerification ?
+                new FastAccessTokenJwsStringDeserializer(hmacKeys) :
+                new AccessTokenJwsStringDeserializer(signingKeys.keyRing(MACVerifier::new));
+        if (accessTokenCacheMaximumSize > 0) {
+            var cachingTokenStringDeserializer = new CachingTokenStringDeserializer(accessTokenStringDeserializer,
+                    accessTokenCacheMaximumSize);
+            cachingTokenStringDeserializer.setMetrics(jwtMetrics);
+            cachingTokenStringDeserializer.bindTo(meterRegistry);
+            accessTokenStringDeserializer = cachingTokenStringDeserializer;
+        }
+
+        Function<Token, String> accessTokenStringSerializer = fastAccessTokenSigning ?
+                new FastAccessTokenJwsStringSerializer(hmacKeys) :
+                new AccessTokenJwsStringSerializer(signingKeys.keyRing(MACSigner::new));
+
+        var refreshTokenStringSerializer = new RefreshTokenJweStringSerializer(
+                encryptionKeys.keyRing(DirectEncrypter::new));
+        var refreshTokenStringDeserializer = new RefreshTokenJweStringDeserializer(
+                encryptionKeys.keyRing(DirectDecrypter::new));
+        if (compactRefreshTokens) {
+            refreshTokenStringSerializer.setCompressionAlgorithm(CompressionAlgorithm.DEF);
+            var authorityDictionaries = Binder.get(environment)
+                    .bind("jwt.compact-refresh-tokens.authority-dictionaries",
+                            Bindable.mapOf(Integer.class, String[].class))
+                    .orElse(Map.of())
+                    .entrySet().stream()
+                    .map(entry -> AuthorityDictionary.forRefreshTokens(entry.getKey(), List.of(entry.getValue())))
+                    .sorted(Comparator.comparingInt(AuthorityDictionary::version).reversed())
+                    .toArray(AuthorityDictionary[]::new);
+            if (authorityDictionaries.length > 0) {
+                refreshTokenStringSerializer.setAuthorityDictionary(authorityDictionaries[0]);
+                refreshTokenStringDeserializer.setAuthorityDictionaries(authorityDictionaries);
+            }
+        }
+
+        RejectedTokenCache rejectedTokenCache = null;
+        if (rejectedTokenTimeToLive.isPositive()) {
+            rejectedTokenCache = new RejectedTokenCache(rejectedTokenTimeToLive, rejectedTokenCacheMaximumSize);
+            rejectedTokenCache.bindTo(meterRegistry);
+        }
+
+        DeactivatedTokenWriter deactivatedTokenWriter = writeBehindDeactivatedTokenWriter.getIfAvailable();
+        if (deactivatedTokenWriter == null) {
+            deactivatedTokenWriter = bucketedDeactivatedTokenStore.getIfAvailable();
+            var eventBus = revocationEventBus.getIfAvailable();
+            if (eventBus != null) {
+                deactivatedTokenWriter = new PublishingDeactivatedTokenWriter(deactivatedTokenWriter != null ?
+                        deactivatedTokenWriter : new JdbcDeactivatedTokenWriter(jdbcTemplate), eventBus);
+            }
+        }
+
         return JwtAuthenticationConfigurer.builder()
-                .accessTokenStringSerializer(new AccessTokenJwsStringSerializer(
-                        new MACSigner(OctetSequenceKey.parse(accessTokenKey))
-                ))
-                .refreshTokenStringSerializer(new RefreshTokenJweStringSerializer(
-                        new DirectEncrypter(OctetSequenceKey.parse(refreshTokenKey))
-                ))
-                .accessTokenStringDeserializer(new AccessTokenJwsStringDeserializer(
-                        new MACVerifier(OctetSequenceKey.parse(accessTokenKey))
-                ))
-                .refreshTokenStringDeserializer(new RefreshTokenJweStringDeserializer(
-                        new DirectDecrypter(OctetSequenceKey.parse(refreshTokenKey))
-                ))
+                .accessTokenStringSerializer(accessTokenStringSerializer)
+                .refreshTokenStringSerializer(refreshTokenStringSerializer)
+                .accessTokenStringDeserializer(accessTokenStringDeserializer)
+                .refreshTokenStringDeserializer(refreshTokenStringDeserializer)
                 .jdbcTemplate(jdbcTemplate)
+                .revokedTokenSet(revokedTokenSet.getIfAvailable())
+                .tokenRevocationChecker(bucketedDeactivatedTokenStore.getIfAvailable())
+                .deactivatedTokenWriter(deactivatedTokenWriter)
+                .refreshAccessTokenCache(refreshAccessTokenCache.getIfAvailable())
+                .tokenEpochRegistry(tokenEpochRegistry.getIfAvailable())
+                .addressRateLimiter(addressRateLimiter.getIfAvailable())
+                .subjectRateLimiter(subjectRateLimiter.getIfAvailable())
+                .rejectedTokenCache(rejectedTokenCache)
+                .metrics(jwtMetrics)
+                .batchUserDetailsService(batchIssuanceEnabled ? userDetailsService : null)
+                .batchExecutor(batchIssuanceEnabled ?
+                        batchIssuanceExecutor(batchIssuanceConcurrency, batchIssuanceQueueDepth) : null)
+                .batchServicePrincipalPrefix(batchServicePrincipalPrefix)
         .build();
     }
 
+    /**
+     * Loading subjects blocks on the database, so batches are issued on a pool of their own rather than the
+     * common pool. Once its queue is full the request thread issues the subject itself.
+     */
+    private static Executor batchIssuanceExecutor(int concurrency, int queueDepth) {
+        var executor = new ThreadPoolExecutor(concurrency, concurrency, 1, TimeUnit.MINUTES,
+                new ArrayBlockingQueue<>(queueDepth), Thread.ofPlatform()
+                .name("batch-issuance-", 0)
+                .daemon()
+                .factory(), new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${jwt.password-hashing.concurrency:4}") int concurrency,
+            @Value("${jwt.password-hashing.queue-depth:64}") int queueDepth,
+            @Value("${jwt.password-hashing.maximum-wait:PT2S}") Duration maximumWait
+    ) {
+        return new BoundedPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder(),
+                concurrency, queueDepth, maximumWait);
+    }
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http,
-                                                   JwtAuthenticationConfigurer jwtAuthenticationConfigurer
+                                                   JwtAuthenticationConfigurer jwtAuthenticationConfigurer,
+                                                   @Value("${jwt.password-hashing.retry-after:PT1S}") Duration retryAfter
     ) throws Exception {
         http.apply(jwtAuthenticationConfigurer);
 
+        var basicAuthenticationEntryPoint = new BasicAuthenticationEntryPoint();
+        basicAuthenticationEntryPoint.setRealmName("Realm");
+
         return http
-                .httpBasic(Customizer.withDefaults())
+                .httpBasic(httpBasic -> httpBasic.authenticationEntryPoint(
+                        new LoadSheddingAuthenticationEntryPoint(basicAuthenticationEntryPoint, retryAfter)))
                 .sessionManagement(sessionManagement ->
                         sessionManagement.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authorizeHttpRequests ->
@@ -70,16 +370,25 @@ public class SandboxSpringSecurityJwtApplication {
     }
 
     @Bean
-    public UserDetailsService userDetailsService(JdbcTemplate jdbcTemplate) {
-        return username -> jdbcTemplate.query("select * from t_user where c_username = ?",
-                (rs, i) -> User.builder()
-                        .username(rs.getString("c_username"))
-                        .password(rs.getString("c_password"))
-                        .authorities(
-                                jdbcTemplate.query("select c_authority from t_user_authority where id_user = ?",
-                                        (rs1, i1) ->
-                                                new SimpleGrantedAuthority(rs1.getString("c_authority")),
-                                        rs.getInt("id")))
-                        .build(), username).stream().findFirst().orElse(null);
+    public TtlCachingUserDetailsService userDetailsService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${jwt.user-cache.time-to-live:PT1M}") Duration timeToLive,
+            @Value("${jwt.user-cache.maximum-size:10000}") int maximumSize
+    ) {
+        return new TtlCachingUserDetailsService(new JdbcJoinUserDetailsService(jdbcTemplate), timeToLive,
+                maximumSize);
+    }
+
+    private interface KeyRings {
+        <T> KeyRing<T> keyRing(KeyRing.Factory<T> factory);
+
+        static KeyRings of(OctetSequenceKey key) {
+            return new KeyRings() {
+                @Override
+                public <T> KeyRing<T> keyRing(KeyRing.Factory<T> factory) {
+                    return new KeyRing<>(factory, List.of(key));
+                }
+            };
+        }
     }
 }
@@ -0,0 +1,163 @@
+package pro.akosarev.sandbox;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Setter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent refreshes of the same refresh token, up to a maximum number of refresh tokens.
+ * <p>
+ * The first request for a refresh token id issues the access token, requests for the same id arriving
+ * while it is in progress wait for it and get the same access token instead of signing their own.
+ * An issued access token is also handed out for {@code reuseWindow} after it was issued, a zero window
+ * only coalesces requests that overlap. A failed issue is not cached, so the next request tries again.
+ * A request waits for at most {@code maximumWait} and then issues its own access token.
+ */
+public class SingleFlightAccessTokenCache implements MeterBinder {
+    private final Duration reuseWindow;
+
+    private final Cache<UUID, Flight> flights;
+
+    private final LongAdder issued = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    @Setter
+    private Duration maximumWait = Duration.ofSeconds(5);
+
+    @Setter
+    private Clock clock = Clock.systemUTC();
+
+    public SingleFlightAccessTokenCache(Duration reuseWindow, int maximumSize) {
+        this.reuseWindow = reuseWindow;
+        this.flights = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.writing((UUID id, Flight flight) ->
+                        flight.reusableFor(this.clock.instant(), this.reuseWindow)))
+                .ticker(new ClockTicker(() -> this.clock))
+                .executor(Runnable::run)
+                .build();
+    }
+
+    public Tokens get(Token refreshToken, Function<Token, Tokens> issuer) {
+        var now = this.clock.instant();
+        var created = new Flight();
+        var flight = this.flights.asMap().compute(refreshToken.id(),
+                (id, current) -> current != null && current.isReusable(now, this.reuseWindow) ? current : created);
+        if (flight != created) {
+            try {
+                var tokens = flight.await(this.maximumWait);
+                this.coalesced.increment();
+                return tokens;
+            } catch (TimeoutException exception) {
+                this.issued.increment();
+                return issuer.apply(refreshToken);
+            }
+        }
+
+        this.issued.increment();
+        try {
+            var tokens = issuer.apply(refreshToken);
+            flight.complete(tokens, this.clock.instant());
+            if (this.reuseWindow.isZero()) {
+                this.flights.asMap().remove(refreshToken.id(), flight);
+            } else {
+                // starts the reuse window of the flight now that it is issued
+                this.flights.asMap().computeIfPresent(refreshToken.id(), (id, current) -> current);
+            }
+            return tokens;
+        } catch (Throwable throwable) {
+            this.flights.asMap().remove(refreshToken.id(), flight);
+            flight.fail(throwable);
+            throw throwable;
+        }
+    }
+
+    public long issuedCount() {
+        return this.issued.sum();
+    }
+
+    public long coalescedCount() {
+        return this.coalesced.sum();
+    }
+
+    public int size() {
+        return (int) this.flights.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.refresh-cache.requests", this, SingleFlightAccessTokenCache::issuedCount)
+                .description("Refreshes that signed a new access token")
+                .tag("result", "issued")
+                .register(registry);
+        FunctionCounter.builder("jwt.refresh-cache.requests", this, SingleFlightAccessTokenCache::coalescedCount)
+                .description("Refreshes that got an access token issued for another request")
+                .tag("result", "coalesced")
+                .register(registry);
+        Gauge.builder("jwt.refresh-cache.size", this, SingleFlightAccessTokenCache::size)
+                .register(registry);
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<Tokens> tokens = new CompletableFuture<>();
+
+        private volatile Instant issuedAt;
+
+        boolean isReusable(Instant now, Duration reuseWindow) {
+            var issuedAt = this.issuedAt;
+            return issuedAt == null ? !this.tokens.isCompletedExceptionally() : issuedAt.plus(reuseWindow).isAfter(now);
+        }
+
+        Duration reusableFor(Instant now, Duration reuseWindow) {
+            var issuedAt = this.issuedAt;
+            if (issuedAt == null) {
+                return ChronoUnit.FOREVER.getDuration();
+            }
+            var remaining = Duration.between(now, issuedAt.plus(reuseWindow));
+            return remaining.isNegative() ? Duration.ZERO : remaining;
+        }
+
+        void complete(Tokens tokens, Instant issuedAt) {
+            this.issuedAt = issuedAt;
+            this.tokens.complete(tokens);
+        }
+
+        void fail(Throwable throwable) {
+            this.tokens.completeExceptionally(throwable);
+        }
+
+        Tokens await(Duration maximumWait) throws TimeoutException {
+            try {
+                return this.tokens.get(maximumWait.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException exception) {
+                if (exception.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                } else if (exception.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(exception.getCause());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the access token", exception);
+            }
+        }
+    }
+}
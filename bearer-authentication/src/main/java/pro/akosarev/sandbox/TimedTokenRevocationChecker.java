@@ -0,0 +1,24 @@
+package pro.akosarev.sandbox;
+
+import java.util.UUID;
+
+public class TimedTokenRevocationChecker implements TokenRevocationChecker {
+    private final TokenRevocationChecker delegate;
+
+    private final JwtMetrics metrics;
+
+    public TimedTokenRevocationChecker(TokenRevocationChecker delegate, JwtMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean isRevoked(UUID tokenId) {
+        var startedAt = System.nanoTime();
+        try {
+            return this.delegate.isRevoked(tokenId);
+        } finally {
+            this.metrics.recordRevocationLookup(System.nanoTime() - startedAt);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key, {@code permitsPerSecond} refilled continuously up to {@code burst} permits.
+ * <p>
+ * A bucket is a single {@link AtomicLong} with the time at which it will be full again (the generic cell
+ * rate algorithm), so taking a permit is one compare-and-set and never blocks. The buckets are spread over
+ * stripes of at most {@code maximumSize / stripes} keys each. A bucket that is full is no different from a new
+ * one, so when a stripe is full its full buckets are evicted first. Only if that is not enough other buckets
+ * are evicted, which lets their keys start over with a full bucket. The meters of the limiter are tagged
+ * with its {@code name}.
+ */
+public class TokenBucketRateLimiter implements MeterBinder {
+    private static final int STRIPES = 64;
+
+    private final String name;
+
+    private final long permitIntervalNanos;
+
+    private final long burstNanos;
+
+    private final int maximumStripeSize;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder evicted = new LongAdder();
+
+    @Setter
+    private LongSupplier nanoClock = System::nanoTime;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst, int maximumSize) {
+        this("default", permitsPerSecond, burst, maximumSize);
+    }
+
+    public TokenBucketRateLimiter(String name, double permitsPerSecond, int burst, int maximumSize) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Permits per second and burst must be positive");
+        }
+        this.name = name;
+        this.permitIntervalNanos = Math.max(1, (long) (Duration.ofSeconds(1).toNanos() / permitsPerSecond));
+        this.burstNanos = this.permitIntervalNanos * burst;
+        this.maximumStripeSize = Math.max(1, maximumSize / STRIPES);
+        for (var i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes a permit of the key's bucket.
+     *
+     * @return {@code 0} if a permit was taken, otherwise the nanoseconds until the next permit is available
+     */
+    public long acquire(String key) {
+        var wait = this.take(key, this.nanoClock.getAsLong());
+        if (wait > 0) {
+            this.rejected.increment();
+        }
+        return wait;
+    }
+
+    /**
+     * Checks whether the key's bucket has a permit without taking it, for limiters whose permits are
+     * taken by {@link #consume(String)} once the outcome of a request is known.
+     *
+     * @return {@code 0} if a permit is available, otherwise the nanoseconds until the next permit is available
+     */
+    public long check(String key) {
+        var bucket = this.stripe(key).buckets.get(key);
+        if (bucket == null) {
+            return 0;
+        }
+        var now = this.nanoClock.getAsLong();
+        var wait = Math.max(bucket.get(), now) + this.permitIntervalNanos - now - this.burstNanos;
+        if (wait > 0) {
+            this.rejected.increment();
+            return wait;
+        }
+        return 0;
+    }
+
+    /**
+     * Takes a permit of the key's bucket if one is available.
+     */
+    public void consume(String key) {
+        this.take(key, this.nanoClock.getAsLong());
+    }
+
+    public long rejectionCount() {
+        return this.rejected.sum();
+    }
+
+    public long evictionCount() {
+        return this.evicted.sum();
+    }
+
+    public int size() {
+        var size = 0;
+        for (var stripe : this.stripes) {
+            size += stripe.buckets.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.rate-limit.rejections", this, TokenBucketRateLimiter::rejectionCount)
+                .description("Requests rejected with 429 before their credentials were checked")
+                .tag("key", this.name)
+                .register(registry);
+        FunctionCounter.builder("jwt.rate-limit.evictions", this, TokenBucketRateLimiter::evictionCount)
+                .tag("key", this.name)
+                .register(registry);
+        Gauge.builder("jwt.rate-limit.buckets", this, TokenBucketRateLimiter::size)
+                .tag("key", this.name)
+                .register(registry);
+    }
+
+    private long take(String key, long now) {
+        var stripe = this.stripe(key);
+        var bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            if (stripe.buckets.size() >= this.maximumStripeSize) {
+                this.evict(stripe, now);
+            }
+            bucket = stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            var fullAt = bucket.get();
+            var nextFullAt = Math.max(fullAt, now) + this.permitIntervalNanos;
+            var wait = nextFullAt - now - this.burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, nextFullAt)) {
+                return 0;
+            }
+        }
+    }
+
+    private Stripe stripe(String key) {
+        return this.stripes[(key.hashCode() ^ key.hashCode() >>> 16) & (STRIPES - 1)];
+    }
+
+    private void evict(Stripe stripe, long now) {
+        // one thread evicts a stripe at a time, the others go on and may overshoot it by a few keys
+        if (!stripe.evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            var evicted = 0;
+            var iterator = stripe.buckets.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().get() <= now) {
+                    iterator.remove();
+                    evicted++;
+                }
+            }
+            // evict down to three quarters, so the next eviction is only after as many new keys
+            var retainedSize = this.maximumStripeSize * 3 / 4;
+            iterator = stripe.buckets.values().iterator();
+            while (stripe.buckets.size() > retainedSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evicted++;
+            }
+            this.evicted.add(evicted);
+        } finally {
+            stripe.evicting.set(false);
+        }
+    }
+
+    private static final class Stripe {
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+        private final AtomicBoolean evicting = new AtomicBoolean();
+    }
+}
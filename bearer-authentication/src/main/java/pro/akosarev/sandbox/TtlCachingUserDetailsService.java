@@ -0,0 +1,106 @@
+package pro.akosarev.sandbox;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Setter;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches users loaded by the delegate for a fixed time to live, up to a maximum number of users.
+ * <p>
+ * Callers always get a copy of the cached user, because the authentication manager erases
+ * the credentials of the user it authenticated. Cached users are dropped with {@link #invalidate(String)}
+ * or by publishing a {@link UserAuthoritiesChangedEvent} when their authorities change.
+ */
+public class TtlCachingUserDetailsService implements UserDetailsService, MeterBinder {
+    private final UserDetailsService delegate;
+
+    private final Cache<String, UserDetails> users;
+
+    private final LongAdder loadNanos = new LongAdder();
+
+    @Setter
+    private Clock clock = Clock.systemUTC();
+
+    public TtlCachingUserDetailsService(UserDetailsService delegate, Duration timeToLive, int maximumSize) {
+        this.delegate = delegate;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .ticker(new ClockTicker(() -> this.clock))
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        var cached = this.users.getIfPresent(username);
+        if (cached != null) {
+            return User.withUserDetails(cached).build();
+        }
+
+        var startedAt = System.nanoTime();
+        var user = this.delegate.loadUserByUsername(username);
+        this.loadNanos.add(System.nanoTime() - startedAt);
+
+        this.users.put(username, User.withUserDetails(user).build());
+        return user;
+    }
+
+    public void invalidate(String username) {
+        this.users.invalidate(username);
+    }
+
+    public void invalidateAll() {
+        this.users.invalidateAll();
+    }
+
+    @EventListener
+    public void onUserAuthoritiesChanged(UserAuthoritiesChangedEvent event) {
+        this.invalidate(event.username());
+    }
+
+    public long hitCount() {
+        return this.users.stats().hitCount();
+    }
+
+    public long missCount() {
+        return this.users.stats().missCount();
+    }
+
+    public Duration totalLoadTime() {
+        return Duration.ofNanos(this.loadNanos.sum());
+    }
+
+    public int size() {
+        return (int) this.users.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.user-cache.requests", this, TtlCachingUserDetailsService::hitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionTimer.builder("jwt.user.load", this, TtlCachingUserDetailsService::missCount,
+                        service -> service.totalLoadTime().toNanos(), TimeUnit.NANOSECONDS)
+                .description("Users loaded from the database on a cache miss")
+                .register(registry);
+        Gauge.builder("jwt.user-cache.size", this, TtlCachingUserDetailsService::size)
+                .register(registry);
+    }
+}
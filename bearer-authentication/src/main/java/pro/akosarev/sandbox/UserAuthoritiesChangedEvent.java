@@ -0,0 +1,4 @@
+package pro.akosarev.sandbox;
+
+public record UserAuthoritiesChangedEvent(String username) {
+}
@@ -0,0 +1,158 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Queues deactivated tokens and hands them to the delegate writer in batches,
+ * flushed when a batch is full or its time window has passed.
+ * <p>
+ * The writer does not make a revocation visible by itself, it is meant to be used together
+ * with a {@link RevokedTokenSet} that is updated on the request thread. When the queue is full
+ * the caller waits for up to {@code offerTimeout} and then writes the token synchronously.
+ * A batch the delegate fails to write is written again token by token.
+ * Queued tokens are flushed on {@link #close()}, tokens deactivated after that are written synchronously.
+ */
+public class WriteBehindDeactivatedTokenWriter implements DeactivatedTokenWriter, MeterBinder, AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindDeactivatedTokenWriter.class);
+
+    private final DeactivatedTokenWriter delegate;
+
+    private final BlockingQueue<DeactivatedToken> queue;
+
+    private final int batchSize;
+
+    private final Duration flushInterval;
+
+    private final Duration offerTimeout;
+
+    private final Thread flusher;
+
+    // offers hold the read lock, so none is still in flight once close has taken the write lock
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running = true;
+
+    public WriteBehindDeactivatedTokenWriter(DeactivatedTokenWriter delegate, int queueCapacity, int batchSize,
+                                             Duration flushInterval, Duration offerTimeout) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.offerTimeout = offerTimeout;
+        this.flusher = Thread.ofPlatform()
+                .name("deactivated-token-writer")
+                .daemon()
+                .start(this::run);
+    }
+
+    @Override
+    public void deactivate(UUID tokenId, Instant keepUntil) {
+        var token = new DeactivatedToken(tokenId, keepUntil);
+        this.closeLock.readLock().lock();
+        try {
+            if (this.running && this.queue.offer(token, this.offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.closeLock.readLock().unlock();
+        }
+        this.delegate.deactivate(tokenId, keepUntil);
+    }
+
+    public int queueSize() {
+        return this.queue.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jwt.revocation.write-behind.queue.size", this, WriteBehindDeactivatedTokenWriter::queueSize)
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        this.closeLock.writeLock().lock();
+        try {
+            this.running = false;
+        } finally {
+            this.closeLock.writeLock().unlock();
+        }
+
+        if (!this.flusher.join(this.flushInterval.multipliedBy(10))) {
+            LOGGER.warn("Deactivated tokens are still being written after {}, interrupting the writer",
+                    this.flushInterval.multipliedBy(10));
+            this.flusher.interrupt();
+            this.flusher.join();
+        }
+
+        var remaining = new ArrayList<DeactivatedToken>();
+        this.queue.drainTo(remaining);
+        this.flush(remaining);
+    }
+
+    private void run() {
+        var batch = new ArrayList<DeactivatedToken>(this.batchSize);
+        while (this.running || !this.queue.isEmpty()) {
+            try {
+                var first = this.queue.poll(this.flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                var deadline = System.nanoTime() + this.flushInterval.toNanos();
+                while (batch.size() < this.batchSize) {
+                    var next = this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                this.running = false;
+                this.flush(batch);
+                return;
+            }
+
+            this.flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<DeactivatedToken> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            this.delegate.deactivateAll(List.copyOf(batch));
+        } catch (RuntimeException exception) {
+            LOGGER.warn("Failed to write {} deactivated tokens as a batch, writing them one by one",
+                    batch.size(), exception);
+            for (var token : batch) {
+                try {
+                    this.delegate.deactivate(token.id(), token.keepUntil());
+                } catch (RuntimeException tokenException) {
+                    LOGGER.error("Failed to write deactivated token {}", token.id(), tokenException);
+                }
+            }
+        }
+    }
+}
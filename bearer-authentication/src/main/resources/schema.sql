@@ -14,6 +14,18 @@ create table t_user_authority
 
 create table t_deactivated_token
 (
-    id           uuid primary key,
-    c_keep_until timestamp not null check ( c_keep_until > now() )
-);
\ No newline at end of file
+    id               uuid primary key,
+    c_keep_until     timestamp not null check ( c_keep_until > now() ),
+    c_deactivated_at timestamp not null default now()
+);
+
+create index i_deactivated_token_deactivated_at on t_deactivated_token (c_deactivated_at);
+
+create table t_token_epoch
+(
+    c_subject    varchar primary key,
+    c_epoch      bigint    not null,
+    c_updated_at timestamp not null default now()
+);
+
+create index i_token_epoch_updated_at on t_token_epoch (c_updated_at);
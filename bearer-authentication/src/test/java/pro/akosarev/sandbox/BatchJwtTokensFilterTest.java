@@ -0,0 +1,180 @@
+package pro.akosarev.sandbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class BatchJwtTokensFilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final BatchJwtTokensFilter filter = new BatchJwtTokensFilter(new InMemoryUserDetailsManager(
+            User.withUsername("j.jameson").password("{noop}password").authorities("ROLE_MANAGER").build(),
+            User.withUsername("d.daniels").password("{noop}password").disabled(true).build()));
+
+    @Test
+    void doFilter_ServicePrincipal_StreamsOneLinePerSubject() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        this.filter.doFilter(request("[\"j.jameson\",\"d.daniels\",\"unknown\"]"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).startsWith("application/x-ndjson");
+        var issued = Arrays.stream(response.getContentAsString().split("\n"))
+                .map(this::readIssuedTokens)
+                .toList();
+        assertThat(issued).extracting(IssuedTokens::subject, IssuedTokens::error)
+                .containsExactlyInAnyOrder(
+                        tuple("j.jameson", null),
+                        tuple("d.daniels", "subject_disabled"),
+                        tuple("unknown", "unknown_subject"));
+        assertThat(issued).filteredOn(tokens -> tokens.error() == null).singleElement().satisfies(tokens -> {
+            assertThat(tokens.accessToken()).isNotBlank();
+            assertThat(tokens.refreshToken()).isNotBlank();
+        });
+    }
+
+    @Test
+    void doFilter_ExecutorSet_IssuesSubjectsOnExecutor() throws Exception {
+        var executions = new AtomicInteger();
+        this.filter.setExecutor(command -> {
+            executions.incrementAndGet();
+            command.run();
+        });
+
+        this.filter.doFilter(request("[\"j.jameson\",\"unknown\"]"), new MockHttpServletResponse(),
+                new MockFilterChain());
+
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void doFilter_MalformedJson_RespondsBadRequest() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        this.filter.doFilter(request("[\"j.jameson\","), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void doFilter_NotAnArrayOfStrings_RespondsBadRequest() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        this.filter.doFilter(request("{\"subject\":\"j.jameson\"}"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void doFilter_NullBody_RespondsBadRequest() throws Exception {
+        var response = new MockHttpServletResponse();
+
+        this.filter.doFilter(request("null"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void doFilter_BatchTooLarge_RespondsBadRequest() throws Exception {
+        this.filter.setMaximumBatchSize(1);
+        var response = new MockHttpServletResponse();
+
+        this.filter.doFilter(request("[\"j.jameson\",\"unknown\"]"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(response.getErrorMessage()).isEqualTo("At most 1 subjects are allowed");
+    }
+
+    @Test
+    void doFilter_NotServicePrincipal_ThrowsAccessDeniedException() {
+        var request = request("[\"j.jameson\"]",
+                new TestingAuthenticationToken("j.jameson", "password", "JWT_BATCH_ISSUE"));
+
+        assertThatThrownBy(() -> this.filter.doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain()))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void doFilter_ServicePrincipalPrefixSet_AcceptsMatchingPrincipal() throws Exception {
+        this.filter.setServicePrincipalPrefix("batch-");
+        var response = new MockHttpServletResponse();
+
+        this.filter.doFilter(request("[\"j.jameson\"]",
+                new TestingAuthenticationToken("batch-exporter", "secret", "JWT_BATCH_ISSUE")),
+                response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void doFilter_ServicePrincipalWithoutAuthority_ThrowsAccessDeniedException() {
+        var request = request("[\"j.jameson\"]", new TestingAuthenticationToken("svc-exporter", "secret"));
+
+        assertThatThrownBy(() -> this.filter.doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain()))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void doFilter_BearerTokenAuthentication_ThrowsAccessDeniedException() {
+        var authentication = new PreAuthenticatedAuthenticationToken("svc-exporter", "token",
+                new TestingAuthenticationToken("svc-exporter", "secret", "JWT_BATCH_ISSUE").getAuthorities());
+        var request = request("[\"j.jameson\"]", authentication);
+
+        assertThatThrownBy(() -> this.filter.doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain()))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void doFilter_OtherPath_ContinuesChain() throws Exception {
+        var request = request("[\"j.jameson\"]");
+        request.setServletPath("/jwt/tokens");
+        var filterChain = new MockFilterChain();
+
+        this.filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        assertThat(filterChain.getRequest()).isSameAs(request);
+    }
+
+    private static MockHttpServletRequest request(String body) {
+        return request(body, new TestingAuthenticationToken("svc-exporter", "secret", "JWT_BATCH_ISSUE"));
+    }
+
+    private static MockHttpServletRequest request(String body, Authentication authentication) {
+        var request = new MockHttpServletRequest("POST", "/jwt/tokens/batch");
+        request.setServletPath("/jwt/tokens/batch");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        new RequestAttributeSecurityContextRepository()
+                .saveContext(new SecurityContextImpl(authentication), request, null);
+        return request;
+    }
+
+    private IssuedTokens readIssuedTokens(String line) {
+        try {
+            return this.objectMapper.readValue(line, IssuedTokens.class);
+        } catch (Exception exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
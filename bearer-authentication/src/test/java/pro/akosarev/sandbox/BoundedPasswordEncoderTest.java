@@ -0,0 +1,151 @@
+package pro.akosarev.sandbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private final BlockingPasswordEncoder delegate = new BlockingPasswordEncoder();
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        this.delegate.release.countDown();
+        this.encoder.close();
+    }
+
+    @Test
+    void matches_IdleExecutor_DelegatesVerification() {
+        this.delegate.release.countDown();
+        this.encoder = new BoundedPasswordEncoder(this.delegate, 2, 4, Duration.ofSeconds(5));
+
+        assertThat(this.encoder.matches("password", "password")).isTrue();
+        assertThat(this.encoder.matches("password", "other")).isFalse();
+        assertThat(this.encoder.encode("password")).isEqualTo("password");
+        assertThat(this.encoder.upgradeEncoding("password")).isFalse();
+        assertThat(this.encoder.verificationCount()).isEqualTo(2);
+        assertThat(this.encoder.rejectionCount()).isZero();
+    }
+
+    @Test
+    void matches_DelegateThrows_RethrowsException() {
+        this.encoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder() {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                throw new IllegalArgumentException("Encoded password does not look like BCrypt");
+            }
+        }, 1, 1, Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> this.encoder.matches("password", "password"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Encoded password does not look like BCrypt");
+    }
+
+    @Test
+    void matches_QueueFull_ThrowsPasswordHashingRejectedException() throws Exception {
+        this.encoder = new BoundedPasswordEncoder(this.delegate, 1, 1, Duration.ofSeconds(5));
+        var running = this.verify();
+        assertThat(this.delegate.started.await(5, TimeUnit.SECONDS)).isTrue();
+        var queued = this.verify();
+        awaitQueueSize(this.encoder, 1);
+
+        assertThatThrownBy(() -> this.encoder.matches("password", "password"))
+                .isInstanceOf(PasswordHashingRejectedException.class)
+                .hasMessage("Password verification queue is full");
+        this.delegate.release.countDown();
+
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(this.encoder.rejectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void matches_WaitedInQueueTooLong_SkipsHashing() throws Exception {
+        this.encoder = new BoundedPasswordEncoder(this.delegate, 1, 1, Duration.ofMillis(50));
+        var running = this.verify();
+        assertThat(this.delegate.started.await(5, TimeUnit.SECONDS)).isTrue();
+        var queued = this.verify();
+        awaitQueueSize(this.encoder, 1);
+
+        Thread.sleep(100);
+        this.delegate.release.countDown();
+
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> queued.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(PasswordHashingRejectedException.class);
+        assertThat(this.delegate.verifications).hasValue(1);
+        assertThat(this.encoder.verificationCount()).isEqualTo(1);
+        assertThat(this.encoder.rejectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void matches_HashingLongerThanMaximumWait_ReturnsResult() {
+        this.encoder = new BoundedPasswordEncoder(new BlockingPasswordEncoder() {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        }, 1, 1, Duration.ofMillis(20));
+
+        assertThat(this.encoder.matches("password", "password")).isTrue();
+        assertThat(this.encoder.totalHashTime()).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+        assertThat(this.encoder.rejectionCount()).isZero();
+    }
+
+    private FutureTask<Boolean> verify() {
+        var verification = new FutureTask<>(() -> this.encoder.matches("password", "password"));
+        Thread.ofPlatform().start(verification);
+        return verification;
+    }
+
+    private static void awaitQueueSize(BoundedPasswordEncoder encoder, int size) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (encoder.queueSize() != size) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Queue never reached " + size);
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static class BlockingPasswordEncoder implements PasswordEncoder {
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final AtomicInteger verifications = new AtomicInteger();
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            this.verifications.incrementAndGet();
+            this.started.countDown();
+            try {
+                this.release.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString().equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package pro.akosarev.sandbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BucketedDeactivatedTokenStoreTest {
+
+    private static final Duration WINDOW = Duration.ofHours(1);
+
+    private JdbcTemplate jdbcTemplate;
+
+    private BucketedDeactivatedTokenStore store;
+
+    private Instant start;
+
+    @BeforeEach
+    void setUp() {
+        this.jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:%s;MODE=PostgreSQL;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID())));
+        this.store = new BucketedDeactivatedTokenStore(this.jdbcTemplate, WINDOW, 4);
+        this.store.initialize();
+        // a window in the future, so the writer does not skip the tokens as already expired
+        this.start = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(WINDOW);
+        this.setTime(this.start);
+    }
+
+    @Test
+    void deactivate_TokenWithinHorizon_WritesTokenToBucketOfItsWindow() {
+        var tokenId = UUID.randomUUID();
+
+        this.store.deactivate(tokenId, this.start.plus(Duration.ofMinutes(150)));
+
+        assertThat(this.store.isRevoked(tokenId)).isTrue();
+        assertThat(this.count("t_deactivated_token_%d".formatted(this.bucketOf(this.start.plus(WINDOW.multipliedBy(2))))))
+                .isEqualTo(1);
+        assertThat(this.count("t_deactivated_token_overflow")).isZero();
+    }
+
+    @Test
+    void purgeExpired_WindowIsOver_TruncatesBucketOfPreviousWindowOnly() {
+        var expiring = UUID.randomUUID();
+        var remaining = UUID.randomUUID();
+        this.store.deactivateAll(List.of(
+                new DeactivatedToken(expiring, this.start.plus(Duration.ofMinutes(30))),
+                new DeactivatedToken(remaining, this.start.plus(Duration.ofMinutes(90)))));
+
+        this.setTime(this.start.plus(Duration.ofMinutes(70)));
+        this.store.purgeExpired();
+
+        assertThat(this.count("t_deactivated_token_%d".formatted(this.bucketOf(this.start)))).isZero();
+        assertThat(this.store.isRevoked(expiring)).isFalse();
+        assertThat(this.store.isRevoked(remaining)).isTrue();
+    }
+
+    @Test
+    void deactivate_WindowsWrappedAround_ReusesTruncatedBucket() {
+        var previous = UUID.randomUUID();
+        this.store.deactivate(previous, this.start.plus(Duration.ofMinutes(30)));
+
+        this.setTime(this.start.plus(WINDOW).plus(Duration.ofMinutes(5)));
+        this.store.purgeExpired();
+        this.setTime(this.start.plus(WINDOW.multipliedBy(3)));
+        var next = UUID.randomUUID();
+        this.store.deactivate(next, this.start.plus(WINDOW.multipliedBy(4)).plus(Duration.ofMinutes(30)));
+
+        assertThat(this.bucketOf(this.start.plus(WINDOW.multipliedBy(4)))).isEqualTo(this.bucketOf(this.start));
+        assertThat(this.jdbcTemplate.queryForList("select id from t_deactivated_token_%d"
+                .formatted(this.bucketOf(this.start)), UUID.class)).containsExactly(next);
+        assertThat(this.store.isRevoked(previous)).isFalse();
+        assertThat(this.store.isRevoked(next)).isTrue();
+    }
+
+    @Test
+    void deactivateAll_TokenBeyondHorizon_WritesTokenToOverflowTableUntilItExpires() {
+        var withinHorizon = UUID.randomUUID();
+        var beyondHorizon = UUID.randomUUID();
+
+        this.store.deactivateAll(List.of(
+                new DeactivatedToken(withinHorizon, this.start.plus(Duration.ofMinutes(30))),
+                new DeactivatedToken(beyondHorizon, this.start.plus(Duration.ofHours(10)))));
+
+        assertThat(this.count("t_deactivated_token_overflow")).isEqualTo(1);
+        assertThat(this.store.isRevoked(withinHorizon)).isTrue();
+        assertThat(this.store.isRevoked(beyondHorizon)).isTrue();
+
+        // every bucket of the ring is truncated at least once while the token is still valid
+        for (var hour = 1; hour <= 9; hour++) {
+            this.setTime(this.start.plus(Duration.ofHours(hour)).plus(Duration.ofMinutes(5)));
+            this.store.purgeExpired();
+            assertThat(this.store.isRevoked(beyondHorizon)).isTrue();
+        }
+
+        this.setTime(this.start.plus(Duration.ofHours(10)).plus(Duration.ofMinutes(5)));
+        this.store.purgeExpired();
+
+        assertThat(this.count("t_deactivated_token_overflow")).isZero();
+        assertThat(this.store.isRevoked(beyondHorizon)).isFalse();
+    }
+
+    private void setTime(Instant instant) {
+        this.store.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+    }
+
+    private int bucketOf(Instant instant) {
+        return (int) Math.floorMod(Math.floorDiv(instant.toEpochMilli(), WINDOW.toMillis()), 4L);
+    }
+
+    private int count(String tableName) {
+        return this.jdbcTemplate.queryForObject("select count(*) from " + tableName, Integer.class);
+    }
+}
@@ -0,0 +1,84 @@
+package pro.akosarev.sandbox;
+
+import org.h2.jdbc.JdbcConnection;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitingDataSourceTest {
+
+    private final DriverManagerDataSource delegate = new DriverManagerDataSource(
+            "jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+
+    @Test
+    void close_ClosedTwice_ReleasesPermitOnce() throws SQLException {
+        var dataSource = new ConcurrencyLimitingDataSource(this.delegate, 2, Duration.ofMillis(10));
+        var connection = dataSource.getConnection();
+        var other = dataSource.getConnection();
+
+        connection.close();
+        connection.close();
+
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        other.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void getConnection_NoPermitWithinMaximumWait_ThrowsSQLTransientConnectionException() throws SQLException {
+        var dataSource = new ConcurrencyLimitingDataSource(this.delegate, 1, Duration.ofMillis(10));
+
+        try (var ignored = dataSource.getConnection()) {
+            assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+            assertThat(dataSource.rejectionCount()).isEqualTo(1);
+        }
+
+        try (var connection = dataSource.getConnection()) {
+            assertThat(connection.isValid(1)).isTrue();
+        }
+        assertThat(dataSource.acquisitionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getConnection_DelegateFailed_ReleasesPermit() {
+        var dataSource = new ConcurrencyLimitingDataSource(new DriverManagerDataSource("jdbc:unknown:database"), 1,
+                Duration.ofMillis(10));
+
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLException.class)
+                .isNotInstanceOf(SQLTransientConnectionException.class);
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void isClosed_ConnectionClosed_ReturnsTrue() throws SQLException {
+        var dataSource = new ConcurrencyLimitingDataSource(this.delegate, 1, Duration.ofMillis(10));
+        var connection = dataSource.getConnection();
+
+        assertThat(connection.isClosed()).isFalse();
+        connection.close();
+
+        assertThat(connection.isClosed()).isTrue();
+    }
+
+    @Test
+    void unwrap_Connection_ReturnsGuardedConnection() throws SQLException {
+        var dataSource = new ConcurrencyLimitingDataSource(this.delegate, 1, Duration.ofMillis(10));
+
+        try (var connection = dataSource.getConnection()) {
+            assertThat(connection.unwrap(Connection.class)).isSameAs(connection);
+            assertThat(connection.unwrap(JdbcConnection.class)).isInstanceOf(JdbcConnection.class)
+                    .isNotSameAs(connection);
+            assertThat(connection).isEqualTo(connection).isNotEqualTo(connection.unwrap(JdbcConnection.class));
+            assertThat(connection.hashCode()).isEqualTo(System.identityHashCode(connection));
+        }
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+}
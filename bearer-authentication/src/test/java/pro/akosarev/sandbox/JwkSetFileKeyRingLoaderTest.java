@@ -0,0 +1,134 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwkSetFileKeyRingLoaderTest {
+    private static final Instant MODIFIED = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private Path location;
+
+    private JwkSetFileKeyRingLoader loader;
+
+    private KeyRing<JWSVerifier> verifiers;
+
+    private KeyRing<JWEDecrypter> decrypters;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.location = this.directory.resolve("keys.jwks");
+        this.write(MODIFIED, key("sig-1", KeyUse.SIGNATURE, 256), key("enc-1", KeyUse.ENCRYPTION, 256));
+        this.loader = new JwkSetFileKeyRingLoader(this.location);
+        this.verifiers = this.loader.signingKeyRing(MACVerifier::new);
+        this.decrypters = this.loader.encryptionKeyRing(DirectDecrypter::new);
+    }
+
+    @Test
+    void signingKeys_KeysOfBothUses_SplitsThemByUse() throws Exception {
+        this.write(MODIFIED, key("sig-1", KeyUse.SIGNATURE, 256), key("enc-1", KeyUse.ENCRYPTION, 256),
+                key("sig-0", KeyUse.SIGNATURE, 256));
+        var loader = new JwkSetFileKeyRingLoader(this.location);
+
+        assertThat(loader.signingKeys()).extracting(OctetSequenceKey::getKeyID).containsExactly("sig-1", "sig-0");
+        assertThat(loader.encryptionKeys()).extracting(OctetSequenceKey::getKeyID).containsExactly("enc-1");
+    }
+
+    @Test
+    void reload_FileChanged_SwapsEveryKeyRing() throws Exception {
+        this.write(MODIFIED.plusSeconds(60), key("sig-2", KeyUse.SIGNATURE, 256),
+                key("sig-1", KeyUse.SIGNATURE, 256), key("enc-2", KeyUse.ENCRYPTION, 256));
+
+        this.loader.reload();
+
+        assertThat(this.verifiers.current().keyId()).isEqualTo("sig-2");
+        assertThat(this.verifiers.get("sig-1")).isNotNull();
+        assertThat(this.decrypters.current().keyId()).isEqualTo("enc-2");
+        assertThat(this.decrypters.get("enc-1")).isNull();
+        assertThat(this.loader.signingKeys()).extracting(OctetSequenceKey::getKeyID)
+                .containsExactly("sig-2", "sig-1");
+    }
+
+    @Test
+    void reload_ModificationTimeUnchanged_SkipsReload() throws Exception {
+        this.write(MODIFIED, key("sig-2", KeyUse.SIGNATURE, 256), key("enc-2", KeyUse.ENCRYPTION, 256));
+
+        this.loader.reload();
+
+        assertThat(this.verifiers.current().keyId()).isEqualTo("sig-1");
+        assertThat(this.decrypters.current().keyId()).isEqualTo("enc-1");
+        assertThat(this.loader.signingKeys()).extracting(OctetSequenceKey::getKeyID).containsExactly("sig-1");
+    }
+
+    @Test
+    void reload_InvalidKeyOfOneKeyRing_KeepsKeysOfEveryKeyRing() throws Exception {
+        this.write(MODIFIED.plusSeconds(60), key("sig-2", KeyUse.SIGNATURE, 256),
+                key("enc-2", KeyUse.ENCRYPTION, 120));
+
+        this.loader.reload();
+
+        assertThat(this.verifiers.current().keyId()).isEqualTo("sig-1");
+        assertThat(this.verifiers.get("sig-2")).isNull();
+        assertThat(this.decrypters.current().keyId()).isEqualTo("enc-1");
+        assertThat(this.loader.signingKeys()).extracting(OctetSequenceKey::getKeyID).containsExactly("sig-1");
+    }
+
+    @Test
+    void reload_DuplicateKeyId_KeepsKeys() throws Exception {
+        this.write(MODIFIED.plusSeconds(60), key("sig-2", KeyUse.SIGNATURE, 256),
+                key("sig-2", KeyUse.SIGNATURE, 256), key("enc-2", KeyUse.ENCRYPTION, 256));
+
+        this.loader.reload();
+
+        assertThat(this.verifiers.current().keyId()).isEqualTo("sig-1");
+        assertThat(this.decrypters.current().keyId()).isEqualTo("enc-1");
+    }
+
+    @Test
+    void reload_UnparseableFile_KeepsKeysAndRetriesOnNextChange() throws Exception {
+        Files.writeString(this.location, "{\"keys\":");
+        Files.setLastModifiedTime(this.location, FileTime.from(MODIFIED.plusSeconds(60)));
+
+        this.loader.reload();
+
+        assertThat(this.verifiers.current().keyId()).isEqualTo("sig-1");
+        assertThat(this.decrypters.current().keyId()).isEqualTo("enc-1");
+
+        this.write(MODIFIED.plusSeconds(60), key("sig-2", KeyUse.SIGNATURE, 256),
+                key("enc-2", KeyUse.ENCRYPTION, 256));
+
+        this.loader.reload();
+
+        assertThat(this.verifiers.current().keyId()).isEqualTo("sig-2");
+        assertThat(this.decrypters.current().keyId()).isEqualTo("enc-2");
+    }
+
+    private void write(Instant modified, JWK... keys) throws Exception {
+        Files.writeString(this.location, new JWKSet(List.of(keys)).toString(false));
+        Files.setLastModifiedTime(this.location, FileTime.from(modified));
+    }
+
+    private static OctetSequenceKey key(String keyId, KeyUse keyUse, int size) throws Exception {
+        return new OctetSequenceKeyGenerator(size).keyID(keyId).keyUse(keyUse).generate();
+    }
+}
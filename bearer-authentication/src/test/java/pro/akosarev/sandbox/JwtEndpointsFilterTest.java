@@ -0,0 +1,161 @@
+package pro.akosarev.sandbox;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.Getter;
+import lombok.Setter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtEndpointsFilterTest {
+
+    private final RecordingEndpoint tokens = new RecordingEndpoint(
+            new MethodPathRequestMatcher("POST", "/jwt/tokens"));
+
+    private final RecordingEndpoint refresh = new RecordingEndpoint(
+            new MethodPathRequestMatcher("POST", "/jwt/refresh"));
+
+    private final RecordingEndpoint custom = new RecordingEndpoint(
+            request -> request.getServletPath().startsWith("/jwt/custom/"));
+
+    @Test
+    void doFilter_TablePathAndMethod_HandlesRequestWithEndpoint() throws Exception {
+        var filter = new JwtEndpointsFilter(List.of(this.tokens, this.refresh, this.custom));
+        var authentication = new TestingAuthenticationToken("j.jameson", "password");
+        var request = request("POST", "/jwt/refresh");
+        new RequestAttributeSecurityContextRepository()
+                .saveContext(new SecurityContextImpl(authentication), request, null);
+        var filterChain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        assertThat(this.refresh.contexts).singleElement()
+                .satisfies(context -> assertThat(context.getAuthentication()).isSameAs(authentication));
+        assertThat(this.tokens.contexts).isEmpty();
+        assertThat(filterChain.getRequest()).isNull();
+    }
+
+    @Test
+    void doFilter_NoSecurityContext_HandlesRequestWithNullContext() throws Exception {
+        var filter = new JwtEndpointsFilter(List.of(this.tokens));
+
+        filter.doFilter(request("POST", "/jwt/tokens"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(this.tokens.contexts).containsExactly((SecurityContext) null);
+    }
+
+    @Test
+    void doFilter_TablePathWithOtherMethod_ContinuesChain() throws Exception {
+        var filter = new JwtEndpointsFilter(List.of(this.tokens, this.custom));
+        var request = request("GET", "/jwt/tokens");
+        var filterChain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        assertThat(filterChain.getRequest()).isSameAs(request);
+        assertThat(this.tokens.contexts).isEmpty();
+        assertThat(this.custom.contexts).isEmpty();
+    }
+
+    @Test
+    void doFilter_CustomMatcher_FallsBackToMatcher() throws Exception {
+        var filter = new JwtEndpointsFilter(List.of(this.tokens, this.custom));
+
+        filter.doFilter(request("GET", "/jwt/custom/anything"), new MockHttpServletResponse(),
+                new MockFilterChain());
+
+        assertThat(this.custom.contexts).hasSize(1);
+        assertThat(this.tokens.contexts).isEmpty();
+    }
+
+    @Test
+    void doFilter_NoMatch_ContinuesChain() throws Exception {
+        var filter = new JwtEndpointsFilter(List.of(this.tokens, this.refresh, this.custom));
+        var request = request("GET", "/api/greetings");
+        var filterChain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        assertThat(filterChain.getRequest()).isSameAs(request);
+        assertThat(this.tokens.contexts).isEmpty();
+        assertThat(this.refresh.contexts).isEmpty();
+        assertThat(this.custom.contexts).isEmpty();
+    }
+
+    @Test
+    void constructor_DuplicateEndpoint_ThrowsIllegalArgumentException() {
+        var duplicate = new RecordingEndpoint(new MethodPathRequestMatcher("POST", "/jwt/tokens"));
+
+        assertThatThrownBy(() -> new JwtEndpointsFilter(List.of(this.tokens, duplicate)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Duplicate endpoint for POST /jwt/tokens");
+    }
+
+    @Test
+    void doFilter_RequestMatcherReplaced_DispatchesWithNewMatcher() throws Exception {
+        var filter = new JwtEndpointsFilter(List.of(this.tokens, this.refresh));
+        this.tokens.setRequestMatcher(new MethodPathRequestMatcher("POST", "/jwt/v2/tokens"));
+
+        var oldPathChain = new MockFilterChain();
+        filter.doFilter(request("POST", "/jwt/tokens"), new MockHttpServletResponse(), oldPathChain);
+        filter.doFilter(request("POST", "/jwt/v2/tokens"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(oldPathChain.getRequest()).isNotNull();
+        assertThat(this.tokens.contexts).hasSize(1);
+    }
+
+    @Test
+    void doFilter_EndpointSecurityContextRepository_LoadsContextFromIt() throws Exception {
+        var filter = new JwtEndpointsFilter(List.of(this.tokens));
+        this.tokens.setSecurityContextRepository(new HttpSessionSecurityContextRepository());
+        var authentication = new TestingAuthenticationToken("j.jameson", "password");
+        var request = request("POST", "/jwt/tokens");
+        new HttpSessionSecurityContextRepository()
+                .saveContext(new SecurityContextImpl(authentication), request, new MockHttpServletResponse());
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        assertThat(this.tokens.contexts).singleElement()
+                .satisfies(context -> assertThat(context.getAuthentication()).isSameAs(authentication));
+    }
+
+    private static MockHttpServletRequest request(String method, String path) {
+        var request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+
+    @Getter
+    @Setter
+    private static class RecordingEndpoint implements JwtEndpoint {
+        private RequestMatcher requestMatcher;
+
+        private SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
+
+        private final List<SecurityContext> contexts = new ArrayList<>();
+
+        RecordingEndpoint(RequestMatcher requestMatcher) {
+            this.requestMatcher = requestMatcher;
+        }
+
+        @Override
+        public void handle(HttpServletRequest request, HttpServletResponse response, SecurityContext context) {
+            this.contexts.add(context);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtLogoutEverywhereFilterTest {
+
+    private final RecordingTokenEpochRegistry tokenEpochRegistry = new RecordingTokenEpochRegistry();
+
+    private final JwtLogoutEverywhereFilter filter = new JwtLogoutEverywhereFilter(this.tokenEpochRegistry);
+
+    private final AuthorityRegistry authorityRegistry = new AuthorityRegistry();
+
+    @Test
+    void handle_RefreshTokenWithoutSubject_AdvancesOwnEpoch() {
+        var meterRegistry = new SimpleMeterRegistry();
+        this.filter.setMetrics(new JwtMetrics(meterRegistry));
+        var response = new MockHttpServletResponse();
+
+        this.filter.handle(new MockHttpServletRequest("POST", "/jwt/logout/all"), response,
+                this.context("JWT_REFRESH", "JWT_LOGOUT"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NO_CONTENT);
+        assertThat(this.tokenEpochRegistry.advanced).containsExactly("j.jameson");
+        assertThat(meterRegistry.get("jwt.subjects.logged-out").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void handle_AccessTokenWithoutSubject_ThrowsAccessDeniedException() {
+        assertThatThrownBy(() -> this.filter.handle(new MockHttpServletRequest("POST", "/jwt/logout/all"),
+                new MockHttpServletResponse(), this.context("ROLE_MANAGER", "JWT_LOGOUT_ALL")))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThat(this.tokenEpochRegistry.advanced).isEmpty();
+    }
+
+    @Test
+    void handle_SubjectWithRequiredAuthority_AdvancesEpochOfSubject() {
+        var request = new MockHttpServletRequest("POST", "/jwt/logout/all");
+        request.setParameter("subject", "p.parker");
+        var response = new MockHttpServletResponse();
+
+        this.filter.handle(request, response, this.context("ROLE_MANAGER", "JWT_LOGOUT_ALL"));
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NO_CONTENT);
+        assertThat(this.tokenEpochRegistry.advanced).containsExactly("p.parker");
+    }
+
+    @Test
+    void handle_SubjectWithCustomRequiredAuthority_AdvancesEpochOfSubject() {
+        this.filter.setRequiredAuthority("ROLE_ADMIN");
+        var request = new MockHttpServletRequest("POST", "/jwt/logout/all");
+        request.setParameter("subject", "p.parker");
+
+        assertThatThrownBy(() -> this.filter.handle(request, new MockHttpServletResponse(),
+                this.context("JWT_LOGOUT_ALL")))
+                .isInstanceOf(AccessDeniedException.class);
+        this.filter.handle(request, new MockHttpServletResponse(), this.context("ROLE_ADMIN"));
+
+        assertThat(this.tokenEpochRegistry.advanced).containsExactly("p.parker");
+    }
+
+    @Test
+    void handle_SubjectWithoutRequiredAuthority_ThrowsAccessDeniedException() {
+        var request = new MockHttpServletRequest("POST", "/jwt/logout/all");
+        request.setParameter("subject", "p.parker");
+
+        assertThatThrownBy(() -> this.filter.handle(request, new MockHttpServletResponse(),
+                this.context("JWT_REFRESH", "JWT_LOGOUT")))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThat(this.tokenEpochRegistry.advanced).isEmpty();
+    }
+
+    @Test
+    void handle_BlankSubject_ThrowsAccessDeniedException() {
+        var request = new MockHttpServletRequest("POST", "/jwt/logout/all");
+        request.setParameter("subject", " ");
+
+        assertThatThrownBy(() -> this.filter.handle(request, new MockHttpServletResponse(),
+                this.context("JWT_LOGOUT", "JWT_LOGOUT_ALL")))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThat(this.tokenEpochRegistry.advanced).isEmpty();
+    }
+
+    @Test
+    void handle_AuthenticatedWithPassword_ThrowsAccessDeniedException() {
+        var context = new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated("j.jameson", null,
+                AuthorityUtils.createAuthorityList("JWT_LOGOUT", "JWT_LOGOUT_ALL")));
+
+        assertThatThrownBy(() -> this.filter.handle(new MockHttpServletRequest("POST", "/jwt/logout/all"),
+                new MockHttpServletResponse(), context))
+                .isInstanceOf(AccessDeniedException.class)
+                .hasMessage("User must be authenticated with JWT");
+    }
+
+    @Test
+    void handle_NoContext_ThrowsAccessDeniedException() {
+        assertThatThrownBy(() -> this.filter.handle(new MockHttpServletRequest("POST", "/jwt/logout/all"),
+                new MockHttpServletResponse(), null))
+                .isInstanceOf(AccessDeniedException.class)
+                .hasMessage("User must be authenticated with JWT");
+    }
+
+    private SecurityContext context(String... authorities) {
+        var token = new Token(UUID.randomUUID(), "j.jameson", List.of(authorities), Instant.now(),
+                Instant.now().plus(1, ChronoUnit.DAYS));
+        return new SecurityContextImpl(new PreAuthenticatedAuthenticationToken(
+                new TokenPrincipal(token, this.authorityRegistry.authoritySet(token.authorities()), true), "token"));
+    }
+
+    private static final class RecordingTokenEpochRegistry implements TokenEpochRegistry {
+        private final List<String> advanced = new ArrayList<>();
+
+        @Override
+        public long currentEpoch(String subject) {
+            return 0;
+        }
+
+        @Override
+        public long advance(String subject) {
+            this.advanced.add(subject);
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package pro.akosarev.sandbox;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostgresRevocationEventBusTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jwt_revocation", "_revocation", "revocation_2"})
+    void new_LowerCaseIdentifier_AcceptsChannel(String channel) {
+        assertThatCode(() -> new PostgresRevocationEventBus(null, null, channel, Duration.ofMillis(500),
+                Duration.ofSeconds(5))).doesNotThrowAnyException();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "Revocation", "2revocation", "jwt-revocation", "jwt_revocation; drop table t_user",
+            "\"jwt_revocation\"", "a_channel_name_that_is_longer_than_the_sixty_three_bytes_postgres_keeps"})
+    void new_NotLowerCaseIdentifier_ThrowsIllegalArgumentException(String channel) {
+        assertThatThrownBy(() -> new PostgresRevocationEventBus(null, null, channel, Duration.ofMillis(500),
+                Duration.ofSeconds(5)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
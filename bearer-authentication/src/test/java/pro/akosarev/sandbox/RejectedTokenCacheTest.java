@@ -0,0 +1,91 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RejectedTokenCacheTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final RejectedTokenCache cache = new RejectedTokenCache(Duration.ofSeconds(30), 100);
+
+    @Test
+    void get_RejectedToken_ReturnsRejection() {
+        setTime(this.cache, NOW);
+        var digest = TokenDigest.of("header.payload.signature");
+
+        this.cache.put(digest, RejectedTokenCache.Rejection.AUTHENTICATION_FAILED);
+
+        assertThat(this.cache.get(digest)).isEqualTo(RejectedTokenCache.Rejection.AUTHENTICATION_FAILED);
+        assertThat(this.cache.get(TokenDigest.of("other.payload.signature"))).isNull();
+        assertThat(this.cache.hitCount()).isEqualTo(1);
+        assertThat(this.cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void get_TimeToLivePassed_ReturnsNull() {
+        setTime(this.cache, NOW);
+        var digest = TokenDigest.of("header.payload.signature");
+        this.cache.put(digest, RejectedTokenCache.Rejection.DESERIALIZATION_FAILED);
+
+        setTime(this.cache, NOW.plus(Duration.ofSeconds(30)).minusMillis(1));
+        assertThat(this.cache.get(digest)).isEqualTo(RejectedTokenCache.Rejection.DESERIALIZATION_FAILED);
+
+        setTime(this.cache, NOW.plus(Duration.ofSeconds(30)));
+        assertThat(this.cache.get(digest)).isNull();
+    }
+
+    @Test
+    void put_SameTokenAgain_ReplacesRejectionAndRestartsTimeToLive() {
+        setTime(this.cache, NOW);
+        var digest = TokenDigest.of("header.payload.signature");
+        this.cache.put(digest, RejectedTokenCache.Rejection.DESERIALIZATION_FAILED);
+
+        setTime(this.cache, NOW.plus(Duration.ofSeconds(20)));
+        this.cache.put(digest, RejectedTokenCache.Rejection.AUTHENTICATION_FAILED);
+
+        setTime(this.cache, NOW.plus(Duration.ofSeconds(40)));
+        assertThat(this.cache.get(digest)).isEqualTo(RejectedTokenCache.Rejection.AUTHENTICATION_FAILED);
+        assertThat(this.cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void put_MaximumSizeExceeded_KeepsCacheBounded() {
+        var cache = new RejectedTokenCache(Duration.ofSeconds(30), 2);
+        setTime(cache, NOW);
+
+        for (var i = 0; i < 10; i++) {
+            cache.put(TokenDigest.of("header.payload%d.signature".formatted(i)),
+                    RejectedTokenCache.Rejection.DESERIALIZATION_FAILED);
+        }
+
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void bindTo_MeterRegistry_ReportsHitsMissesAndSize() {
+        var meterRegistry = new SimpleMeterRegistry();
+        this.cache.bindTo(meterRegistry);
+        var digest = TokenDigest.of("header.payload.signature");
+
+        this.cache.get(digest);
+        this.cache.put(digest, RejectedTokenCache.Rejection.AUTHENTICATION_FAILED);
+        this.cache.get(digest);
+
+        assertThat(meterRegistry.get("jwt.rejected-token-cache.requests").tag("result", "hit").functionCounter()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("jwt.rejected-token-cache.requests").tag("result", "miss").functionCounter()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("jwt.rejected-token-cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    private static void setTime(RejectedTokenCache cache, Instant instant) {
+        cache.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
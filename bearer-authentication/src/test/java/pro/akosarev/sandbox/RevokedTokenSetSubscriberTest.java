@@ -0,0 +1,82 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RevokedTokenSetSubscriberTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final RevokedTokenSet revokedTokenSet = new RevokedTokenSet();
+
+    private final AtomicInteger catchUps = new AtomicInteger();
+
+    private final InProcessRevocationEventBus eventBus = new InProcessRevocationEventBus();
+
+    @Test
+    void subscribe_InProcessEventBus_CatchesUp() {
+        this.eventBus.subscribe(this.subscriber());
+
+        assertThat(this.catchUps).hasValue(1);
+    }
+
+    @Test
+    void publish_InProcessEventBus_AddsTokenToRevokedTokenSet() {
+        this.eventBus.subscribe(this.subscriber());
+        var tokenId = UUID.randomUUID();
+
+        this.eventBus.publish(new RevocationEvent(tokenId, Instant.now().plus(1, ChronoUnit.DAYS),
+                NOW.minusMillis(250)));
+
+        assertThat(this.revokedTokenSet.isRevoked(tokenId)).isTrue();
+        assertThat(this.revokedTokenSet.isRevoked(UUID.randomUUID())).isFalse();
+        var propagation = this.meterRegistry.get("jwt.revocation.propagation").functionTimer();
+        assertThat(propagation.count()).isEqualTo(1);
+        assertThat(propagation.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(250);
+    }
+
+    @Test
+    void publishAll_InProcessEventBus_AddsEveryTokenToRevokedTokenSet() {
+        this.eventBus.subscribe(this.subscriber());
+        var keepUntil = Instant.now().plus(1, ChronoUnit.DAYS);
+        var tokenIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+        this.eventBus.publishAll(tokenIds.stream()
+                .map(tokenId -> new RevocationEvent(tokenId, keepUntil, NOW))
+                .toList());
+
+        assertThat(tokenIds).allMatch(this.revokedTokenSet::isRevoked);
+        assertThat(this.revokedTokenSet.size()).isEqualTo(3);
+    }
+
+    @Test
+    void publish_EventPublishedAfterReceipt_RecordsNoNegativeLag() {
+        this.eventBus.subscribe(this.subscriber());
+
+        this.eventBus.publish(new RevocationEvent(UUID.randomUUID(), Instant.now().plus(1, ChronoUnit.DAYS),
+                NOW.plus(Duration.ofSeconds(1))));
+
+        assertThat(this.meterRegistry.get("jwt.revocation.propagation").functionTimer().totalTime(
+                TimeUnit.NANOSECONDS)).isZero();
+    }
+
+    private RevokedTokenSetSubscriber subscriber() {
+        var subscriber = new RevokedTokenSetSubscriber(this.revokedTokenSet, this.catchUps::incrementAndGet,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+        subscriber.bindTo(this.meterRegistry);
+        return subscriber;
+    }
+}
@@ -0,0 +1,203 @@
+package pro.akosarev.sandbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightAccessTokenCacheTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final AtomicInteger issues = new AtomicInteger();
+
+    @Test
+    void get_OverlappingRequests_IssuesOnce() throws Exception {
+        var cache = new SingleFlightAccessTokenCache(Duration.ZERO, 100);
+        var refreshToken = token();
+        var release = new CountDownLatch(1);
+        var first = this.startIssuing(cache, refreshToken, release, this::issue);
+
+        var second = new FutureTask<>(() -> cache.get(refreshToken, this::issue));
+        awaitWaiting(Thread.ofPlatform().start(second));
+        release.countDown();
+
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(this.issues).hasValue(1);
+        assertThat(cache.issuedCount()).isEqualTo(1);
+        assertThat(cache.coalescedCount()).isEqualTo(1);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_WithinReuseWindow_ReturnsIssuedTokens() {
+        var cache = new SingleFlightAccessTokenCache(Duration.ofSeconds(5), 100);
+        var refreshToken = token();
+        setTime(cache, NOW);
+        var tokens = cache.get(refreshToken, this::issue);
+
+        setTime(cache, NOW.plus(Duration.ofMillis(4999)));
+        assertThat(cache.get(refreshToken, this::issue)).isSameAs(tokens);
+
+        setTime(cache, NOW.plus(Duration.ofSeconds(5)));
+        assertThat(cache.get(refreshToken, this::issue)).isNotSameAs(tokens);
+        assertThat(this.issues).hasValue(2);
+        assertThat(cache.get(token(), this::issue)).isNotSameAs(tokens);
+    }
+
+    @Test
+    void get_IssueFailed_IssuesAgain() {
+        var cache = new SingleFlightAccessTokenCache(Duration.ofSeconds(5), 100);
+        var refreshToken = token();
+
+        assertThatThrownBy(() -> cache.get(refreshToken, token -> {
+            throw new IllegalStateException("Signing failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get(refreshToken, this::issue)).isNotNull();
+        assertThat(this.issues).hasValue(1);
+    }
+
+    @Test
+    void get_IssueFailedWithError_IssuesAgain() {
+        var cache = new SingleFlightAccessTokenCache(Duration.ofSeconds(5), 100);
+        var refreshToken = token();
+
+        assertThatThrownBy(() -> cache.get(refreshToken, token -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.get(refreshToken, this::issue)).isNotNull();
+    }
+
+    @Test
+    void get_IssueFailedWithErrorWhileWaiting_ThrowsErrorToWaiter() throws Exception {
+        var cache = new SingleFlightAccessTokenCache(Duration.ZERO, 100);
+        var refreshToken = token();
+        var release = new CountDownLatch(1);
+        var first = this.startIssuing(cache, refreshToken, release, token -> {
+            throw new OutOfMemoryError("Signing failed");
+        });
+
+        var second = new FutureTask<>(() -> cache.get(refreshToken, this::issue));
+        awaitWaiting(Thread.ofPlatform().start(second));
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(OutOfMemoryError.class);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(OutOfMemoryError.class);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_IssueStuck_WaiterIssuesAfterMaximumWait() throws Exception {
+        var cache = new SingleFlightAccessTokenCache(Duration.ZERO, 100);
+        cache.setMaximumWait(Duration.ofMillis(50));
+        var refreshToken = token();
+        var release = new CountDownLatch(1);
+        var first = this.startIssuing(cache, refreshToken, release, this::issue);
+
+        var tokens = cache.get(refreshToken, this::issue);
+        release.countDown();
+
+        assertThat(tokens).isNotSameAs(first.get(5, TimeUnit.SECONDS));
+        assertThat(cache.issuedCount()).isEqualTo(2);
+        assertThat(cache.coalescedCount()).isZero();
+    }
+
+    @Test
+    void get_ReuseWindowPassed_DropsIssuedTokens() {
+        var cache = new SingleFlightAccessTokenCache(Duration.ofSeconds(5), 100);
+        setTime(cache, NOW);
+        cache.get(token(), this::issue);
+
+        setTime(cache, NOW.plus(Duration.ofSeconds(5)));
+        cache.get(token(), this::issue);
+
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void get_MaximumSizeExceeded_EvictsIssuedTokens() {
+        var cache = new SingleFlightAccessTokenCache(Duration.ofMinutes(1), 2);
+        setTime(cache, NOW);
+        var refreshTokens = List.of(token(), token(), token(), token());
+
+        refreshTokens.forEach(refreshToken -> cache.get(refreshToken, this::issue));
+
+        assertThat(cache.size()).isLessThanOrEqualTo(2);
+        assertThat(this.issues).hasValue(4);
+    }
+
+    @Test
+    void get_MaximumSizeExceeded_EvictsExpiredTokensFirst() {
+        var cache = new SingleFlightAccessTokenCache(Duration.ofSeconds(5), 2);
+        var expired = token();
+        var live = token();
+        setTime(cache, NOW);
+        cache.get(expired, this::issue);
+        setTime(cache, NOW.plus(Duration.ofSeconds(3)));
+        var tokens = cache.get(live, this::issue);
+
+        setTime(cache, NOW.plus(Duration.ofSeconds(6)));
+        cache.get(token(), this::issue);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(live, this::issue)).isSameAs(tokens);
+    }
+
+    private Tokens issue(Token refreshToken) {
+        this.issues.incrementAndGet();
+        return new Tokens(UUID.randomUUID().toString(), NOW.plus(5, ChronoUnit.MINUTES).toString(), null, null);
+    }
+
+    private static Token token() {
+        return new Token(UUID.randomUUID(), "j.jameson", List.of("JWT_REFRESH"), NOW, NOW.plus(1, ChronoUnit.DAYS));
+    }
+
+    private static void setTime(SingleFlightAccessTokenCache cache, Instant instant) {
+        cache.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+    }
+
+    /**
+     * Starts issuing access tokens for the refresh token, holding the issue until {@code release} is counted down.
+     */
+    private FutureTask<Tokens> startIssuing(SingleFlightAccessTokenCache cache, Token refreshToken,
+                                            CountDownLatch release, Function<Token, Tokens> issuer)
+            throws InterruptedException {
+        var issuing = new CountDownLatch(1);
+        var task = new FutureTask<>(() -> cache.get(refreshToken, token -> {
+            issuing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            return issuer.apply(token);
+        }));
+        Thread.ofPlatform().start(task);
+        assertThat(issuing.await(5, TimeUnit.SECONDS)).isTrue();
+        return task;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(thread.getState()).isEqualTo(Thread.State.TIMED_WAITING);
+    }
+}
@@ -0,0 +1,141 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketRateLimiterTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void acquire_WithinBurst_TakesPermits() {
+        var rateLimiter = this.rateLimiter(10, 5, 1000);
+
+        assertThat(IntStream.range(0, 5).mapToLong(i -> rateLimiter.acquire("client"))).containsOnly(0L);
+        assertThat(rateLimiter.acquire("client")).isPositive();
+        assertThat(rateLimiter.acquire("other client")).isZero();
+        assertThat(rateLimiter.rejectionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void acquire_BurstTaken_ReturnsWaitUntilNextPermit() {
+        var rateLimiter = this.rateLimiter(2, 3, 1000);
+        IntStream.range(0, 3).forEach(i -> rateLimiter.acquire("client"));
+
+        assertThat(rateLimiter.acquire("client")).isEqualTo(SECOND / 2);
+
+        this.now.addAndGet(SECOND / 5);
+        assertThat(rateLimiter.acquire("client")).isEqualTo(SECOND / 2 - SECOND / 5);
+    }
+
+    @Test
+    void acquire_TimePassed_RefillsPermitsContinuously() {
+        var rateLimiter = this.rateLimiter(10, 5, 1000);
+        IntStream.range(0, 5).forEach(i -> rateLimiter.acquire("client"));
+
+        this.now.addAndGet(SECOND / 10);
+        assertThat(rateLimiter.acquire("client")).isZero();
+        assertThat(rateLimiter.acquire("client")).isPositive();
+
+        this.now.addAndGet(SECOND * 3 / 10);
+        assertThat(IntStream.range(0, 4).mapToLong(i -> rateLimiter.acquire("client")))
+                .containsExactly(0L, 0L, 0L, SECOND / 10);
+    }
+
+    @Test
+    void acquire_IdleForLong_RefillsUpToBurst() {
+        var rateLimiter = this.rateLimiter(10, 5, 1000);
+        IntStream.range(0, 5).forEach(i -> rateLimiter.acquire("client"));
+
+        this.now.addAndGet(60 * SECOND);
+
+        assertThat(IntStream.range(0, 5).mapToLong(i -> rateLimiter.acquire("client"))).containsOnly(0L);
+        assertThat(rateLimiter.acquire("client")).isPositive();
+    }
+
+    @Test
+    void check_PermitAvailable_DoesNotTakePermit() {
+        var rateLimiter = this.rateLimiter(1, 2, 1000);
+
+        assertThat(rateLimiter.check("j.jameson")).isZero();
+        assertThat(rateLimiter.size()).isZero();
+
+        rateLimiter.consume("j.jameson");
+        assertThat(rateLimiter.check("j.jameson")).isZero();
+        rateLimiter.consume("j.jameson");
+        assertThat(rateLimiter.check("j.jameson")).isEqualTo(SECOND);
+        rateLimiter.consume("j.jameson");
+        assertThat(rateLimiter.check("j.jameson")).isEqualTo(SECOND);
+        assertThat(rateLimiter.rejectionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void acquire_MaximumSizeExceeded_EvictsBuckets() {
+        var rateLimiter = this.rateLimiter(1, 2, 64 * 4);
+
+        IntStream.range(0, 10_000).forEach(i -> rateLimiter.acquire("client-" + i));
+
+        assertThat(rateLimiter.size()).isLessThanOrEqualTo(64 * 4);
+        assertThat(rateLimiter.evictionCount()).isPositive();
+    }
+
+    @Test
+    void acquire_StripeFullOfFullBuckets_KeepsDrainedBucket() {
+        var rateLimiter = this.rateLimiter(1, 2, 64 * 4);
+        var stripeKeys = IntStream.range(0, 100_000)
+                .mapToObj(i -> "client-" + i)
+                .filter(key -> ((key.hashCode() ^ key.hashCode() >>> 16) & 63) == 0)
+                .limit(5)
+                .toList();
+        var drained = stripeKeys.getFirst();
+        rateLimiter.acquire(drained);
+        rateLimiter.acquire(drained);
+        // the other buckets are full again by the time the stripe is evicted
+        stripeKeys.subList(1, 4).forEach(rateLimiter::acquire);
+        this.now.addAndGet(SECOND);
+
+        rateLimiter.acquire(stripeKeys.get(4));
+
+        // a new bucket would have two permits, the drained one has refilled only one
+        assertThat(rateLimiter.acquire(drained)).isZero();
+        assertThat(rateLimiter.acquire(drained)).isPositive();
+        assertThat(rateLimiter.evictionCount()).isEqualTo(3);
+    }
+
+    @Test
+    void bindTo_MeterRegistry_TagsMetersWithName() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var rateLimiter = new TokenBucketRateLimiter("subject", 1, 1, 1000);
+        rateLimiter.setNanoClock(this.now::get);
+        rateLimiter.bindTo(meterRegistry);
+
+        rateLimiter.acquire("client");
+        rateLimiter.acquire("client");
+
+        assertThat(meterRegistry.get("jwt.rate-limit.rejections").tag("key", "subject").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("jwt.rate-limit.buckets").tag("key", "subject").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void new_NonPositiveRate_ThrowsIllegalArgumentException() {
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(0, 1, 1000))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucketRateLimiter(1, 0, 1000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private TokenBucketRateLimiter rateLimiter(double permitsPerSecond, int burst, int maximumSize) {
+        var rateLimiter = new TokenBucketRateLimiter(permitsPerSecond, burst, maximumSize);
+        rateLimiter.setNanoClock(this.now::get);
+        return rateLimiter;
+    }
+}
@@ -0,0 +1,92 @@
+package pro.akosarev.sandbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteBehindDeactivatedTokenWriterTest {
+
+    @Test
+    void close_BatchWriteFailed_WritesTokensOneByOne() throws InterruptedException {
+        var delegate = new RecordingWriter();
+        delegate.failingBatches = true;
+        var writer = new WriteBehindDeactivatedTokenWriter(delegate, 100, 10, Duration.ofMillis(50),
+                Duration.ofMillis(10));
+        var tokenIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+        tokenIds.forEach(tokenId -> writer.deactivate(tokenId, Instant.now().plusSeconds(60)));
+        writer.close();
+
+        assertThat(delegate.written).containsExactlyInAnyOrderElementsOf(tokenIds);
+    }
+
+    @Test
+    void deactivate_WriterClosed_WritesTokenSynchronously() throws InterruptedException {
+        var delegate = new RecordingWriter();
+        var writer = new WriteBehindDeactivatedTokenWriter(delegate, 100, 10, Duration.ofMillis(50),
+                Duration.ofMillis(10));
+        writer.close();
+        var tokenId = UUID.randomUUID();
+
+        writer.deactivate(tokenId, Instant.now().plusSeconds(60));
+
+        assertThat(delegate.written).containsExactly(tokenId);
+        assertThat(writer.queueSize()).isZero();
+    }
+
+    @Test
+    void close_TokensDeactivatedConcurrently_WritesEveryToken() throws Exception {
+        var delegate = new RecordingWriter();
+        var writer = new WriteBehindDeactivatedTokenWriter(delegate, 10, 5, Duration.ofMillis(50),
+                Duration.ofMillis(1));
+        var tokenIds = ConcurrentHashMap.<UUID>newKeySet();
+        var stopped = new AtomicBoolean();
+        var threads = IntStream.range(0, 4)
+                .mapToObj(i -> Thread.ofPlatform().start(() -> {
+                    while (!stopped.get()) {
+                        var tokenId = UUID.randomUUID();
+                        tokenIds.add(tokenId);
+                        writer.deactivate(tokenId, Instant.now().plusSeconds(60));
+                    }
+                }))
+                .toList();
+
+        Thread.sleep(100);
+        writer.close();
+        stopped.set(true);
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        assertThat(delegate.written).containsExactlyInAnyOrderElementsOf(tokenIds);
+        assertThat(writer.queueSize()).isZero();
+    }
+
+    static class RecordingWriter implements DeactivatedTokenWriter {
+        final Set<UUID> written = ConcurrentHashMap.newKeySet();
+
+        volatile boolean failingBatches;
+
+        @Override
+        public void deactivate(UUID tokenId, Instant keepUntil) {
+            this.written.add(tokenId);
+        }
+
+        @Override
+        public void deactivateAll(List<DeactivatedToken> tokens) {
+            if (this.failingBatches) {
+                throw new IllegalStateException("Batch write failed");
+            }
+            tokens.forEach(token -> this.deactivate(token.id(), token.keepUntil()));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Serialization and deserialization latency of refresh tokens with plain JSON claims, with DEFLATE
+ * compression only and with compression and an {@link AuthorityDictionary}, across role counts.
+ * {@link #main(String[])} prints the token and {@code Authorization} header sizes of the same encodings:
+ * {@code java -cp benchmarks/target/benchmarks.jar pro.akosarev.sandbox.CompactRefreshTokenBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompactRefreshTokenBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class EncodingState {
+        @Param({"1", "10", "50", "200"})
+        public int roleCount;
+
+        @Param({"plain", "deflate", "dictionary"})
+        public String encoding;
+
+        public Token refreshToken;
+
+        public RefreshTokenJweStringSerializer serializer;
+
+        public RefreshTokenJweStringDeserializer deserializer;
+
+        public String refreshTokenString;
+
+        @Setup
+        public void setUp() throws Exception {
+            this.refreshToken = refreshToken(this.roleCount);
+            var key = OctetSequenceKey.parse(TokenBenchmarkState.REFRESH_TOKEN_KEY);
+            this.serializer = new RefreshTokenJweStringSerializer(new DirectEncrypter(key));
+            this.deserializer = new RefreshTokenJweStringDeserializer(new DirectDecrypter(key));
+            configure(this.encoding, this.roleCount, this.serializer, this.deserializer);
+            this.refreshTokenString = this.serializer.apply(this.refreshToken);
+        }
+    }
+
+    @Benchmark
+    public String serialize(EncodingState state) {
+        return state.serializer.apply(state.refreshToken);
+    }
+
+    @Benchmark
+    public TokenDeserializationResult deserialize(EncodingState state) {
+        return state.deserializer.deserialize(state.refreshTokenString);
+    }
+
+    public static void main(String[] args) throws Exception {
+        var key = OctetSequenceKey.parse(TokenBenchmarkState.REFRESH_TOKEN_KEY);
+        System.out.printf("%-6s %-11s %8s %8s%n", "roles", "encoding", "token", "header");
+        for (var roleCount : new int[]{1, 10, 50, 200}) {
+            var refreshToken = refreshToken(roleCount);
+            for (var encoding : List.of("plain", "deflate", "dictionary")) {
+                var serializer = new RefreshTokenJweStringSerializer(new DirectEncrypter(key));
+                var deserializer = new RefreshTokenJweStringDeserializer(new DirectDecrypter(key));
+                configure(encoding, roleCount, serializer, deserializer);
+                var refreshTokenString = serializer.apply(refreshToken);
+                if (!(deserializer.deserialize(refreshTokenString) instanceof TokenDeserializationResult.Success)) {
+                    throw new IllegalStateException("Could not deserialize a %s token".formatted(encoding));
+                }
+                System.out.printf("%-6d %-11s %8d %8d%n", roleCount, encoding, refreshTokenString.length(),
+                        "Authorization: Bearer ".length() + refreshTokenString.length());
+            }
+        }
+    }
+
+    static Token refreshToken(int roleCount) {
+        return new DefaultRefreshTokenFactory().apply(UsernamePasswordAuthenticationToken.authenticated(
+                "j.jameson", null, roles(roleCount).stream().map(SimpleGrantedAuthority::new).toList()));
+    }
+
+    static void configure(String encoding, int roleCount, RefreshTokenJweStringSerializer serializer,
+                          RefreshTokenJweStringDeserializer deserializer) {
+        if (!encoding.equals("plain")) {
+            serializer.setCompressionAlgorithm(CompressionAlgorithm.DEF);
+        }
+        if (encoding.equals("dictionary")) {
+            var authorityDictionary = AuthorityDictionary.forRefreshTokens(1, roles(roleCount));
+            serializer.setAuthorityDictionary(authorityDictionary);
+            deserializer.setAuthorityDictionaries(authorityDictionary);
+        }
+    }
+
+    private static List<String> roles(int roleCount) {
+        return IntStream.range(0, roleCount)
+                .mapToObj(i -> "ROLE_DEPARTMENT_%d_AUTHORITY".formatted(i))
+                .toList();
+    }
+}
@@ -0,0 +1,118 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jwt.SignedJWT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.Authentication;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of rejecting invalid bearer tokens: the routed {@link JwtAuthenticationConverter}
+ * against the former trial-and-error approach, which parsed every token as a JWS and then as a JWE,
+ * catching an exception from each (the stack trace logging it also did is left out here),
+ * and against {@link FastAccessTokenJwsStringDeserializer}, which checks the MAC before decoding anything.
+ * {@code rejectedTokenCache} converts a request with a token that the {@link RejectedTokenCache} of the
+ * converter already remembers as rejected, as a client retrying it would.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvalidTokenBenchmark {
+
+    @Param({"garbage", "tampered-jws", "tampered-jwe"})
+    public String kind;
+
+    private String token;
+
+    private JwtAuthenticationConverter converter;
+
+    private JwtAuthenticationConverter macFirstConverter;
+
+    private JwtAuthenticationConverter rejectedTokenCachingConverter;
+
+    private MockHttpServletRequest request;
+
+    private MACVerifier macVerifier;
+
+    private DirectDecrypter directDecrypter;
+
+    @Setup
+    public void setUp() throws Exception {
+        var tokens = new TokenBenchmarkState();
+        tokens.authorityCount = 10;
+        tokens.tokenValidity = "PT5M";
+        tokens.setUp();
+
+        this.token = switch (this.kind) {
+            case "garbage" -> "not-a-token";
+            case "tampered-jws" -> tokens.accessTokenString.substring(0, tokens.accessTokenString.length() - 4) + "AAAA";
+            case "tampered-jwe" -> tokens.refreshTokenString.substring(0, tokens.refreshTokenString.length() - 4) + "AAAA";
+            default -> throw new IllegalArgumentException(this.kind);
+        };
+        this.converter = new JwtAuthenticationConverter(tokens.accessTokenStringDeserializer,
+                tokens.refreshTokenStringDeserializer);
+        this.macFirstConverter = new JwtAuthenticationConverter(tokens.fastAccessTokenStringDeserializer,
+                tokens.refreshTokenStringDeserializer);
+        this.rejectedTokenCachingConverter = new JwtAuthenticationConverter(tokens.fastAccessTokenStringDeserializer,
+                tokens.refreshTokenStringDeserializer);
+        this.rejectedTokenCachingConverter.setRejectedTokenCache(new RejectedTokenCache(Duration.ofDays(1), 10_000));
+        this.request = new MockHttpServletRequest();
+        this.request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + this.token);
+        this.rejectedTokenCachingConverter.convert(this.request);
+        this.macVerifier = new MACVerifier(OctetSequenceKey.parse(TokenBenchmarkState.ACCESS_TOKEN_KEY));
+        this.directDecrypter = new DirectDecrypter(OctetSequenceKey.parse(TokenBenchmarkState.REFRESH_TOKEN_KEY));
+    }
+
+    @Benchmark
+    public TokenDeserializationResult routed() {
+        return this.converter.deserialize(this.token);
+    }
+
+    @Benchmark
+    public TokenDeserializationResult routedMacFirst() {
+        return this.macFirstConverter.deserialize(this.token);
+    }
+
+    @Benchmark
+    public Authentication rejectedTokenCache() {
+        return this.rejectedTokenCachingConverter.convert(this.request);
+    }
+
+    @Benchmark
+    public void trialAndError(Blackhole blackhole) {
+        try {
+            var signedJWT = SignedJWT.parse(this.token);
+            blackhole.consume(signedJWT.verify(this.macVerifier));
+        } catch (Exception exception) {
+            blackhole.consume(exception);
+        }
+        try {
+            var encryptedJWT = EncryptedJWT.parse(this.token);
+            encryptedJWT.decrypt(this.directDecrypter);
+            blackhole.consume(encryptedJWT);
+        } catch (Exception exception) {
+            blackhole.consume(exception);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pro.akosarev.sandbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.Authentication;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationConverterBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ConverterState {
+        public JwtAuthenticationConverter converter;
+
+        public MockHttpServletRequest accessTokenRequest;
+
+        public MockHttpServletRequest refreshTokenRequest;
+
+        @Setup
+        public void setUp(TokenBenchmarkState tokens) {
+            this.converter = new JwtAuthenticationConverter(tokens.accessTokenStringDeserializer,
+                    tokens.refreshTokenStringDeserializer);
+            this.accessTokenRequest = bearerRequest(tokens.accessTokenString);
+            this.refreshTokenRequest = bearerRequest(tokens.refreshTokenString);
+        }
+    }
+
+    static MockHttpServletRequest bearerRequest(String token) {
+        var request = new MockHttpServletRequest("GET", "/manager.html");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return request;
+    }
+
+    @Benchmark
+    public Authentication convertAccessToken(ConverterState state) {
+        return state.converter.convert(state.accessTokenRequest);
+    }
+
+    @Benchmark
+    public Authentication convertRefreshToken(ConverterState state) {
+        return state.converter.convert(state.refreshTokenRequest);
+    }
+}
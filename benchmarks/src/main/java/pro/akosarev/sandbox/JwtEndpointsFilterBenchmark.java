@@ -0,0 +1,83 @@
+package pro.akosarev.sandbox;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a business request passing the {@code /jwt/*} endpoints, as three filters with
+ * {@link PathPatternRequestMatcher}s each and as a single {@link JwtEndpointsFilter}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtEndpointsFilterBenchmark {
+    private static final HttpServlet SERVLET = new HttpServlet() {
+        @Override
+        protected void service(HttpServletRequest request, HttpServletResponse response) {
+        }
+    };
+
+    @State(Scope.Benchmark)
+    public static class FiltersState {
+        public Filter[] chainedFilters;
+
+        public Filter dispatchingFilter;
+
+        public MockHttpServletRequest request;
+
+        @Setup
+        public void setUp(TokenBenchmarkState tokens) {
+            var requestJwtTokensFilter = new RequestJwtTokensFilter();
+            var matchers = PathPatternRequestMatcher.withDefaults();
+            requestJwtTokensFilter.setRequestMatcher(matchers.matcher(HttpMethod.POST, "/jwt/tokens"));
+            var refreshTokenFilter = new RefreshTokenFilter();
+            refreshTokenFilter.setRequestMatcher(matchers.matcher(HttpMethod.POST, "/jwt/refresh"));
+            var jwtLogoutFilter = new JwtLogoutFilter((id, keepUntil) -> {});
+            jwtLogoutFilter.setRequestMatcher(matchers.matcher(HttpMethod.POST, "/jwt/logout"));
+            this.chainedFilters = new Filter[]{requestJwtTokensFilter, refreshTokenFilter, jwtLogoutFilter};
+
+            this.dispatchingFilter = new JwtEndpointsFilter(List.of(new RequestJwtTokensFilter(),
+                    new RefreshTokenFilter(), new JwtLogoutFilter((id, keepUntil) -> {})));
+
+            this.request = JwtAuthenticationConverterBenchmark.bearerRequest(tokens.accessTokenString);
+            this.request.setServletPath("/manager.html");
+        }
+    }
+
+    @Benchmark
+    public FilterChain chainedFilters(FiltersState state) throws Exception {
+        var filterChain = new MockFilterChain(SERVLET, state.chainedFilters);
+        filterChain.doFilter(state.request, new MockHttpServletResponse());
+        return filterChain;
+    }
+
+    @Benchmark
+    public FilterChain dispatchingFilter(FiltersState state) throws Exception {
+        var filterChain = new MockFilterChain(SERVLET, state.dispatchingFilter);
+        filterChain.doFilter(state.request, new MockHttpServletResponse());
+        return filterChain;
+    }
+}
@@ -0,0 +1,89 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.Authentication;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the JWT meters on the request path: the converter and the revocation lookup
+ * with meters backed by a registry that records nothing and by a {@link SimpleMeterRegistry}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsOverheadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MetricsState {
+        @Param({"noop", "simple"})
+        public String registry;
+
+        public JwtAuthenticationConverter converter;
+
+        public MockHttpServletRequest accessTokenRequest;
+
+        public MockHttpServletRequest invalidTokenRequest;
+
+        public RevokedTokenSet revokedTokenSet;
+
+        public TokenRevocationChecker timedRevocationChecker;
+
+        public UUID tokenId;
+
+        @Setup
+        public void setUp(TokenBenchmarkState tokens) {
+            var metrics = this.registry.equals("simple") ? new JwtMetrics(new SimpleMeterRegistry()) :
+                    JwtMetrics.noop();
+            this.converter = new JwtAuthenticationConverter(tokens.accessTokenStringDeserializer,
+                    tokens.refreshTokenStringDeserializer);
+            this.converter.setMetrics(metrics);
+            this.accessTokenRequest = JwtAuthenticationConverterBenchmark.bearerRequest(tokens.accessTokenString);
+            this.invalidTokenRequest = JwtAuthenticationConverterBenchmark.bearerRequest(
+                    tokens.accessTokenString.substring(0, tokens.accessTokenString.length() - 2) + "AA");
+
+            this.revokedTokenSet = new RevokedTokenSet();
+            for (var i = 0; i < 10_000; i++) {
+                this.revokedTokenSet.add(UUID.randomUUID(), Instant.now().plusSeconds(3600));
+            }
+            this.timedRevocationChecker = new TimedTokenRevocationChecker(this.revokedTokenSet, metrics);
+            this.tokenId = UUID.randomUUID();
+        }
+    }
+
+    @Benchmark
+    public Authentication convertAccessToken(MetricsState state) {
+        return state.converter.convert(state.accessTokenRequest);
+    }
+
+    @Benchmark
+    public Authentication convertInvalidToken(MetricsState state) {
+        return state.converter.convert(state.invalidTokenRequest);
+    }
+
+    @Benchmark
+    public boolean revocationLookup(MetricsState state) {
+        return state.revokedTokenSet.isRevoked(state.tokenId);
+    }
+
+    @Benchmark
+    public boolean timedRevocationLookup(MetricsState state) {
+        return state.timedRevocationChecker.isRevoked(state.tokenId);
+    }
+}
@@ -0,0 +1,85 @@
+package pro.akosarev.sandbox;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replicas refreshing one shared refresh token at the same time: 16 threads refresh the same token
+ * without a {@link SingleFlightAccessTokenCache}, with one that only coalesces overlapping refreshes
+ * and with one that reuses issued access tokens for 5 seconds.
+ * <p>
+ * The {@code signatures} counter is the number of access tokens signed per second, against the
+ * refreshes per second of the primary result.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class RefreshStampedeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StampedeState {
+        @Param({"none", "PT0S", "PT5S"})
+        public String reuseWindow;
+
+        public SingleFlightAccessTokenCache cache;
+
+        public Token refreshToken;
+
+        public DefaultAccessTokenFactory accessTokenFactory;
+
+        public FastAccessTokenJwsStringSerializer accessTokenStringSerializer;
+
+        @Setup
+        public void setUp(TokenBenchmarkState tokens) {
+            this.cache = this.reuseWindow.equals("none") ? null :
+                    new SingleFlightAccessTokenCache(Duration.parse(this.reuseWindow), 10_000);
+            this.refreshToken = tokens.refreshToken;
+            this.accessTokenFactory = tokens.accessTokenFactory;
+            this.accessTokenStringSerializer = tokens.fastAccessTokenStringSerializer;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Signatures {
+        public long signatures;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.signatures = 0;
+        }
+    }
+
+    @Benchmark
+    public Tokens refresh(StampedeState state, Signatures signatures) {
+        if (state.cache == null) {
+            return issue(state, signatures, state.refreshToken);
+        }
+        return state.cache.get(state.refreshToken, refreshToken -> issue(state, signatures, refreshToken));
+    }
+
+    private static Tokens issue(StampedeState state, Signatures signatures, Token refreshToken) {
+        signatures.signatures++;
+        var accessToken = state.accessTokenFactory.apply(refreshToken);
+        return new Tokens(state.accessTokenStringSerializer.apply(accessToken),
+                accessToken.expiresAt().toString(), null, null);
+    }
+}
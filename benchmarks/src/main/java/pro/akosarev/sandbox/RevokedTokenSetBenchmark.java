@@ -0,0 +1,60 @@
+package pro.akosarev.sandbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RevokedTokenSetBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int revokedTokens;
+
+    private RevokedTokenSet revokedTokenSet;
+
+    private UUID[] revokedIds;
+
+    @Setup
+    public void setUp() {
+        this.revokedTokenSet = new RevokedTokenSet(this.revokedTokens, Duration.ofMinutes(1), 2048);
+        this.revokedIds = new UUID[1024];
+        var keepUntil = Instant.now().plus(Duration.ofHours(12));
+        for (var i = 0; i < this.revokedTokens; i++) {
+            var id = UUID.randomUUID();
+            this.revokedTokenSet.add(id, keepUntil);
+            if (i < this.revokedIds.length) {
+                this.revokedIds[i] = id;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean revokedLookup() {
+        return this.revokedTokenSet.isRevoked(this.revokedIds[ThreadLocalRandom.current().nextInt(this.revokedIds.length)]);
+    }
+
+    @Benchmark
+    public boolean activeLookup() {
+        return this.revokedTokenSet.isRevoked(new UUID(ThreadLocalRandom.current().nextLong(),
+                ThreadLocalRandom.current().nextLong()));
+    }
+}
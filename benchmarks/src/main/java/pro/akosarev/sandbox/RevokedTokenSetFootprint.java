@@ -0,0 +1,47 @@
+package pro.akosarev.sandbox;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.UUID;
+
+/**
+ * Reports the memory footprint of {@link RevokedTokenSet} at 1M and 10M revoked ids, next to a
+ * {@code HashSet<UUID>} baseline. Run with a large heap, e.g.
+ * {@code java -Xmx8g -cp benchmarks/target/benchmarks.jar pro.akosarev.sandbox.RevokedTokenSetFootprint}.
+ */
+public class RevokedTokenSetFootprint {
+
+    public static void main(String[] args) {
+        for (var revokedTokens : new int[]{1_000_000, 10_000_000}) {
+            var keepUntil = Instant.now().plus(Duration.ofHours(12));
+
+            var before = usedHeap();
+            var revokedTokenSet = new RevokedTokenSet(revokedTokens, Duration.ofMinutes(1), 2048);
+            for (var i = 0; i < revokedTokens; i++) {
+                revokedTokenSet.add(UUID.randomUUID(), keepUntil);
+            }
+            var setBytes = usedHeap() - before;
+            System.out.printf("RevokedTokenSet %,d ids: %,d bytes retained (%.1f bytes/id), %,d bytes in arrays%n",
+                    revokedTokens, setBytes, (double) setBytes / revokedTokens, revokedTokenSet.footprintBytes());
+            revokedTokenSet = null;
+
+            before = usedHeap();
+            var hashSet = new HashSet<UUID>();
+            for (var i = 0; i < revokedTokens; i++) {
+                hashSet.add(UUID.randomUUID());
+            }
+            var hashSetBytes = usedHeap() - before;
+            System.out.printf("HashSet<UUID>   %,d ids: %,d bytes retained (%.1f bytes/id)%n",
+                    hashSet.size(), hashSetBytes, (double) hashSetBytes / revokedTokens);
+        }
+    }
+
+    private static long usedHeap() {
+        for (var i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,90 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.util.stream.IntStream;
+
+/**
+ * Tokens, keys, serializers and deserializers shared by the benchmarks, built with the same keys
+ * and defaults as {@code SandboxSpringSecurityJwtApplication}.
+ * <p>
+ * Run all benchmarks with allocation rates using
+ * {@code java -jar benchmarks/target/benchmarks.jar -prof gc}.
+ */
+@State(Scope.Benchmark)
+public class TokenBenchmarkState {
+    public static final String ACCESS_TOKEN_KEY = "{\"kty\":\"oct\",\"k\":\"hi7S5RX5ZRZooHA0RKGctZ-KtR9FoESgCnH-3BNg5XI\"}";
+
+    public static final String REFRESH_TOKEN_KEY = "{\"kty\":\"oct\",\"k\":\"956PBFst1FguLr5irJD-aQ\"}";
+
+    @Param({"1", "10", "50"})
+    public int authorityCount;
+
+    @Param({"PT5M", "P1D"})
+    public String tokenValidity;
+
+    public Authentication authentication;
+
+    public Token refreshToken;
+
+    public Token accessToken;
+
+    public AccessTokenJwsStringSerializer accessTokenStringSerializer;
+
+    public FastAccessTokenJwsStringSerializer fastAccessTokenStringSerializer;
+
+    public RefreshTokenJweStringSerializer refreshTokenStringSerializer;
+
+    public AccessTokenJwsStringDeserializer accessTokenStringDeserializer;
+
+    public FastAccessTokenJwsStringDeserializer fastAccessTokenStringDeserializer;
+
+    public RefreshTokenJweStringDeserializer refreshTokenStringDeserializer;
+
+    public DefaultRefreshTokenFactory refreshTokenFactory;
+
+    public DefaultAccessTokenFactory accessTokenFactory;
+
+    public String accessTokenString;
+
+    public String refreshTokenString;
+
+    @Setup
+    public void setUp() throws Exception {
+        var accessTokenKey = OctetSequenceKey.parse(ACCESS_TOKEN_KEY);
+        var refreshTokenKey = OctetSequenceKey.parse(REFRESH_TOKEN_KEY);
+        this.accessTokenStringSerializer = new AccessTokenJwsStringSerializer(new MACSigner(accessTokenKey));
+        this.fastAccessTokenStringSerializer = new FastAccessTokenJwsStringSerializer(accessTokenKey.toSecretKey());
+        this.refreshTokenStringSerializer = new RefreshTokenJweStringSerializer(new DirectEncrypter(refreshTokenKey));
+        this.accessTokenStringDeserializer = new AccessTokenJwsStringDeserializer(new MACVerifier(accessTokenKey));
+        this.fastAccessTokenStringDeserializer = new FastAccessTokenJwsStringDeserializer(accessTokenKey.toSecretKey());
+        this.refreshTokenStringDeserializer = new RefreshTokenJweStringDeserializer(new DirectDecrypter(refreshTokenKey));
+
+        var validity = Duration.parse(this.tokenValidity);
+        this.refreshTokenFactory = new DefaultRefreshTokenFactory();
+        this.refreshTokenFactory.setTokenTtl(validity);
+        this.accessTokenFactory = new DefaultAccessTokenFactory();
+        this.accessTokenFactory.setTokenTtl(validity);
+
+        this.authentication = UsernamePasswordAuthenticationToken.authenticated("j.jameson", null,
+                IntStream.range(0, this.authorityCount)
+                        .mapToObj(i -> new SimpleGrantedAuthority("ROLE_AUTHORITY_" + i))
+                        .toList());
+        this.refreshToken = this.refreshTokenFactory.apply(this.authentication);
+        this.accessToken = this.accessTokenFactory.apply(this.refreshToken);
+        this.accessTokenString = this.accessTokenStringSerializer.apply(this.accessToken);
+        this.refreshTokenString = this.refreshTokenStringSerializer.apply(this.refreshToken);
+    }
+}
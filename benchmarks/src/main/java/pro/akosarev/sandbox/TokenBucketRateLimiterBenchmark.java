@@ -0,0 +1,67 @@
+package pro.akosarev.sandbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of {@link TokenBucketRateLimiter} with 8 threads: all requests from one client
+ * address, from 10 000 addresses that fit into the limiter, and from random addresses of a sprayed /8 that
+ * keep the limiter evicting. At 50 permits per second most requests are rejected, at a billion most take
+ * a permit with a compare-and-set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenBucketRateLimiterBenchmark {
+
+    @Param({"1", "10000", "sprayed"})
+    public String clients;
+
+    @Param({"50", "1000000000"})
+    public double permitsPerSecond;
+
+    private TokenBucketRateLimiter rateLimiter;
+
+    private String[] addresses;
+
+    @Setup
+    public void setUp() {
+        this.rateLimiter = new TokenBucketRateLimiter(this.permitsPerSecond, 100, 100_000);
+        this.addresses = switch (this.clients) {
+            case "1" -> new String[]{"192.0.2.1"};
+            case "10000" -> {
+                var addresses = new String[10_000];
+                for (var i = 0; i < addresses.length; i++) {
+                    addresses[i] = "10.0.%d.%d".formatted(i / 256, i % 256);
+                }
+                yield addresses;
+            }
+            default -> null;
+        };
+    }
+
+    @Benchmark
+    public long acquire() {
+        var random = ThreadLocalRandom.current();
+        var address = this.addresses != null ? this.addresses[random.nextInt(this.addresses.length)] :
+                "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+        return this.rateLimiter.acquire(address);
+    }
+}
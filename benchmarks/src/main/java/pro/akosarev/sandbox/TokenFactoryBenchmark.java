@@ -0,0 +1,29 @@
+package pro.akosarev.sandbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenFactoryBenchmark {
+
+    @Benchmark
+    public Token refreshTokenFactory(TokenBenchmarkState state) {
+        return state.refreshTokenFactory.apply(state.authentication);
+    }
+
+    @Benchmark
+    public Token accessTokenFactory(TokenBenchmarkState state) {
+        return state.accessTokenFactory.apply(state.refreshToken);
+    }
+}
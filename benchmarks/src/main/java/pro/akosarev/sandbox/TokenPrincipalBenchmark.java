@@ -0,0 +1,60 @@
+package pro.akosarev.sandbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the principal of a refresh token and checking its {@code JWT_REFRESH} authority, with a {@link User}
+ * as before and with the {@link TokenPrincipal} of {@link TokenAuthenticationUserDetailsService}.
+ * Compare the allocation rates with {@code -prof gc}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenPrincipalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class PrincipalState {
+        public TokenAuthenticationUserDetailsService userDetailsService;
+
+        public PreAuthenticatedAuthenticationToken authenticationToken;
+
+        @Setup
+        public void setUp(TokenBenchmarkState tokens) {
+            this.userDetailsService = new TokenAuthenticationUserDetailsService(tokenId -> false);
+            this.authenticationToken = new PreAuthenticatedAuthenticationToken(tokens.refreshToken,
+                    tokens.refreshTokenString);
+        }
+    }
+
+    @Benchmark
+    public boolean user(PrincipalState state) {
+        var token = (Token) state.authenticationToken.getPrincipal();
+        var user = new User(token.subject(), "nopassword", true, true, true, true,
+                token.authorities().stream()
+                        .map(SimpleGrantedAuthority::new)
+                        .toList());
+        return user.getAuthorities().contains(new SimpleGrantedAuthority("JWT_REFRESH"));
+    }
+
+    @Benchmark
+    public boolean tokenPrincipal(PrincipalState state) {
+        var principal = (TokenPrincipal) state.userDetailsService.loadUserDetails(state.authenticationToken);
+        return principal.hasAuthority("JWT_REFRESH");
+    }
+}
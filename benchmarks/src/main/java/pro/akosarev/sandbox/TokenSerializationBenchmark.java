@@ -0,0 +1,34 @@
+package pro.akosarev.sandbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenSerializationBenchmark {
+
+    @Benchmark
+    public String accessTokenJwsSerialization(TokenBenchmarkState state) {
+        return state.accessTokenStringSerializer.apply(state.accessToken);
+    }
+
+    @Benchmark
+    public String fastAccessTokenJwsSerialization(TokenBenchmarkState state) {
+        return state.fastAccessTokenStringSerializer.apply(state.accessToken);
+    }
+
+    @Benchmark
+    public String refreshTokenJweSerialization(TokenBenchmarkState state) {
+        return state.refreshTokenStringSerializer.apply(state.refreshToken);
+    }
+}
@@ -0,0 +1,122 @@
+package pro.akosarev.sandbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load driver for comparing bearer-authentication on platform and on virtual threads.
+ * <p>
+ * Requests a token pair once, then runs {@code clients} concurrent clients that request {@code path}
+ * with the access token, pausing {@code think-time} between requests to model slow clients, and reports
+ * throughput, latency percentiles and response statuses. {@code virtual-threads-comparison.sh} starts
+ * the application with and without the {@code virtual-threads} profile and runs this driver against each:
+ * {@code java -cp benchmarks/target/benchmarks.jar pro.akosarev.sandbox.VirtualThreadsLoadComparison
+ * http://localhost:8080 2000 PT30S PT0.05S /manager.html}.
+ */
+public class VirtualThreadsLoadComparison {
+    // below the default limit of 100 concurrent streams per HTTP/2 connection of Tomcat
+    private static final int CLIENTS_PER_CONNECTION = 50;
+
+    public static void main(String[] args) throws Exception {
+        var baseUri = URI.create(args.length > 0 ? args[0] : "http://localhost:8080");
+        var clients = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        var duration = args.length > 2 ? Duration.parse(args[2]) : Duration.ofSeconds(30);
+        var thinkTime = args.length > 3 ? Duration.parse(args[3]) : Duration.ofMillis(50);
+        var path = args.length > 4 ? args[4] : "/manager.html";
+
+        var httpClients = new HttpClient[(clients + CLIENTS_PER_CONNECTION - 1) / CLIENTS_PER_CONNECTION];
+        var httpClientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        for (var i = 0; i < httpClients.length; i++) {
+            httpClients[i] = HttpClient.newBuilder()
+                    .executor(httpClientExecutor)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+        }
+        var tokensResponse = httpClients[0].send(HttpRequest.newBuilder(baseUri.resolve("/jwt/tokens"))
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString("j.jameson:password".getBytes(StandardCharsets.UTF_8)))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (tokensResponse.statusCode() != 200) {
+            throw new IllegalStateException("Token request failed with " + tokensResponse.statusCode());
+        }
+        var accessToken = new ObjectMapper().readTree(tokensResponse.body()).get("accessToken").asText();
+        var request = HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Authorization", "Bearer " + accessToken)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        var statuses = new ConcurrentHashMap<String, LongAdder>();
+        var latencies = new long[clients][];
+        var counts = new int[clients];
+        var deadline = System.nanoTime() + duration.toNanos();
+        var startedAt = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < clients; i++) {
+                var client = i;
+                var httpClient = httpClients[i / CLIENTS_PER_CONNECTION];
+                executor.submit(() -> {
+                    var clientLatencies = new long[1024];
+                    var count = 0;
+                    while (System.nanoTime() < deadline) {
+                        var sentAt = System.nanoTime();
+                        String status;
+                        try {
+                            status = Integer.toString(httpClient.send(request, HttpResponse.BodyHandlers.discarding())
+                                    .statusCode());
+                        } catch (Exception exception) {
+                            status = exception.getClass().getSimpleName();
+                        }
+                        if (count == clientLatencies.length) {
+                            clientLatencies = Arrays.copyOf(clientLatencies, count * 2);
+                        }
+                        clientLatencies[count++] = System.nanoTime() - sentAt;
+                        statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+                        Thread.sleep(thinkTime);
+                    }
+                    latencies[client] = clientLatencies;
+                    counts[client] = count;
+                    return null;
+                });
+            }
+        }
+        var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+
+        var all = new long[Arrays.stream(counts).sum()];
+        var offset = 0;
+        for (var i = 0; i < clients; i++) {
+            System.arraycopy(latencies[i], 0, all, offset, counts[i]);
+            offset += counts[i];
+        }
+        Arrays.sort(all);
+        System.out.printf("%d clients, %s think time, %d requests in %.1f s: %.0f requests/s%n", clients,
+                thinkTime, all.length, elapsed.toMillis() / 1000.0, all.length * 1e9 / elapsed.toNanos());
+        System.out.printf("latency ms: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                percentile(all, 0.5), percentile(all, 0.9), percentile(all, 0.99), percentile(all, 0.999),
+                percentile(all, 1));
+        var sortedStatuses = new TreeMap<String, Long>();
+        statuses.forEach((status, count) -> sortedStatuses.put(status, count.sum()));
+        System.out.println("statuses: " + sortedStatuses);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        var index = Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,93 @@
+#!/usr/bin/env bash
+# Compares the cold start of bearer-authentication on the JVM, on the JVM with a CDS archive and as a native image.
+# Every run starts on an empty schema, so schema.sql and data.sql are part of the startup, and reports the JVM
+# uptime at "Started", the latency of the first and the second token request and the RSS after them.
+# The native image is built with the native profile and needs GraalVM's native-image on the PATH, without it the
+# native runs are skipped. Postgres is started from compose.yml once for all runs.
+# Usage: benchmarks/startup-comparison.sh [runs]
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=18080
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+
+cd "$ROOT"
+mkdir -p target
+mvn -B -q install -DskipTests
+mvn -B -q -pl bearer-authentication dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+# CDS archives only classes loaded from jar files
+CLASSPATH="$(cat bearer-authentication/target/classpath.txt):bearer-authentication/target/bearer-authentication-1.0-SNAPSHOT.jar"
+NATIVE_IMAGE=bearer-authentication/target/bearer-authentication
+if command -v native-image > /dev/null; then
+  mvn -B -q -Pnative -pl bearer-authentication package -DskipTests
+else
+  echo "native-image not found, skipping the native image"
+  NATIVE_IMAGE=
+fi
+
+docker compose up -d --wait db
+DB_PORT=$(docker compose port db 5432 | cut -d: -f2)
+APP_ARGS=(--server.port=$PORT --server.ssl.enabled=false --spring.docker.compose.enabled=false
+  --spring.datasource.url="jdbc:postgresql://localhost:$DB_PORT/sandbox"
+  --spring.datasource.username=sandbox --spring.datasource.password=sandbox
+  --logging.level.org.springframework.security=info)
+
+APP_PID=
+trap '[ -z "$APP_PID" ] || kill $APP_PID 2>/dev/null || true' EXIT
+
+reset_schema() {
+  docker compose exec -T db psql -q -U sandbox -d sandbox -c "drop schema public cascade; create schema public;"
+}
+
+request_tokens() {
+  curl -s -o /dev/null -w "%{http_code} %{time_total}\n" -X POST -u j.jameson:password "http://localhost:$PORT/jwt/tokens"
+}
+
+# run <name> <command...>: prints "uptime-ms first-request-ms second-request-ms rss-kb"
+run() {
+  local log="target/startup-$1.log"
+  shift
+  reset_schema
+  "$@" "${APP_ARGS[@]}" > "$log" 2>&1 &
+  local pid=$!
+  APP_PID=$pid
+  until grep -q "Started SandboxSpringSecurityJwtApplication" "$log"; do
+    kill -0 $pid 2>/dev/null || { tail -50 "$log" >&2; exit 1; }
+    sleep 0.01
+  done
+  local first second
+  read -r status first < <(request_tokens)
+  [ "$status" = 200 ] || { echo "token request failed with $status" >&2; tail -50 "$log" >&2; exit 1; }
+  read -r status second < <(request_tokens)
+  local uptime
+  uptime=$(sed -n 's/.*process running for \([0-9.]*\)).*/\1/p' "$log")
+  echo "$uptime $first $second $(ps -o rss= -p $pid)" | awk '{printf "%.0f %.1f %.1f %d\n", $1 * 1000, $2 * 1000, $3 * 1000, $4}'
+  kill $pid
+  wait $pid || true
+}
+
+# compare <name> <command...>: runs the command RUNS times and prints the medians
+compare() {
+  local name=$1 results="target/startup-$1.txt"
+  for i in $(seq "$RUNS"); do
+    run "$name" "${@:2}"
+  done > "$results"
+  median() {
+    cut -d' ' -f"$1" "$results" | sort -n | sed -n "$(((RUNS + 1) / 2))p"
+  }
+  printf "%-8s uptime %6s ms, first request %7s ms, second request %6s ms, rss %7s KB\n" \
+    "$name" "$(median 1)" "$(median 2)" "$(median 3)" "$(median 4)"
+}
+
+# a training run that exits once the context is refreshed writes the CDS archive
+reset_schema
+java -XX:ArchiveClassesAtExit=target/bearer-authentication.jsa -Dspring.context.exit=onRefresh -cp "$CLASSPATH" \
+  pro.akosarev.sandbox.SandboxSpringSecurityJwtApplication "${APP_ARGS[@]}" > target/startup-cds-training.log 2>&1
+
+echo "median of $RUNS runs"
+compare jvm java -cp "$CLASSPATH" pro.akosarev.sandbox.SandboxSpringSecurityJwtApplication
+compare jvm-cds java -XX:SharedArchiveFile=target/bearer-authentication.jsa -cp "$CLASSPATH" \
+  pro.akosarev.sandbox.SandboxSpringSecurityJwtApplication
+if [ -n "$NATIVE_IMAGE" ]; then
+  compare native "$NATIVE_IMAGE"
+fi
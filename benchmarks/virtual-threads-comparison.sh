@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+# Compares bearer-authentication on platform threads and on the virtual-threads profile.
+# Every request does a revocation lookup in the database, the application's Postgres is started
+# by spring-boot-docker-compose from compose.yml. Usage: benchmarks/virtual-threads-comparison.sh [clients] [duration] [think-time]
+set -euo pipefail
+
+CLIENTS=${1:-2000}
+DURATION=${2:-PT30S}
+THINK_TIME=${3:-PT0.05S}
+PORT=18080
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+
+cd "$ROOT"
+mkdir -p target
+mvn -B -q install -DskipTests
+mvn -B -q -pl bearer-authentication dependency:build-classpath -Dmdep.outputFile=target/classpath.txt
+CLASSPATH="$(cat bearer-authentication/target/classpath.txt):bearer-authentication/target/classes"
+
+run() {
+  local name=$1
+  shift
+  java -Djdk.tracePinnedThreads=short -cp "$CLASSPATH" pro.akosarev.sandbox.SandboxSpringSecurityJwtApplication \
+    --server.port=$PORT --server.ssl.enabled=false --jwt.revocation.in-memory=false --jwt.rate-limit.enabled=false \
+    --logging.level.org.springframework.security=info "$@" > "target/$name.log" 2>&1 &
+  local pid=$!
+  until grep -q "Started SandboxSpringSecurityJwtApplication" "target/$name.log"; do
+    kill -0 $pid 2>/dev/null || { tail -50 "target/$name.log"; exit 1; }
+    sleep 1
+  done
+
+  echo "== $name"
+  java -cp benchmarks/target/benchmarks.jar pro.akosarev.sandbox.VirtualThreadsLoadComparison \
+    "http://localhost:$PORT" "$CLIENTS" "$DURATION" "$THINK_TIME" /manager.html
+  curl -s "http://localhost:$PORT/actuator/metrics/jwt.jdbc.queue" -u j.jameson:password || true
+  echo
+  echo "pinned thread events: $(grep -c "<== monitors" "target/$name.log" || true)"
+  kill $pid
+  wait $pid || true
+}
+
+run platform-threads
+run virtual-threads --spring.profiles.active=virtual-threads
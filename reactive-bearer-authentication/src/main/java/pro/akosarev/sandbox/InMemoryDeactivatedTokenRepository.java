@@ -0,0 +1,32 @@
+package pro.akosarev.sandbox;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * {@link ReactiveDeactivatedTokenRepository} backed by a {@link RevokedTokenSet}, whose lookups and inserts
+ * never block for longer than a lock held by another insert.
+ */
+public class InMemoryDeactivatedTokenRepository implements ReactiveDeactivatedTokenRepository {
+    private final RevokedTokenSet revokedTokenSet;
+
+    public InMemoryDeactivatedTokenRepository() {
+        this(new RevokedTokenSet());
+    }
+
+    public InMemoryDeactivatedTokenRepository(RevokedTokenSet revokedTokenSet) {
+        this.revokedTokenSet = revokedTokenSet;
+    }
+
+    @Override
+    public Mono<Boolean> isDeactivated(UUID tokenId) {
+        return Mono.fromSupplier(() -> this.revokedTokenSet.isRevoked(tokenId));
+    }
+
+    @Override
+    public Mono<Void> deactivate(UUID tokenId, Instant keepUntil) {
+        return Mono.fromRunnable(() -> this.revokedTokenSet.add(tokenId, keepUntil));
+    }
+}
@@ -0,0 +1,61 @@
+package pro.akosarev.sandbox;
+
+import lombok.Setter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+public class JwtLogoutWebFilter implements WebFilter {
+    @Setter
+    private ServerWebExchangeMatcher requestMatcher =
+            ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/jwt/logout");
+
+    @Setter
+    private RevokedTokenSet revokedTokenSet;
+
+    @Setter
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+    private final ReactiveDeactivatedTokenRepository deactivatedTokenRepository;
+
+    public JwtLogoutWebFilter(ReactiveDeactivatedTokenRepository deactivatedTokenRepository) {
+        this.deactivatedTokenRepository = deactivatedTokenRepository;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return this.requestMatcher.matches(exchange)
+                .flatMap(matchResult -> matchResult.isMatch() ? this.logout(exchange) : chain.filter(exchange));
+    }
+
+    private Mono<Void> logout(ServerWebExchange exchange) {
+        var startedAt = System.nanoTime();
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(authentication -> authentication instanceof PreAuthenticatedAuthenticationToken &&
+                        authentication.getPrincipal() instanceof TokenPrincipal user &&
+                        user.hasAuthority("JWT_LOGOUT"))
+                .switchIfEmpty(Mono.error(() -> new AccessDeniedException("User must be authenticated with JWT")))
+                .flatMap(authentication -> {
+                    var token = ((TokenPrincipal) authentication.getPrincipal()).getToken();
+                    if (this.revokedTokenSet != null) {
+                        this.revokedTokenSet.add(token.id(), token.expiresAt());
+                    }
+                    return this.deactivatedTokenRepository.deactivate(token.id(), token.expiresAt());
+                })
+                .then(Mono.defer(() -> {
+                    exchange.getResponse().setStatusCode(HttpStatus.NO_CONTENT);
+                    this.metrics.recordTokenRevoked(System.nanoTime() - startedAt);
+                    return exchange.getResponse().setComplete();
+                }));
+    }
+}
@@ -0,0 +1,33 @@
+package pro.akosarev.sandbox;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reads the bearer token of a request with a {@link BearerTokenDeserializer}.
+ */
+public class JwtServerAuthenticationConverter implements ServerAuthenticationConverter {
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final BearerTokenDeserializer bearerTokenDeserializer;
+
+    public JwtServerAuthenticationConverter(BearerTokenDeserializer bearerTokenDeserializer) {
+        this.bearerTokenDeserializer = bearerTokenDeserializer;
+    }
+
+    @Override
+    public Mono<Authentication> convert(ServerWebExchange exchange) {
+        var authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.startsWith(BEARER_PREFIX)) {
+            var token = authorization.substring(BEARER_PREFIX.length());
+            if (this.bearerTokenDeserializer.deserialize(token) instanceof TokenDeserializationResult.Success success) {
+                return Mono.just(new PreAuthenticatedAuthenticationToken(success.token(), token));
+            }
+        }
+        return Mono.empty();
+    }
+}
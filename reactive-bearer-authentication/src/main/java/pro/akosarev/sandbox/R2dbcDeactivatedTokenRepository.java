@@ -0,0 +1,47 @@
+package pro.akosarev.sandbox;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+public class R2dbcDeactivatedTokenRepository implements ReactiveDeactivatedTokenRepository {
+    private final DatabaseClient databaseClient;
+
+    private final String selectSql;
+
+    private final String insertSql;
+
+    public R2dbcDeactivatedTokenRepository(DatabaseClient databaseClient) {
+        this(databaseClient, "t_deactivated_token");
+    }
+
+    public R2dbcDeactivatedTokenRepository(DatabaseClient databaseClient, String tableName) {
+        this.databaseClient = databaseClient;
+        this.selectSql = "select exists(select id from %s where id = :id)".formatted(tableName);
+        this.insertSql = "insert into %s (id, c_keep_until) values (:id, :keepUntil)".formatted(tableName);
+    }
+
+    @Override
+    public Mono<Boolean> isDeactivated(UUID tokenId) {
+        return this.databaseClient.sql(this.selectSql)
+                .bind("id", tokenId)
+                .map(row -> Boolean.TRUE.equals(row.get(0, Boolean.class)))
+                .one()
+                .defaultIfEmpty(false);
+    }
+
+    @Override
+    public Mono<Void> deactivate(UUID tokenId, Instant keepUntil) {
+        // c_keep_until is a timestamp without time zone, written in the default time zone as JDBC does
+        return this.databaseClient.sql(this.insertSql)
+                .bind("id", tokenId)
+                .bind("keepUntil", LocalDateTime.ofInstant(keepUntil, ZoneId.systemDefault()))
+                .then()
+                .onErrorResume(DataIntegrityViolationException.class, exception -> Mono.empty());
+    }
+}
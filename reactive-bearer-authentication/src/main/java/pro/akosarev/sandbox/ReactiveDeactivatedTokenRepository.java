@@ -0,0 +1,16 @@
+package pro.akosarev.sandbox;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Non-blocking counterpart of {@link TokenRevocationChecker} and {@link DeactivatedTokenWriter}.
+ */
+public interface ReactiveDeactivatedTokenRepository {
+
+    Mono<Boolean> isDeactivated(UUID tokenId);
+
+    Mono<Void> deactivate(UUID tokenId, Instant keepUntil);
+}
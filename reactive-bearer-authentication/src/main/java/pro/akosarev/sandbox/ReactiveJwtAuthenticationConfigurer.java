@@ -0,0 +1,112 @@
+package pro.akosarev.sandbox;
+
+import lombok.Builder;
+import lombok.Setter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.csrf.CsrfWebFilter;
+import org.springframework.security.web.server.util.matcher.AndServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.OrServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+import java.util.function.Function;
+
+/**
+ * {@link ServerHttpSecurity} counterpart of the servlet {@code JwtAuthenticationConfigurer}, taking the same
+ * token serializers and deserializers.
+ * <p>
+ * Revocation lookups and inserts go through a {@link ReactiveDeactivatedTokenRepository}, or through
+ * the {@link RevokedTokenSet} when one is given, so no request thread is blocked on the database.
+ * As a {@link ServerHttpSecurity} cannot be extended with configurers, apply it with
+ * {@link #configure(ServerHttpSecurity)} before building the chain.
+ */
+@Setter
+@Builder
+public class ReactiveJwtAuthenticationConfigurer {
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Builder.Default
+    private Function<Token, String> refreshTokenStringSerializer = Object::toString;
+
+    @Builder.Default
+    private Function<Token, String> accessTokenStringSerializer = Object::toString;
+
+    private Function<String, Token> accessTokenStringDeserializer;
+
+    private Function<String, Token> refreshTokenStringDeserializer;
+
+    private ReactiveDeactivatedTokenRepository deactivatedTokenRepository;
+
+    private RevokedTokenSet revokedTokenSet;
+
+    private JwtMetrics metrics;
+
+    public ServerHttpSecurity configure(ServerHttpSecurity http) {
+        var metrics = this.metrics != null ? this.metrics : JwtMetrics.noop();
+
+        var requestJwtTokensWebFilter = new RequestJwtTokensWebFilter();
+        requestJwtTokensWebFilter.setAccessTokenStringSerializer(this.accessTokenStringSerializer);
+        requestJwtTokensWebFilter.setRefreshTokenStringSerializer(this.refreshTokenStringSerializer);
+        requestJwtTokensWebFilter.setMetrics(metrics);
+
+        var bearerTokenDeserializer = new BearerTokenDeserializer(this.accessTokenStringDeserializer,
+                this.refreshTokenStringDeserializer);
+        bearerTokenDeserializer.setMetrics(metrics);
+
+        var deactivatedTokenRepository = this.deactivatedTokenRepository;
+        if (deactivatedTokenRepository == null) {
+            deactivatedTokenRepository = new InMemoryDeactivatedTokenRepository(this.revokedTokenSet != null ?
+                    this.revokedTokenSet : new RevokedTokenSet());
+        }
+
+        var authenticationManager = new ReactiveTokenAuthenticationManager(this.revokedTokenSet != null ?
+                new InMemoryDeactivatedTokenRepository(this.revokedTokenSet) : deactivatedTokenRepository);
+        authenticationManager.setMetrics(metrics);
+
+        var jwtAuthenticationWebFilter = new AuthenticationWebFilter(authenticationManager);
+        jwtAuthenticationWebFilter.setServerAuthenticationConverter(
+                new JwtServerAuthenticationConverter(bearerTokenDeserializer));
+        jwtAuthenticationWebFilter.setAuthenticationSuccessHandler((webFilterExchange, authentication) -> {
+            metrics.recordAuthentication(true);
+            return webFilterExchange.getChain().filter(webFilterExchange.getExchange());
+        });
+        jwtAuthenticationWebFilter.setAuthenticationFailureHandler((webFilterExchange, exception) -> {
+            metrics.recordAuthentication(false);
+            webFilterExchange.getExchange().getResponse().setStatusCode(HttpStatus.FORBIDDEN);
+            return webFilterExchange.getExchange().getResponse().setComplete();
+        });
+
+        var refreshTokenWebFilter = new RefreshTokenWebFilter();
+        refreshTokenWebFilter.setAccessTokenStringSerializer(this.accessTokenStringSerializer);
+        refreshTokenWebFilter.setMetrics(metrics);
+
+        var jwtLogoutWebFilter = new JwtLogoutWebFilter(deactivatedTokenRepository);
+        if (this.deactivatedTokenRepository != null) {
+            jwtLogoutWebFilter.setRevokedTokenSet(this.revokedTokenSet);
+        }
+        jwtLogoutWebFilter.setMetrics(metrics);
+
+        // the CSRF filter runs before authentication, so requests with a bearer token are exempted up front
+        ServerWebExchangeMatcher bearerTokenMatcher = exchange -> {
+            var authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            return authorization != null && authorization.startsWith(BEARER_PREFIX) ?
+                    ServerWebExchangeMatcher.MatchResult.match() : ServerWebExchangeMatcher.MatchResult.notMatch();
+        };
+        var csrfProtectionMatcher = new AndServerWebExchangeMatcher(CsrfWebFilter.DEFAULT_CSRF_MATCHER,
+                new NegatedServerWebExchangeMatcher(new OrServerWebExchangeMatcher(bearerTokenMatcher,
+                        ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/jwt/tokens"))));
+
+        return http
+                .csrf(csrf -> csrf.requireCsrfProtectionMatcher(csrfProtectionMatcher))
+                .addFilterAt(jwtAuthenticationWebFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .addFilterAfter(requestJwtTokensWebFilter, SecurityWebFiltersOrder.EXCEPTION_TRANSLATION)
+                .addFilterAfter(refreshTokenWebFilter, SecurityWebFiltersOrder.EXCEPTION_TRANSLATION)
+                .addFilterAfter(jwtLogoutWebFilter, SecurityWebFiltersOrder.EXCEPTION_TRANSLATION);
+    }
+}
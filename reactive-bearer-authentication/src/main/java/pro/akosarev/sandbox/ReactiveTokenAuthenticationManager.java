@@ -0,0 +1,57 @@
+package pro.akosarev.sandbox;
+
+import lombok.Setter;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Reactive counterpart of {@link TokenAuthenticationUserDetailsService} with a pre-authenticated provider:
+ * authenticates a {@link Token} that has not expired and has not been deactivated as a {@link TokenPrincipal}.
+ */
+public class ReactiveTokenAuthenticationManager implements ReactiveAuthenticationManager {
+    private final ReactiveDeactivatedTokenRepository deactivatedTokenRepository;
+
+    private final AuthorityRegistry authorityRegistry;
+
+    @Setter
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+    public ReactiveTokenAuthenticationManager(ReactiveDeactivatedTokenRepository deactivatedTokenRepository) {
+        this(deactivatedTokenRepository, new AuthorityRegistry());
+    }
+
+    public ReactiveTokenAuthenticationManager(ReactiveDeactivatedTokenRepository deactivatedTokenRepository,
+                                              AuthorityRegistry authorityRegistry) {
+        this.deactivatedTokenRepository = deactivatedTokenRepository;
+        this.authorityRegistry = authorityRegistry;
+    }
+
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (!(authentication.getPrincipal() instanceof Token token)) {
+            return Mono.error(new BadCredentialsException("Principal must be of type Token"));
+        }
+        if (!token.expiresAt().isAfter(Instant.now())) {
+            return Mono.error(new CredentialsExpiredException("Token has expired"));
+        }
+
+        return Mono.defer(() -> {
+            var startedAt = System.nanoTime();
+            return this.deactivatedTokenRepository.isDeactivated(token.id())
+                    .doOnNext(ignored -> this.metrics.recordRevocationLookup(System.nanoTime() - startedAt));
+        }).flatMap(deactivated -> {
+            if (deactivated) {
+                return Mono.error(new CredentialsExpiredException("Token has been deactivated"));
+            }
+            var user = new TokenPrincipal(token, this.authorityRegistry.authoritySet(token.authorities()), true);
+            return Mono.just(new PreAuthenticatedAuthenticationToken(user, authentication.getCredentials(),
+                    user.getAuthorities()));
+        });
+    }
+}
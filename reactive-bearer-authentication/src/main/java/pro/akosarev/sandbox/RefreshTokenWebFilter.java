@@ -0,0 +1,62 @@
+package pro.akosarev.sandbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Setter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+@Setter
+public class RefreshTokenWebFilter implements WebFilter {
+    private ServerWebExchangeMatcher requestMatcher =
+            ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/jwt/refresh");
+
+    private Function<Token, Token> accessTokenFactory = new DefaultAccessTokenFactory();
+
+    private Function<Token, String> accessTokenStringSerializer = Object::toString;
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return this.requestMatcher.matches(exchange)
+                .flatMap(matchResult -> matchResult.isMatch() ? this.refresh(exchange) : chain.filter(exchange));
+    }
+
+    private Mono<Void> refresh(ServerWebExchange exchange) {
+        var startedAt = System.nanoTime();
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(authentication -> authentication instanceof PreAuthenticatedAuthenticationToken &&
+                        authentication.getPrincipal() instanceof TokenPrincipal user &&
+                        user.hasAuthority("JWT_REFRESH"))
+                .switchIfEmpty(Mono.error(() -> new AccessDeniedException("User must be authenticated with JWT")))
+                .flatMap(authentication -> {
+                    var user = (TokenPrincipal) authentication.getPrincipal();
+                    var accessToken = this.accessTokenFactory.apply(user.getToken());
+
+                    var response = exchange.getResponse();
+                    response.setStatusCode(HttpStatus.OK);
+                    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    return Mono.fromCallable(() -> response.bufferFactory().wrap(this.objectMapper.writeValueAsBytes(
+                                    new Tokens(this.accessTokenStringSerializer.apply(accessToken),
+                                            accessToken.expiresAt().toString(), null, null))))
+                            .flatMap(body -> response.writeWith(Mono.just(body)))
+                            .doOnSuccess(ignored -> this.metrics.recordTokenRefreshed(System.nanoTime() - startedAt));
+                });
+    }
+}
@@ -0,0 +1,69 @@
+package pro.akosarev.sandbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Setter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+@Setter
+public class RequestJwtTokensWebFilter implements WebFilter {
+    private ServerWebExchangeMatcher requestMatcher =
+            ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, "/jwt/tokens");
+
+    private Function<Authentication, Token> refreshTokenFactory = new DefaultRefreshTokenFactory();
+
+    private Function<Token, Token> accessTokenFactory = new DefaultAccessTokenFactory();
+
+    private Function<Token, String> refreshTokenStringSerializer = Object::toString;
+
+    private Function<Token, String> accessTokenStringSerializer = Object::toString;
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return this.requestMatcher.matches(exchange)
+                .flatMap(matchResult -> matchResult.isMatch() ? this.issueTokens(exchange) : chain.filter(exchange));
+    }
+
+    private Mono<Void> issueTokens(ServerWebExchange exchange) {
+        var startedAt = System.nanoTime();
+        return ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .filter(authentication -> !(authentication instanceof PreAuthenticatedAuthenticationToken) &&
+                        !(authentication instanceof AnonymousAuthenticationToken))
+                .switchIfEmpty(Mono.error(() -> new AccessDeniedException("User must be authenticated")))
+                .flatMap(authentication -> {
+                    var refreshToken = this.refreshTokenFactory.apply(authentication);
+                    var accessToken = this.accessTokenFactory.apply(refreshToken);
+
+                    var response = exchange.getResponse();
+                    response.setStatusCode(HttpStatus.OK);
+                    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    return Mono.fromCallable(() -> response.bufferFactory().wrap(this.objectMapper.writeValueAsBytes(
+                                    new Tokens(this.accessTokenStringSerializer.apply(accessToken),
+                                            accessToken.expiresAt().toString(),
+                                            this.refreshTokenStringSerializer.apply(refreshToken),
+                                            refreshToken.expiresAt().toString()))))
+                            .flatMap(body -> response.writeWith(Mono.just(body)))
+                            .doOnSuccess(ignored -> this.metrics.recordTokensIssued(System.nanoTime() - startedAt));
+                });
+    }
+}
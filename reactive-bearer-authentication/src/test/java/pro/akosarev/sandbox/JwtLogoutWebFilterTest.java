@@ -0,0 +1,101 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtLogoutWebFilterTest {
+
+    private final InMemoryDeactivatedTokenRepository deactivatedTokenRepository =
+            new InMemoryDeactivatedTokenRepository();
+
+    private final JwtLogoutWebFilter filter = new JwtLogoutWebFilter(this.deactivatedTokenRepository);
+
+    private final AuthorityRegistry authorityRegistry = new AuthorityRegistry();
+
+    private final AtomicBoolean chainCalled = new AtomicBoolean();
+
+    @Test
+    void filter_LogoutToken_DeactivatesToken() {
+        var meterRegistry = new SimpleMeterRegistry();
+        this.filter.setMetrics(new JwtMetrics(meterRegistry));
+        var token = this.token("JWT_LOGOUT");
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/logout"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(this.authentication(token))))
+                .verifyComplete();
+
+        assertThat(this.chainCalled).isFalse();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+        assertThat(this.deactivatedTokenRepository.isDeactivated(token.id()).block()).isTrue();
+        assertThat(meterRegistry.get("jwt.tokens.revoked").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void filter_RevokedTokenSetSet_AddsTokenToRevokedTokenSet() {
+        var revokedTokenSet = new RevokedTokenSet();
+        this.filter.setRevokedTokenSet(revokedTokenSet);
+        var token = this.token("JWT_LOGOUT");
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/logout"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(this.authentication(token))))
+                .verifyComplete();
+
+        assertThat(revokedTokenSet.isRevoked(token.id())).isTrue();
+        assertThat(this.deactivatedTokenRepository.isDeactivated(token.id()).block()).isTrue();
+    }
+
+    @Test
+    void filter_TokenWithoutLogoutAuthority_ThrowsAccessDeniedException() {
+        var token = this.token("ROLE_MANAGER");
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/logout"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(this.authentication(token))))
+                .verifyError(AccessDeniedException.class);
+
+        assertThat(this.deactivatedTokenRepository.isDeactivated(token.id()).block()).isFalse();
+    }
+
+    @Test
+    void filter_OtherRequest_CallsChain() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/jwt/logout"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain))
+                .verifyComplete();
+
+        assertThat(this.chainCalled).isTrue();
+    }
+
+    private Token token(String... authorities) {
+        return new Token(UUID.randomUUID(), "j.jameson", List.of(authorities), Instant.now(),
+                Instant.now().plus(1, ChronoUnit.DAYS));
+    }
+
+    private PreAuthenticatedAuthenticationToken authentication(Token token) {
+        return new PreAuthenticatedAuthenticationToken(
+                new TokenPrincipal(token, this.authorityRegistry.authoritySet(token.authorities()), true), "token");
+    }
+
+    private Mono<Void> chain(ServerWebExchange exchange) {
+        return Mono.fromRunnable(() -> this.chainCalled.set(true));
+    }
+}
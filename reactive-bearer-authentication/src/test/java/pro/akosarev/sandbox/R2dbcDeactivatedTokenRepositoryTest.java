@@ -0,0 +1,72 @@
+package pro.akosarev.sandbox;
+
+import io.r2dbc.spi.ConnectionFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+class R2dbcDeactivatedTokenRepositoryTest {
+
+    private DatabaseClient databaseClient;
+
+    private R2dbcDeactivatedTokenRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        this.databaseClient = DatabaseClient.create(ConnectionFactories.get(
+                "r2dbc:h2:mem:///%s?options=MODE=PostgreSQL;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID())));
+        this.databaseClient.sql("""
+                        create table t_deactivated_token
+                        (
+                            id               uuid primary key,
+                            c_keep_until     timestamp not null,
+                            c_deactivated_at timestamp not null default now()
+                        )""")
+                .then()
+                .block();
+        this.repository = new R2dbcDeactivatedTokenRepository(this.databaseClient);
+    }
+
+    @Test
+    void isDeactivated_TokenNotDeactivated_ReturnsFalse() {
+        StepVerifier.create(this.repository.isDeactivated(UUID.randomUUID()))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void deactivate_Token_IsDeactivated() {
+        var tokenId = UUID.randomUUID();
+
+        StepVerifier.create(this.repository.deactivate(tokenId, Instant.now().plus(1, ChronoUnit.HOURS))
+                        .then(this.repository.isDeactivated(tokenId)))
+                .expectNext(true)
+                .verifyComplete();
+        StepVerifier.create(this.repository.isDeactivated(UUID.randomUUID()))
+                .expectNext(false)
+                .verifyComplete();
+    }
+
+    @Test
+    void deactivate_TokenDeactivatedTwice_KeepsFirstRow() {
+        var tokenId = UUID.randomUUID();
+        var keepUntil = Instant.now().plus(1, ChronoUnit.HOURS).truncatedTo(ChronoUnit.SECONDS);
+
+        StepVerifier.create(this.repository.deactivate(tokenId, keepUntil)
+                        .then(this.repository.deactivate(tokenId, keepUntil.plus(1, ChronoUnit.HOURS))))
+                .verifyComplete();
+
+        StepVerifier.create(this.databaseClient.sql("select c_keep_until from t_deactivated_token")
+                        .map(row -> row.get(0, LocalDateTime.class))
+                        .all())
+                .expectNext(LocalDateTime.ofInstant(keepUntil, ZoneId.systemDefault()))
+                .verifyComplete();
+    }
+}
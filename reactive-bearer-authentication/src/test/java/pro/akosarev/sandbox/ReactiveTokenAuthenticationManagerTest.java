@@ -0,0 +1,101 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReactiveTokenAuthenticationManagerTest {
+
+    private final InMemoryDeactivatedTokenRepository deactivatedTokenRepository =
+            new InMemoryDeactivatedTokenRepository();
+
+    private final ReactiveTokenAuthenticationManager authenticationManager =
+            new ReactiveTokenAuthenticationManager(this.deactivatedTokenRepository);
+
+    @Test
+    void authenticate_ActiveToken_ReturnsTokenPrincipal() {
+        var token = token(Instant.now().plus(5, ChronoUnit.MINUTES));
+
+        var authentication = this.authenticationManager
+                .authenticate(new PreAuthenticatedAuthenticationToken(token, "header.payload.signature"))
+                .block();
+
+        assertThat(authentication).isInstanceOf(PreAuthenticatedAuthenticationToken.class);
+        assertThat(authentication.getCredentials()).isEqualTo("header.payload.signature");
+        assertThat(authentication.getPrincipal()).isInstanceOfSatisfying(TokenPrincipal.class, principal -> {
+            assertThat(principal.getToken()).isEqualTo(token);
+            assertThat(principal.getUsername()).isEqualTo("j.jameson");
+            assertThat(principal.hasAuthority("ROLE_MANAGER")).isTrue();
+        });
+    }
+
+    @Test
+    void authenticate_DeactivatedToken_ThrowsCredentialsExpiredException() {
+        var token = token(Instant.now().plus(5, ChronoUnit.MINUTES));
+        this.deactivatedTokenRepository.deactivate(token.id(), token.expiresAt()).block();
+
+        assertThatThrownBy(() -> this.authenticationManager
+                .authenticate(new PreAuthenticatedAuthenticationToken(token, "header.payload.signature"))
+                .block())
+                .isInstanceOf(CredentialsExpiredException.class)
+                .hasMessage("Token has been deactivated");
+    }
+
+    @Test
+    void authenticate_OtherTokenDeactivated_ReturnsTokenPrincipal() {
+        var token = token(Instant.now().plus(5, ChronoUnit.MINUTES));
+        this.deactivatedTokenRepository.deactivate(UUID.randomUUID(), token.expiresAt()).block();
+
+        assertThat(this.authenticationManager
+                .authenticate(new PreAuthenticatedAuthenticationToken(token, "header.payload.signature"))
+                .block()).isNotNull();
+    }
+
+    @Test
+    void authenticate_ExpiredToken_ThrowsCredentialsExpiredException() {
+        var token = token(Instant.now().minus(1, ChronoUnit.SECONDS));
+
+        assertThatThrownBy(() -> this.authenticationManager
+                .authenticate(new PreAuthenticatedAuthenticationToken(token, "header.payload.signature"))
+                .block())
+                .isInstanceOf(CredentialsExpiredException.class)
+                .hasMessage("Token has expired");
+    }
+
+    @Test
+    void authenticate_PrincipalNotToken_ThrowsBadCredentialsException() {
+        assertThatThrownBy(() -> this.authenticationManager
+                .authenticate(new TestingAuthenticationToken("j.jameson", "password"))
+                .block())
+                .isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void authenticate_MetricsSet_RecordsRevocationLookup() {
+        var meterRegistry = new SimpleMeterRegistry();
+        this.authenticationManager.setMetrics(new JwtMetrics(meterRegistry));
+        var token = token(Instant.now().plus(5, ChronoUnit.MINUTES));
+
+        this.authenticationManager
+                .authenticate(new PreAuthenticatedAuthenticationToken(token, "header.payload.signature"))
+                .block();
+
+        assertThat(meterRegistry.get("jwt.revocation.lookup").timer().count()).isEqualTo(1);
+    }
+
+    private static Token token(Instant expiresAt) {
+        return new Token(UUID.randomUUID(), "j.jameson", List.of("ROLE_MANAGER"),
+                expiresAt.minus(5, ChronoUnit.MINUTES), expiresAt);
+    }
+}
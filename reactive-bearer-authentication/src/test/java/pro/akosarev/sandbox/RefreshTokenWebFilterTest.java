@@ -0,0 +1,93 @@
+package pro.akosarev.sandbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RefreshTokenWebFilterTest {
+
+    private final RefreshTokenWebFilter filter = new RefreshTokenWebFilter();
+
+    private final AuthorityRegistry authorityRegistry = new AuthorityRegistry();
+
+    private final AtomicBoolean chainCalled = new AtomicBoolean();
+
+    @Test
+    void filter_RefreshToken_WritesAccessToken() throws Exception {
+        this.filter.setAccessTokenStringSerializer(token -> "access:" + token.authorities());
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/refresh"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(
+                                this.authentication("JWT_REFRESH", "JWT_LOGOUT", "GRANT_ROLE_MANAGER"))))
+                .verifyComplete();
+
+        assertThat(this.chainCalled).isFalse();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        var tokens = new ObjectMapper().readValue(exchange.getResponse().getBodyAsString().block(), Tokens.class);
+        assertThat(tokens.accessToken()).isEqualTo("access:[ROLE_MANAGER]");
+        assertThat(tokens.accessTokenExpiry()).isNotNull();
+        assertThat(tokens.refreshToken()).isNull();
+        assertThat(tokens.refreshTokenExpiry()).isNull();
+    }
+
+    @Test
+    void filter_AccessToken_ThrowsAccessDeniedException() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/refresh"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(
+                                this.authentication("ROLE_MANAGER"))))
+                .verifyError(AccessDeniedException.class);
+    }
+
+    @Test
+    void filter_AuthenticatedWithPassword_ThrowsAccessDeniedException() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/refresh"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(
+                                UsernamePasswordAuthenticationToken.authenticated("j.jameson", null,
+                                        AuthorityUtils.createAuthorityList("JWT_REFRESH")))))
+                .verifyError(AccessDeniedException.class);
+    }
+
+    @Test
+    void filter_OtherRequest_CallsChain() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/tokens"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain))
+                .verifyComplete();
+
+        assertThat(this.chainCalled).isTrue();
+    }
+
+    private PreAuthenticatedAuthenticationToken authentication(String... authorities) {
+        var token = new Token(UUID.randomUUID(), "j.jameson", List.of(authorities), Instant.now(),
+                Instant.now().plus(1, ChronoUnit.DAYS));
+        return new PreAuthenticatedAuthenticationToken(
+                new TokenPrincipal(token, this.authorityRegistry.authoritySet(token.authorities()), true), "token");
+    }
+
+    private Mono<Void> chain(ServerWebExchange exchange) {
+        return Mono.fromRunnable(() -> this.chainCalled.set(true));
+    }
+}
@@ -0,0 +1,89 @@
+package pro.akosarev.sandbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestJwtTokensWebFilterTest {
+
+    private final RequestJwtTokensWebFilter filter = new RequestJwtTokensWebFilter();
+
+    private final AtomicBoolean chainCalled = new AtomicBoolean();
+
+    @Test
+    void filter_UserAuthenticated_WritesTokens() throws Exception {
+        var meterRegistry = new SimpleMeterRegistry();
+        this.filter.setMetrics(new JwtMetrics(meterRegistry));
+        this.filter.setRefreshTokenStringSerializer(token -> "refresh:" + token.authorities());
+        this.filter.setAccessTokenStringSerializer(token -> "access:" + token.authorities());
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/tokens"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(
+                                UsernamePasswordAuthenticationToken.authenticated("j.jameson", null,
+                                        AuthorityUtils.createAuthorityList("ROLE_MANAGER")))))
+                .verifyComplete();
+
+        assertThat(this.chainCalled).isFalse();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        var tokens = new ObjectMapper().readValue(exchange.getResponse().getBodyAsString().block(), Tokens.class);
+        assertThat(tokens.accessToken()).isEqualTo("access:[ROLE_MANAGER]");
+        assertThat(tokens.refreshToken()).isEqualTo("refresh:[JWT_REFRESH, JWT_LOGOUT, GRANT_ROLE_MANAGER]");
+        assertThat(Instant.parse(tokens.accessTokenExpiry())).isBefore(Instant.parse(tokens.refreshTokenExpiry()));
+        assertThat(meterRegistry.get("jwt.tokens.issued").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void filter_AuthenticatedWithToken_ThrowsAccessDeniedException() {
+        var token = new Token(UUID.randomUUID(), "j.jameson", List.of("JWT_REFRESH"), Instant.now(),
+                Instant.now().plusSeconds(60));
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/tokens"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain)
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(
+                                new PreAuthenticatedAuthenticationToken(token, "token"))))
+                .verifyError(AccessDeniedException.class);
+    }
+
+    @Test
+    void filter_NotAuthenticated_ThrowsAccessDeniedException() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/jwt/tokens"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain))
+                .verifyError(AccessDeniedException.class);
+    }
+
+    @Test
+    void filter_OtherRequest_CallsChain() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/jwt/tokens"));
+
+        StepVerifier.create(this.filter.filter(exchange, this::chain))
+                .verifyComplete();
+
+        assertThat(this.chainCalled).isTrue();
+    }
+
+    private Mono<Void> chain(ServerWebExchange exchange) {
+        return Mono.fromRunnable(() -> this.chainCalled.set(true));
+    }
+}
@@ -0,0 +1,51 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.text.ParseException;
+
+import static pro.akosarev.sandbox.TokenDeserializationResult.Reason;
+import static pro.akosarev.sandbox.TokenDeserializationResult.failure;
+
+public class AccessTokenJwsStringDeserializer implements TokenStringDeserializer {
+    private final KeyRing<JWSVerifier> jwsVerifiers;
+
+    public AccessTokenJwsStringDeserializer(JWSVerifier jwsVerifier) {
+        this(KeyRing.of(jwsVerifier));
+    }
+
+    public AccessTokenJwsStringDeserializer(KeyRing<JWSVerifier> jwsVerifiers) {
+        this.jwsVerifiers = jwsVerifiers;
+    }
+
+    @Override
+    public TokenDeserializationResult deserialize(String string) {
+        SignedJWT signedJWT;
+        try {
+            signedJWT = SignedJWT.parse(string);
+        } catch (ParseException exception) {
+            return failure(Reason.MALFORMED);
+        }
+
+        var jwsVerifier = this.jwsVerifiers.get(signedJWT.getHeader().getKeyID());
+        if (jwsVerifier == null) {
+            return failure(Reason.UNKNOWN_KEY);
+        }
+        if (!jwsVerifier.supportedJWSAlgorithms().contains(signedJWT.getHeader().getAlgorithm())) {
+            return failure(Reason.UNSUPPORTED_ALGORITHM);
+        }
+
+        try {
+            if (!signedJWT.verify(jwsVerifier)) {
+                return failure(Reason.INVALID_SIGNATURE);
+            }
+            return TokenClaims.toToken(signedJWT.getJWTClaimsSet());
+        } catch (JOSEException exception) {
+            return failure(Reason.INVALID_SIGNATURE);
+        } catch (ParseException exception) {
+            return failure(Reason.INVALID_CLAIMS);
+        }
+    }
+}
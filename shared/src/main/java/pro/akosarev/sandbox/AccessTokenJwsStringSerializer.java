@@ -6,7 +6,6 @@ import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
-import lombok.AllArgsConstructor;
 import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,34 +13,45 @@ import org.slf4j.LoggerFactory;
 import java.util.Date;
 import java.util.function.Function;
 
-@AllArgsConstructor
 public class AccessTokenJwsStringSerializer implements Function<Token, String> {
     private static final Logger LOGGER = LoggerFactory.getLogger(AccessTokenJwsStringSerializer.class);
 
-    private final JWSSigner jwsSigner;
+    private final KeyRing<JWSSigner> jwsSigners;
 
     @Setter
     private JWSAlgorithm jwsAlgorithm = JWSAlgorithm.HS256;
 
     public AccessTokenJwsStringSerializer(JWSSigner jwsSigner) {
-        this.jwsSigner = jwsSigner;
+        this(KeyRing.of(jwsSigner));
+    }
+
+    public AccessTokenJwsStringSerializer(JWSSigner jwsSigner, JWSAlgorithm jwsAlgorithm) {
+        this(KeyRing.of(jwsSigner));
+        this.jwsAlgorithm = jwsAlgorithm;
+    }
+
+    public AccessTokenJwsStringSerializer(KeyRing<JWSSigner> jwsSigners) {
+        this.jwsSigners = jwsSigners;
     }
 
     @Override
     public String apply(Token token) {
+        var jwsSigner = this.jwsSigners.current();
         var jwsHeader = new JWSHeader.Builder(this.jwsAlgorithm)
-                .keyID(token.id().toString())
+                .keyID(jwsSigner.keyId() != null ? jwsSigner.keyId() : token.id().toString())
                 .build();
-        var claimsSet = new JWTClaimsSet.Builder()
+        var claimsSetBuilder = new JWTClaimsSet.Builder()
                 .jwtID(token.id().toString())
                 .subject(token.subject())
                 .issueTime(Date.from(token.createdAt()))
                 .expirationTime(Date.from(token.expiresAt()))
-                .claim("authorities", token.authorities())
-                .build();
-        var signedJWT = new SignedJWT(jwsHeader, claimsSet);
+                .claim("authorities", token.authorities());
+        if (token.epoch() != 0) {
+            claimsSetBuilder.claim(TokenClaims.EPOCH_CLAIM, token.epoch());
+        }
+        var signedJWT = new SignedJWT(jwsHeader, claimsSetBuilder.build());
         try {
-            signedJWT.sign(this.jwsSigner);
+            signedJWT.sign(jwsSigner.value());
 
             return signedJWT.serialize();
         } catch (JOSEException exception) {
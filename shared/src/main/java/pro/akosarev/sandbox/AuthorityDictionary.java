@@ -0,0 +1,93 @@
+package pro.akosarev.sandbox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned list of well-known authorities, so tokens can carry authorities as indexes into the list
+ * instead of as strings.
+ * <p>
+ * A dictionary must never change once tokens were issued with its version: authorities are only ever
+ * added to a new version, and the versions of all tokens that are still valid must be kept for decoding.
+ * Authorities missing from the dictionary are carried as strings.
+ */
+public final class AuthorityDictionary {
+    static final String VERSION_CLAIM = "adv";
+
+    static final String INDEXES_CLAIM = "adi";
+
+    static final String EXTRA_AUTHORITIES_CLAIM = "adx";
+
+    private final int version;
+
+    private final List<String> authorities;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    public AuthorityDictionary(int version, List<String> authorities) {
+        this.version = version;
+        this.authorities = List.copyOf(authorities);
+        for (var i = 0; i < this.authorities.size(); i++) {
+            if (this.indexes.putIfAbsent(this.authorities.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate authority " + this.authorities.get(i));
+            }
+        }
+    }
+
+    /**
+     * A dictionary of the refresh token authorities for the given user authorities:
+     * {@code JWT_REFRESH}, {@code JWT_LOGOUT} and every authority with the {@code GRANT_} prefix.
+     */
+    public static AuthorityDictionary forRefreshTokens(int version, List<String> authorities) {
+        var refreshTokenAuthorities = new ArrayList<String>(authorities.size() + 2);
+        refreshTokenAuthorities.add("JWT_REFRESH");
+        refreshTokenAuthorities.add("JWT_LOGOUT");
+        for (var authority : authorities) {
+            refreshTokenAuthorities.add(DefaultAccessTokenFactory.GRANT_PREFIX + authority);
+        }
+        return new AuthorityDictionary(version, refreshTokenAuthorities);
+    }
+
+    public int version() {
+        return this.version;
+    }
+
+    Encoded encode(List<String> authorities) {
+        var indexes = new ArrayList<Integer>(authorities.size());
+        List<String> extraAuthorities = List.of();
+        for (var authority : authorities) {
+            var index = this.indexes.get(authority);
+            if (index != null) {
+                indexes.add(index);
+            } else {
+                if (extraAuthorities.isEmpty()) {
+                    extraAuthorities = new ArrayList<>();
+                }
+                extraAuthorities.add(authority);
+            }
+        }
+        return new Encoded(indexes, extraAuthorities);
+    }
+
+    /**
+     * Decodes the indexes and extra authorities of a token, or returns {@code null} if an index is not an integer
+     * or is out of range.
+     */
+    List<String> decode(List<? extends Number> indexes, List<String> extraAuthorities) {
+        var authorities = new ArrayList<String>(indexes.size() + extraAuthorities.size());
+        for (var index : indexes) {
+            var i = index.longValue();
+            if (i < 0 || i >= this.authorities.size() || index.doubleValue() != i) {
+                return null;
+            }
+            authorities.add(this.authorities.get((int) i));
+        }
+        authorities.addAll(extraAuthorities);
+        return authorities;
+    }
+
+    record Encoded(List<Integer> indexes, List<String> extraAuthorities) {
+    }
+}
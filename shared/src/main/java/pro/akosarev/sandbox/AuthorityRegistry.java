@@ -0,0 +1,69 @@
+package pro.akosarev.sandbox;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns authority strings, so each authority is one shared {@link InternedAuthority} with a stable index,
+ * and builds {@link AuthoritySet}s of them.
+ * <p>
+ * The registry only grows: authorities come from tokens whose signature was verified,
+ * so it holds no more authorities than the issuer grants.
+ */
+public class AuthorityRegistry {
+    private final ConcurrentHashMap<String, InternedAuthority> authorities = new ConcurrentHashMap<>();
+
+    private volatile InternedAuthority[] authoritiesByIndex = new InternedAuthority[0];
+
+    public InternedAuthority intern(String authority) {
+        var interned = this.authorities.get(authority);
+        if (interned != null) {
+            return interned;
+        }
+        synchronized (this) {
+            interned = this.authorities.get(authority);
+            if (interned == null) {
+                var authoritiesByIndex = this.authoritiesByIndex;
+                interned = new InternedAuthority(authority, authoritiesByIndex.length);
+                authoritiesByIndex = Arrays.copyOf(authoritiesByIndex, authoritiesByIndex.length + 1);
+                authoritiesByIndex[interned.index()] = interned;
+                this.authoritiesByIndex = authoritiesByIndex;
+                this.authorities.put(authority, interned);
+            }
+            return interned;
+        }
+    }
+
+    /**
+     * The interned authority, or {@code null} if the authority was never interned.
+     */
+    public InternedAuthority lookup(String authority) {
+        return this.authorities.get(authority);
+    }
+
+    public AuthoritySet authoritySet(Collection<String> authorities) {
+        var bits = new long[(this.size() >>> 6) + 1];
+        for (var authority : authorities) {
+            var index = this.intern(authority).index();
+            if (index >>> 6 >= bits.length) {
+                bits = Arrays.copyOf(bits, (index >>> 6) + 1);
+            }
+            bits[index >>> 6] |= 1L << index;
+        }
+        return new AuthoritySet(this, bits);
+    }
+
+    public int size() {
+        return this.authoritiesByIndex.length;
+    }
+
+    InternedAuthority authority(int index) {
+        return this.authoritiesByIndex[index];
+    }
+
+    boolean isInterned(InternedAuthority authority) {
+        var authoritiesByIndex = this.authoritiesByIndex;
+        return authority.index() < authoritiesByIndex.length && authoritiesByIndex[authority.index()] == authority;
+    }
+}
@@ -0,0 +1,82 @@
+package pro.akosarev.sandbox;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable set of {@link InternedAuthority}s of one {@link AuthorityRegistry}, stored as a bitset
+ * of their indexes.
+ * <p>
+ * Membership checks are a map lookup at most and a bit test, and do not allocate. Iteration yields
+ * the shared interned authorities in index order.
+ */
+public final class AuthoritySet extends AbstractCollection<GrantedAuthority> {
+    private final AuthorityRegistry registry;
+
+    private final long[] bits;
+
+    private final int size;
+
+    AuthoritySet(AuthorityRegistry registry, long[] bits) {
+        this.registry = registry;
+        this.bits = bits;
+        var size = 0;
+        for (var word : bits) {
+            size += Long.bitCount(word);
+        }
+        this.size = size;
+    }
+
+    public boolean contains(String authority) {
+        var interned = this.registry.lookup(authority);
+        return interned != null && this.containsIndex(interned.index());
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        if (object instanceof InternedAuthority interned && this.registry.isInterned(interned)) {
+            return this.containsIndex(interned.index());
+        }
+        return object instanceof GrantedAuthority authority && authority.getAuthority() != null &&
+                this.contains(authority.getAuthority());
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<GrantedAuthority> iterator() {
+        return new Iterator<>() {
+            private int word;
+
+            private long remaining = AuthoritySet.this.bits.length > 0 ? AuthoritySet.this.bits[0] : 0;
+
+            @Override
+            public boolean hasNext() {
+                while (this.remaining == 0 && this.word + 1 < AuthoritySet.this.bits.length) {
+                    this.remaining = AuthoritySet.this.bits[++this.word];
+                }
+                return this.remaining != 0;
+            }
+
+            @Override
+            public GrantedAuthority next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                var index = (this.word << 6) + Long.numberOfTrailingZeros(this.remaining);
+                this.remaining &= this.remaining - 1;
+                return AuthoritySet.this.registry.authority(index);
+            }
+        };
+    }
+
+    private boolean containsIndex(int index) {
+        return index >>> 6 < this.bits.length && (this.bits[index >>> 6] & 1L << index) != 0;
+    }
+}
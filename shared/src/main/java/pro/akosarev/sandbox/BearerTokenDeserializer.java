@@ -0,0 +1,51 @@
+package pro.akosarev.sandbox;
+
+import lombok.Setter;
+
+import java.util.function.Function;
+
+/**
+ * Deserializes a bearer token with the deserializer of its {@link TokenFormat} and records the outcome,
+ * for the servlet and the reactive authentication converters alike.
+ */
+public class BearerTokenDeserializer {
+
+    private final TokenStringDeserializer accessTokenStringDeserializer;
+
+    private final TokenStringDeserializer refreshTokenStringDeserializer;
+
+    @Setter
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+    public BearerTokenDeserializer(Function<String, Token> accessTokenStringDeserializer,
+                                   Function<String, Token> refreshTokenStringDeserializer) {
+        this.accessTokenStringDeserializer = TokenStringDeserializer.from(accessTokenStringDeserializer);
+        this.refreshTokenStringDeserializer = TokenStringDeserializer.from(refreshTokenStringDeserializer);
+    }
+
+    public TokenDeserializationResult deserialize(String token) {
+        return this.deserialize(token, null);
+    }
+
+    /**
+     * @param digest digest of the token if it was already computed, or {@code null}
+     */
+    public TokenDeserializationResult deserialize(String token, TokenDigest digest) {
+        var startedAt = System.nanoTime();
+        var format = TokenFormat.of(token);
+        var result = switch (format) {
+            case JWS -> digest != null ? this.accessTokenStringDeserializer.deserialize(token, digest) :
+                    this.accessTokenStringDeserializer.deserialize(token);
+            case JWE -> digest != null ? this.refreshTokenStringDeserializer.deserialize(token, digest) :
+                    this.refreshTokenStringDeserializer.deserialize(token);
+            case UNKNOWN -> TokenDeserializationResult.failure(TokenDeserializationResult.Reason.MALFORMED);
+        };
+        if (format == TokenFormat.JWS && this.accessTokenStringDeserializer instanceof CachingTokenStringDeserializer) {
+            // the cache times the verifications it delegates, so its hits do not count as verifications
+            this.metrics.recordDeserialization(result);
+        } else {
+            this.metrics.recordDeserialization(format, result, System.nanoTime() - startedAt);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,96 @@
+package pro.akosarev.sandbox;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Setter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Remembers tokens that the delegate has already verified, keyed by a digest of the token string,
+ * so repeated requests with the same token skip parsing and signature verification.
+ * Entries leave the cache once the token expires or when the cache grows beyond its maximum size.
+ * Only the verifications of the delegate are timed as access token verifications, cache hits are counted instead.
+ */
+public class CachingTokenStringDeserializer implements TokenStringDeserializer, MeterBinder {
+    private final TokenStringDeserializer delegate;
+
+    private final Cache<TokenDigest, Token> tokens;
+
+    @Setter
+    private Clock clock = Clock.systemUTC();
+
+    @Setter
+    private JwtMetrics metrics = JwtMetrics.noop();
+
+    public CachingTokenStringDeserializer(Function<String, Token> delegate, int maximumSize) {
+        this.delegate = TokenStringDeserializer.from(delegate);
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(Expiry.creating((TokenDigest digest, Token token) ->
+                        Duration.between(this.clock.instant(), token.expiresAt())))
+                .ticker(new ClockTicker(() -> this.clock))
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public TokenDeserializationResult deserialize(String string) {
+        return this.deserialize(string, TokenDigest.of(string));
+    }
+
+    @Override
+    public TokenDeserializationResult deserialize(String string, TokenDigest digest) {
+        var token = this.tokens.getIfPresent(digest);
+        if (token != null) {
+            return TokenDeserializationResult.success(token);
+        }
+
+        var startedAt = System.nanoTime();
+        var result = this.delegate.deserialize(string);
+        this.metrics.recordDeserializationTime(TokenFormat.JWS, System.nanoTime() - startedAt);
+        if (result instanceof TokenDeserializationResult.Success success &&
+                success.token().expiresAt().isAfter(this.clock.instant())) {
+            this.tokens.asMap().putIfAbsent(digest, success.token());
+        }
+        return result;
+    }
+
+    public long hitCount() {
+        return this.tokens.stats().hitCount();
+    }
+
+    public long missCount() {
+        return this.tokens.stats().missCount();
+    }
+
+    public long evictionCount() {
+        return this.tokens.stats().evictionCount();
+    }
+
+    public int size() {
+        return (int) this.tokens.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("jwt.access-token-cache.requests", this, CachingTokenStringDeserializer::hitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("jwt.access-token-cache.requests", this, CachingTokenStringDeserializer::missCount)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("jwt.access-token-cache.evictions", this, CachingTokenStringDeserializer::evictionCount)
+                .register(registry);
+        Gauge.builder("jwt.access-token-cache.size", this, CachingTokenStringDeserializer::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,23 @@
+package pro.akosarev.sandbox;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Clock;
+import java.util.function.Supplier;
+
+/**
+ * Reads the time of a {@link Clock} for caches, so the clock of their owner decides when entries expire.
+ */
+public class ClockTicker implements Ticker {
+    private final Supplier<Clock> clock;
+
+    public ClockTicker(Supplier<Clock> clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public long read() {
+        var instant = this.clock.get().instant();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+}
@@ -0,0 +1,26 @@
+package pro.akosarev.sandbox;
+
+import lombok.Setter;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.function.Function;
+
+@Setter
+public class DefaultAccessTokenFactory implements Function<Token, Token> {
+    static final String GRANT_PREFIX = "GRANT_";
+
+    private Duration tokenTtl = Duration.ofMinutes(5);
+
+    @Override
+    public Token apply(Token token) {
+        var now = Instant.now();
+        var authorities = new ArrayList<String>(token.authorities().size());
+        for (var authority : token.authorities()) {
+            if (authority.startsWith(GRANT_PREFIX)) {
+                authorities.add(authority.substring(GRANT_PREFIX.length()));
+            }
+        }
+        return new Token(token.id(), token.subject(), authorities, now, now.plus(this.tokenTtl), token.epoch());
+    }
+}
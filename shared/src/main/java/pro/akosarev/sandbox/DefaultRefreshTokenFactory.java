@@ -13,6 +13,8 @@ import java.util.function.Function;
 public class DefaultRefreshTokenFactory implements Function<Authentication, Token> {
     private Duration tokenTtl = Duration.ofDays(1);
 
+    private TokenEpochRegistry tokenEpochRegistry;
+
     @Override
     public Token apply(Authentication authentication) {
         var authorities = new LinkedList<String>();
@@ -21,10 +23,11 @@ public class DefaultRefreshTokenFactory implements Function<Authentication, Toke
         authentication.getAuthorities()
                 .stream()
                 .map(GrantedAuthority::getAuthority)
-                .map(authority -> "GRANT_" + authority)
+                .map(authority -> DefaultAccessTokenFactory.GRANT_PREFIX + authority)
                 .forEach(authorities::add);
 
         var now = Instant.now();
-        return new Token(UUID.randomUUID(), authentication.getName(), authorities, now, now.plus(this.tokenTtl));
+        return new Token(UUID.randomUUID(), authentication.getName(), authorities, now, now.plus(this.tokenTtl),
+                this.tokenEpochRegistry != null ? this.tokenEpochRegistry.issuingEpoch(authentication.getName()) : 0);
     }
 }
@@ -0,0 +1,182 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.JWSAlgorithm;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static pro.akosarev.sandbox.TokenDeserializationResult.Reason;
+import static pro.akosarev.sandbox.TokenDeserializationResult.failure;
+
+/**
+ * HMAC-signed access token deserializer verifying the signature before decoding the claims.
+ * <p>
+ * Only the {@code kid} member of the header is read to look up the key in the {@link KeyRing}. The MAC is
+ * then computed over the raw ASCII bytes of {@code header.payload} with a per-thread {@link Mac} and compared
+ * to the decoded signature in constant time. Only then is the payload decoded and read by
+ * {@link TokenClaimsReader}. The header's {@code alg} is not checked: a valid MAC under the key's algorithm
+ * proves the header was written by the matching serializer, so tokens signed with another algorithm are
+ * rejected as {@link Reason#INVALID_SIGNATURE} rather than {@link Reason#UNSUPPORTED_ALGORITHM}.
+ */
+public class FastAccessTokenJwsStringDeserializer implements TokenStringDeserializer {
+    private static final int MAXIMUM_MAC_LENGTH = 64;
+
+    private static final byte[] BASE64URL_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64URL_VALUES, (byte) -1);
+        var alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (var i = 0; i < alphabet.length(); i++) {
+            BASE64URL_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final KeyRing<HmacKey> keyRing;
+
+    private final ThreadLocalPool<Buffers> buffers = new ThreadLocalPool<>(Buffers::new);
+
+    public FastAccessTokenJwsStringDeserializer(SecretKey secretKey) {
+        this(secretKey, JWSAlgorithm.HS256);
+    }
+
+    public FastAccessTokenJwsStringDeserializer(SecretKey secretKey, JWSAlgorithm jwsAlgorithm) {
+        this(KeyRing.of(new HmacKey(secretKey, jwsAlgorithm)));
+    }
+
+    public FastAccessTokenJwsStringDeserializer(KeyRing<HmacKey> keyRing) {
+        this.keyRing = keyRing;
+    }
+
+    @Override
+    public TokenDeserializationResult deserialize(String string) {
+        var headerEnd = string.indexOf('.');
+        var payloadEnd = headerEnd < 0 ? -1 : string.indexOf('.', headerEnd + 1);
+        if (headerEnd <= 0 || payloadEnd < 0 || string.indexOf('.', payloadEnd + 1) >= 0) {
+            return failure(Reason.MALFORMED);
+        }
+
+        var buffers = this.buffers.acquire();
+        try {
+            return this.deserialize(string, headerEnd, payloadEnd, buffers);
+        } finally {
+            this.buffers.release(buffers);
+        }
+    }
+
+    private TokenDeserializationResult deserialize(String string, int headerEnd, int payloadEnd, Buffers buffers) {
+        var bytes = buffers.ensureCapacity(payloadEnd);
+        var headerLength = decode(string, 0, headerEnd, bytes);
+        if (headerLength < 0) {
+            return failure(Reason.MALFORMED);
+        }
+        String keyId;
+        try {
+            keyId = TokenClaimsReader.readKeyId(bytes, headerLength);
+        } catch (IllegalArgumentException exception) {
+            return failure(Reason.MALFORMED);
+        }
+        var key = this.keyRing.get(keyId);
+        if (key == null) {
+            return failure(Reason.UNKNOWN_KEY);
+        }
+
+        var macLength = key.macLength();
+        if (string.length() - payloadEnd - 1 != (macLength * 8 + 5) / 6) {
+            return failure(Reason.INVALID_SIGNATURE);
+        }
+        var signature = buffers.signature(macLength);
+        var expectedSignature = buffers.expectedSignature(macLength);
+        if (decode(string, payloadEnd + 1, string.length(), signature) < 0) {
+            return failure(Reason.MALFORMED);
+        }
+
+        for (var i = 0; i < payloadEnd; i++) {
+            var c = string.charAt(i);
+            if (c >= 0x80) {
+                return failure(Reason.MALFORMED);
+            }
+            bytes[i] = (byte) c;
+        }
+        var mac = key.acquireMac();
+        try {
+            mac.update(bytes, 0, payloadEnd);
+            mac.doFinal(expectedSignature, 0);
+        } catch (GeneralSecurityException exception) {
+            return failure(Reason.INVALID_SIGNATURE);
+        } finally {
+            key.releaseMac(mac);
+        }
+        if (!MessageDigest.isEqual(expectedSignature, signature)) {
+            return failure(Reason.INVALID_SIGNATURE);
+        }
+
+        var payloadLength = decode(string, headerEnd + 1, payloadEnd, bytes);
+        if (payloadLength < 0) {
+            return failure(Reason.MALFORMED);
+        }
+        return TokenClaimsReader.read(bytes, payloadLength);
+    }
+
+    /**
+     * Decodes unpadded Base64url characters into the target, which must be large enough.
+     * Returns the number of decoded bytes or -1 for invalid input.
+     */
+    private static int decode(String string, int start, int end, byte[] target) {
+        if ((end - start) % 4 == 1) {
+            return -1;
+        }
+        var written = 0;
+        var bits = 0;
+        var bitCount = 0;
+        for (var i = start; i < end; i++) {
+            var c = string.charAt(i);
+            var value = c < 128 ? BASE64URL_VALUES[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = bits << 6 | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                target[written++] = (byte) (bits >> bitCount);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Per-thread buffers, with signature buffers of the exact length of each MAC,
+     * since {@link MessageDigest#isEqual} compares whole arrays.
+     */
+    private static final class Buffers {
+        private final byte[][] expectedSignatures = new byte[MAXIMUM_MAC_LENGTH + 1][];
+
+        private final byte[][] signatures = new byte[MAXIMUM_MAC_LENGTH + 1][];
+
+        private byte[] bytes = new byte[512];
+
+        byte[] expectedSignature(int length) {
+            if (this.expectedSignatures[length] == null) {
+                this.expectedSignatures[length] = new byte[length];
+            }
+            return this.expectedSignatures[length];
+        }
+
+        byte[] signature(int length) {
+            if (this.signatures[length] == null) {
+                this.signatures[length] = new byte[length];
+            }
+            return this.signatures[length];
+        }
+
+        byte[] ensureCapacity(int capacity) {
+            if (this.bytes.length < capacity) {
+                this.bytes = new byte[Math.max(capacity, this.bytes.length << 1)];
+            }
+            return this.bytes;
+        }
+    }
+}
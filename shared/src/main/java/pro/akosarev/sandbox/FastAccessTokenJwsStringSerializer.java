@@ -0,0 +1,330 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.JWSAlgorithm;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * HMAC-signed access token serializer writing the JWS without building Nimbus objects.
+ * <p>
+ * The header and claims are written as JSON straight into a per-thread byte buffer, Base64url-encoded
+ * into a second per-thread buffer and signed with a per-thread {@link Mac}, so the only allocation
+ * per token is the resulting string. Tokens are signed with the current key of the {@link KeyRing}, whose id
+ * goes to the {@code kid} header, so the whole header is encoded once per key. The legacy key has no id and
+ * its header is {@code {"kid":"<token id>","alg":"HSxxx"}}, of which only the part around the token id
+ * is encoded per token.
+ * The output is the same as that of {@link AccessTokenJwsStringSerializer} with a {@code MACSigner}:
+ * the members are written in the order Nimbus writes them and strings are escaped the same way.
+ */
+public class FastAccessTokenJwsStringSerializer implements Function<Token, String> {
+    private static final byte[] BASE64URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] KEY_ID = "{\"kid\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ALGORITHM = ",\"alg\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SUBJECT = "{\"sub\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] EPOCH = ",\"epoch\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] EXPIRATION_TIME = ",\"exp\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] ISSUE_TIME = ",\"iat\":".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] JWT_ID = ",\"jti\":\"".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] AUTHORITIES = "\",\"authorities\":[".getBytes(StandardCharsets.US_ASCII);
+
+    // the legacy header is split into {"kid" + :"<token id>" + ,"alg":"HSxxx"}, the constant parts are 6 and 15 bytes
+    private static final int HEADER_HEAD_LENGTH = 6;
+
+    private static final int HEADER_TAIL_LENGTH = 15;
+
+    private static final int MAXIMUM_MAC_LENGTH = 64;
+
+    private final KeyRing<HmacKey> keyRing;
+
+    private final ThreadLocalPool<Buffers> buffers = new ThreadLocalPool<>(() ->
+            new Buffers(new ByteBuffer(256), new ByteBuffer(512), new byte[MAXIMUM_MAC_LENGTH]));
+
+    private volatile EncodedHeader encodedHeader;
+
+    public FastAccessTokenJwsStringSerializer(SecretKey secretKey) {
+        this(secretKey, JWSAlgorithm.HS256);
+    }
+
+    public FastAccessTokenJwsStringSerializer(SecretKey secretKey, JWSAlgorithm jwsAlgorithm) {
+        this(KeyRing.of(new HmacKey(secretKey, jwsAlgorithm)));
+    }
+
+    public FastAccessTokenJwsStringSerializer(KeyRing<HmacKey> keyRing) {
+        this.keyRing = keyRing;
+        this.encodedHeader = EncodedHeader.of(keyRing.current());
+    }
+
+    @Override
+    public String apply(Token token) {
+        var key = this.keyRing.current();
+        var header = this.encodedHeader;
+        if (header.key() != key) {
+            header = EncodedHeader.of(key);
+            this.encodedHeader = header;
+        }
+
+        var buffers = this.buffers.acquire();
+        try {
+            return this.serialize(token, key.value(), header, buffers);
+        } finally {
+            this.buffers.release(buffers);
+        }
+    }
+
+    private String serialize(Token token, HmacKey key, EncodedHeader header, Buffers buffers) {
+        var json = buffers.json;
+        var output = buffers.output;
+        var mostSigBits = token.id().getMostSignificantBits();
+        var leastSigBits = token.id().getLeastSignificantBits();
+
+        output.reset();
+        output.write(header.head());
+        if (header.tail() != null) {
+            json.reset();
+            json.write((byte) ':');
+            json.write((byte) '"');
+            json.write(mostSigBits, leastSigBits);
+            json.write((byte) '"');
+            output.writeBase64(json);
+            output.write(header.tail());
+        }
+        output.write((byte) '.');
+
+        json.reset();
+        json.write(SUBJECT);
+        json.writeString(token.subject());
+        // Nimbus writes the epoch right after the subject
+        if (token.epoch() != 0) {
+            json.write(EPOCH);
+            json.write(token.epoch());
+        }
+        json.write(EXPIRATION_TIME);
+        json.write(token.expiresAt().getEpochSecond());
+        json.write(ISSUE_TIME);
+        json.write(token.createdAt().getEpochSecond());
+        json.write(JWT_ID);
+        json.write(mostSigBits, leastSigBits);
+        json.write(AUTHORITIES);
+        var authorities = token.authorities();
+        for (var i = 0; i < authorities.size(); i++) {
+            if (i > 0) {
+                json.write((byte) ',');
+            }
+            json.writeString(authorities.get(i));
+        }
+        json.write((byte) ']');
+        json.write((byte) '}');
+        output.writeBase64(json);
+
+        var mac = key.acquireMac();
+        try {
+            mac.update(output.bytes, 0, output.length);
+            mac.doFinal(buffers.signature, 0);
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        } finally {
+            key.releaseMac(mac);
+        }
+        output.write((byte) '.');
+        output.writeBase64(buffers.signature, key.macLength());
+
+        return new String(output.bytes, 0, output.length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Base64url-encoded header of a key: the whole header, or for the legacy key the parts
+     * before and after the token id.
+     */
+    private record EncodedHeader(KeyRing.Key<HmacKey> key, byte[] head, byte[] tail) {
+
+        static EncodedHeader of(KeyRing.Key<HmacKey> key) {
+            var encoder = Base64.getUrlEncoder().withoutPadding();
+            var json = new ByteBuffer(128);
+            json.write(KEY_ID);
+            json.writeString(key.keyId() != null ? key.keyId() : new UUID(0, 0).toString());
+            json.write(ALGORITHM);
+            json.writeString(key.value().jwsAlgorithm().getName());
+            json.write((byte) '}');
+            var header = Arrays.copyOf(json.bytes, json.length);
+            if (key.keyId() != null) {
+                return new EncodedHeader(key, encoder.encode(header), null);
+            }
+            return new EncodedHeader(key, encoder.encode(Arrays.copyOfRange(header, 0, HEADER_HEAD_LENGTH)),
+                    encoder.encode(Arrays.copyOfRange(header, header.length - HEADER_TAIL_LENGTH, header.length)));
+        }
+    }
+
+    private record Buffers(ByteBuffer json, ByteBuffer output, byte[] signature) {
+    }
+
+    private static final class ByteBuffer {
+        private byte[] bytes;
+
+        private int length;
+
+        ByteBuffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        void reset() {
+            this.length = 0;
+        }
+
+        void write(byte value) {
+            this.ensureCapacity(1);
+            this.bytes[this.length++] = value;
+        }
+
+        void write(byte[] values) {
+            this.ensureCapacity(values.length);
+            System.arraycopy(values, 0, this.bytes, this.length, values.length);
+            this.length += values.length;
+        }
+
+        void write(long value) {
+            if (value < 0) {
+                this.write((byte) '-');
+                value = -value;
+            }
+            var digits = 1;
+            for (var remaining = value / 10; remaining > 0; remaining /= 10) {
+                digits++;
+            }
+            this.ensureCapacity(digits);
+            for (var i = this.length + digits - 1; i >= this.length; i--) {
+                this.bytes[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            this.length += digits;
+        }
+
+        void write(long mostSigBits, long leastSigBits) {
+            this.ensureCapacity(36);
+            this.writeHex(mostSigBits >>> 32, 8);
+            this.bytes[this.length++] = '-';
+            this.writeHex(mostSigBits >>> 16, 4);
+            this.bytes[this.length++] = '-';
+            this.writeHex(mostSigBits, 4);
+            this.bytes[this.length++] = '-';
+            this.writeHex(leastSigBits >>> 48, 4);
+            this.bytes[this.length++] = '-';
+            this.writeHex(leastSigBits, 12);
+        }
+
+        void writeString(String value) {
+            this.write((byte) '"');
+            for (var i = 0; i < value.length(); i++) {
+                var c = value.charAt(i);
+                if (c < 0x80) {
+                    switch (c) {
+                        case '"' -> this.writeEscaped('"');
+                        case '\\' -> this.writeEscaped('\\');
+                        case '\n' -> this.writeEscaped('n');
+                        case '\r' -> this.writeEscaped('r');
+                        case '\t' -> this.writeEscaped('t');
+                        case '\b' -> this.writeEscaped('b');
+                        case '\f' -> this.writeEscaped('f');
+                        default -> {
+                            if (c < 0x20) {
+                                this.writeUnicodeEscape(c);
+                            } else {
+                                this.write((byte) c);
+                            }
+                        }
+                    }
+                } else if (c == '\u2028' || c == '\u2029') {
+                    this.writeUnicodeEscape(c);
+                } else if (c < 0x800) {
+                    this.ensureCapacity(2);
+                    this.bytes[this.length++] = (byte) (0xc0 | c >> 6);
+                    this.bytes[this.length++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() &&
+                        Character.isLowSurrogate(value.charAt(i + 1))) {
+                    var codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    this.ensureCapacity(4);
+                    this.bytes[this.length++] = (byte) (0xf0 | codePoint >> 18);
+                    this.bytes[this.length++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                    this.bytes[this.length++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                    this.bytes[this.length++] = (byte) (0x80 | codePoint & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    this.write((byte) '?');
+                } else {
+                    this.ensureCapacity(3);
+                    this.bytes[this.length++] = (byte) (0xe0 | c >> 12);
+                    this.bytes[this.length++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    this.bytes[this.length++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            this.write((byte) '"');
+        }
+
+        void writeBase64(ByteBuffer source) {
+            this.writeBase64(source.bytes, source.length);
+        }
+
+        void writeBase64(byte[] source, int sourceLength) {
+            this.ensureCapacity((sourceLength + 2) / 3 * 4);
+            var i = 0;
+            for (; i + 2 < sourceLength; i += 3) {
+                var bits = (source[i] & 0xff) << 16 | (source[i + 1] & 0xff) << 8 | source[i + 2] & 0xff;
+                this.bytes[this.length++] = BASE64URL[bits >>> 18];
+                this.bytes[this.length++] = BASE64URL[bits >>> 12 & 0x3f];
+                this.bytes[this.length++] = BASE64URL[bits >>> 6 & 0x3f];
+                this.bytes[this.length++] = BASE64URL[bits & 0x3f];
+            }
+            if (i < sourceLength) {
+                var bits = (source[i] & 0xff) << 16 | (i + 1 < sourceLength ? (source[i + 1] & 0xff) << 8 : 0);
+                this.bytes[this.length++] = BASE64URL[bits >>> 18];
+                this.bytes[this.length++] = BASE64URL[bits >>> 12 & 0x3f];
+                if (i + 1 < sourceLength) {
+                    this.bytes[this.length++] = BASE64URL[bits >>> 6 & 0x3f];
+                }
+            }
+        }
+
+        private void writeEscaped(char c) {
+            this.ensureCapacity(2);
+            this.bytes[this.length++] = '\\';
+            this.bytes[this.length++] = (byte) c;
+        }
+
+        private void writeUnicodeEscape(char c) {
+            this.ensureCapacity(6);
+            this.bytes[this.length++] = '\\';
+            this.bytes[this.length++] = 'u';
+            this.writeHex(c, 4);
+        }
+
+        private void writeHex(long value, int digits) {
+            for (var i = digits - 1; i >= 0; i--) {
+                this.bytes[this.length + i] = HEX[(int) (value & 0xf)];
+                value >>>= 4;
+            }
+            this.length += digits;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (this.length + additional > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.length + additional, this.bytes.length << 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Map;
+
+/**
+ * HMAC key of the fast access token serializer and deserializer, with a {@link Mac} per thread,
+ * or per virtual thread borrowing one.
+ */
+public final class HmacKey {
+    private static final Map<JWSAlgorithm, String> MAC_ALGORITHMS = Map.of(
+            JWSAlgorithm.HS256, "HmacSHA256",
+            JWSAlgorithm.HS384, "HmacSHA384",
+            JWSAlgorithm.HS512, "HmacSHA512"
+    );
+
+    private final JWSAlgorithm jwsAlgorithm;
+
+    private final ThreadLocalPool<Mac> macs;
+
+    private final int macLength;
+
+    public HmacKey(SecretKey secretKey, JWSAlgorithm jwsAlgorithm) {
+        var macAlgorithm = MAC_ALGORITHMS.get(jwsAlgorithm);
+        if (macAlgorithm == null) {
+            throw new IllegalArgumentException("Unsupported JWS algorithm: " + jwsAlgorithm);
+        }
+        var key = new SecretKeySpec(secretKey.getEncoded(), macAlgorithm);
+        this.jwsAlgorithm = jwsAlgorithm;
+        this.macs = new ThreadLocalPool<>(() -> {
+            try {
+                var mac = Mac.getInstance(macAlgorithm);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException exception) {
+                throw new IllegalArgumentException(exception);
+            }
+        });
+        var mac = this.macs.acquire();
+        this.macLength = mac.getMacLength();
+        this.macs.release(mac);
+        if (secretKey.getEncoded().length < this.macLength) {
+            throw new IllegalArgumentException("The secret key must be at least %d bits long for %s"
+                    .formatted(this.macLength * 8, jwsAlgorithm));
+        }
+    }
+
+    public static HmacKey of(OctetSequenceKey key) {
+        return new HmacKey(key.toSecretKey(), key.getAlgorithm() != null ?
+                JWSAlgorithm.parse(key.getAlgorithm().getName()) : JWSAlgorithm.HS256);
+    }
+
+    public JWSAlgorithm jwsAlgorithm() {
+        return this.jwsAlgorithm;
+    }
+
+    public int macLength() {
+        return this.macLength;
+    }
+
+    Mac acquireMac() {
+        return this.macs.acquire();
+    }
+
+    void releaseMac(Mac mac) {
+        this.macs.release(mac);
+    }
+}
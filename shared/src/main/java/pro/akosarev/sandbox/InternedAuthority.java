@@ -0,0 +1,19 @@
+package pro.akosarev.sandbox;
+
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * An authority registered with an {@link AuthorityRegistry}, {@code index} is its bit in an {@link AuthoritySet}.
+ */
+public record InternedAuthority(String authority, int index) implements GrantedAuthority {
+
+    @Override
+    public String getAuthority() {
+        return this.authority;
+    }
+
+    @Override
+    public String toString() {
+        return this.authority;
+    }
+}
@@ -0,0 +1,79 @@
+package pro.akosarev.sandbox;
+
+import lombok.Setter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+public class JdbcRevokedTokenSetLoader {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final RevokedTokenSet revokedTokenSet;
+
+    @Setter
+    private Duration overlap = Duration.ofSeconds(30);
+
+    @Setter
+    private String tableName = "t_deactivated_token";
+
+    /**
+     * When set, {@link #poll()} refreshes only if no refresh ran for this long, as revocations are pushed
+     * by an event bus and polling is left as a safety net for lost events.
+     */
+    @Setter
+    private Duration safetyRefreshInterval;
+
+    @Setter
+    private Clock clock = Clock.systemUTC();
+
+    private Instant watermark = Instant.EPOCH;
+
+    private volatile Instant refreshedAt = Instant.EPOCH;
+
+    public JdbcRevokedTokenSetLoader(JdbcTemplate jdbcTemplate, RevokedTokenSet revokedTokenSet) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.revokedTokenSet = revokedTokenSet;
+    }
+
+    public void load() {
+        this.jdbcTemplate.query("select id, c_keep_until, c_deactivated_at from %s where c_keep_until > ?"
+                        .formatted(this.tableName),
+                this::add, Timestamp.from(this.clock.instant()));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval:PT5S}")
+    public void poll() {
+        if (this.safetyRefreshInterval == null ||
+                !this.clock.instant().isBefore(this.refreshedAt.plus(this.safetyRefreshInterval))) {
+            this.refresh();
+        }
+    }
+
+    public synchronized void refresh() {
+        this.refreshedAt = this.clock.instant();
+        this.jdbcTemplate.query("select id, c_keep_until, c_deactivated_at from %s where c_deactivated_at > ?"
+                        .formatted(this.tableName),
+                this::add, Timestamp.from(this.watermark.minus(this.overlap)));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval:PT1M}")
+    public void purgeExpired() {
+        this.revokedTokenSet.purgeExpired(this.clock.instant());
+    }
+
+    private void add(ResultSet resultSet) throws SQLException {
+        this.revokedTokenSet.add(resultSet.getObject("id", UUID.class),
+                resultSet.getTimestamp("c_keep_until").toInstant());
+        var deactivatedAt = resultSet.getTimestamp("c_deactivated_at").toInstant();
+        if (deactivatedAt.isAfter(this.watermark)) {
+            this.watermark = deactivatedAt;
+        }
+    }
+}
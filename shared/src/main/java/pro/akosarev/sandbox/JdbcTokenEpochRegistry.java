@@ -0,0 +1,99 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Setter;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link TokenEpochRegistry} on the {@code t_token_epoch} table with the epochs cached in memory.
+ * <p>
+ * Only subjects whose epoch was advanced have a row, so the cache grows with those subjects rather than
+ * with sessions, and checking a token is a map lookup. Epochs advanced on other nodes are picked up
+ * by {@link #refresh()}, epochs advanced through this registry apply immediately. Tokens are issued at the
+ * epoch in the table, as the cache may not have picked up an advance on another node yet.
+ */
+public class JdbcTokenEpochRegistry implements TokenEpochRegistry, MeterBinder {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<String, Long> epochs = new ConcurrentHashMap<>();
+
+    @Setter
+    private Duration overlap = Duration.ofSeconds(30);
+
+    private Instant watermark = Instant.EPOCH;
+
+    public JdbcTokenEpochRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void load() {
+        this.refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.token-epoch.refresh-interval:PT5S}")
+    public synchronized void refresh() {
+        this.jdbcTemplate.query("select c_subject, c_epoch, c_updated_at from t_token_epoch where c_updated_at > ?",
+                this::put, Timestamp.from(this.watermark.minus(this.overlap)));
+    }
+
+    @Override
+    public long currentEpoch(String subject) {
+        return this.epochs.getOrDefault(subject, 0L);
+    }
+
+    @Override
+    public long issuingEpoch(String subject) {
+        var epoch = this.jdbcTemplate.query("select c_epoch from t_token_epoch where c_subject = ?",
+                resultSet -> resultSet.next() ? resultSet.getLong(1) : 0L, subject);
+        return epoch > 0 ? this.epochs.merge(subject, epoch, Math::max) : this.currentEpoch(subject);
+    }
+
+    @Override
+    public long advance(String subject) {
+        long epoch;
+        while (true) {
+            if (this.jdbcTemplate.update("update t_token_epoch set c_epoch = c_epoch + 1, c_updated_at = now() " +
+                    "where c_subject = ?", subject) == 0) {
+                try {
+                    this.jdbcTemplate.update("insert into t_token_epoch (c_subject, c_epoch) values (?, 1)", subject);
+                } catch (DuplicateKeyException exception) {
+                    continue;
+                }
+            }
+            epoch = this.jdbcTemplate.queryForObject("select c_epoch from t_token_epoch where c_subject = ?",
+                    Long.class, subject);
+            break;
+        }
+        this.epochs.merge(subject, epoch, Math::max);
+        return epoch;
+    }
+
+    public int size() {
+        return this.epochs.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jwt.token-epochs.size", this, JdbcTokenEpochRegistry::size)
+                .register(registry);
+    }
+
+    private void put(ResultSet resultSet) throws SQLException {
+        this.epochs.merge(resultSet.getString("c_subject"), resultSet.getLong("c_epoch"), Math::max);
+        var updatedAt = resultSet.getTimestamp("c_updated_at").toInstant();
+        if (updatedAt.isAfter(this.watermark)) {
+            this.watermark = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package pro.akosarev.sandbox;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+@AllArgsConstructor
+public class JdbcTokenRevocationChecker implements TokenRevocationChecker {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean isRevoked(UUID tokenId) {
+        return Boolean.TRUE.equals(this.jdbcTemplate.queryForObject(
+                "select exists(select id from t_deactivated_token where id = ?)", Boolean.class, tokenId));
+    }
+}
@@ -0,0 +1,171 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the JWT filter chain.
+ * <p>
+ * All meters are registered up front, so recording on the request path is a plain counter increment
+ * or timer update without a registry lookup. {@link #noop()} is backed by a registry without children
+ * and is used by filters that were not given a registry. Caches, limiters and other components behind
+ * the filters are {@link io.micrometer.core.instrument.binder.MeterBinder}s that register their own meters.
+ */
+public class JwtMetrics {
+    private static final String DESERIALIZATION_DESCRIPTION =
+            "Time spent verifying the signature of access tokens and decrypting refresh tokens, " +
+                    "access tokens found in the access token cache are not verified again and not timed";
+
+    private static final JwtMetrics NOOP = new JwtMetrics(new CompositeMeterRegistry());
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer requestTokensTimer;
+
+    private final Timer refreshTokenTimer;
+
+    private final Timer logoutTimer;
+
+    private final Timer batchTokensTimer;
+
+    private final Timer logoutEverywhereTimer;
+
+    private final Counter tokensIssued;
+
+    private final Counter tokensRefreshed;
+
+    private final Counter tokensRevoked;
+
+    private final Counter subjectsLoggedOut;
+
+    private final Timer accessTokenVerificationTimer;
+
+    private final Timer refreshTokenDecryptionTimer;
+
+    private final Map<TokenDeserializationResult.Reason, Counter> deserializationFailures =
+            new EnumMap<>(TokenDeserializationResult.Reason.class);
+
+    private final Timer revocationLookupTimer;
+
+    private final Counter authenticationSuccesses;
+
+    private final Counter authenticationFailures;
+
+    public JwtMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.requestTokensTimer = filterTimer("request-tokens");
+        this.refreshTokenTimer = filterTimer("refresh-token");
+        this.logoutTimer = filterTimer("logout");
+        this.batchTokensTimer = filterTimer("batch-tokens");
+        this.logoutEverywhereTimer = filterTimer("logout-everywhere");
+        this.tokensIssued = Counter.builder("jwt.tokens.issued")
+                .description("Access and refresh token pairs issued")
+                .register(meterRegistry);
+        this.tokensRefreshed = Counter.builder("jwt.tokens.refreshed")
+                .description("Access tokens issued for a refresh token")
+                .register(meterRegistry);
+        this.tokensRevoked = Counter.builder("jwt.tokens.revoked")
+                .description("Tokens deactivated on logout")
+                .register(meterRegistry);
+        this.subjectsLoggedOut = Counter.builder("jwt.subjects.logged-out")
+                .description("Token epochs advanced to revoke all tokens of a subject")
+                .register(meterRegistry);
+        this.accessTokenVerificationTimer = Timer.builder("jwt.token.deserialization")
+                .description(DESERIALIZATION_DESCRIPTION)
+                .tag("token", "access")
+                .register(meterRegistry);
+        this.refreshTokenDecryptionTimer = Timer.builder("jwt.token.deserialization")
+                .description(DESERIALIZATION_DESCRIPTION)
+                .tag("token", "refresh")
+                .register(meterRegistry);
+        for (var reason : TokenDeserializationResult.Reason.values()) {
+            this.deserializationFailures.put(reason, Counter.builder("jwt.token.deserialization.failures")
+                    .description("Bearer tokens that could not be deserialized")
+                    .tag("reason", reason.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        this.revocationLookupTimer = Timer.builder("jwt.revocation.lookup")
+                .description("Time spent checking whether a token is revoked")
+                .register(meterRegistry);
+        this.authenticationSuccesses = Counter.builder("jwt.authentication")
+                .tag("outcome", "success")
+                .register(meterRegistry);
+        this.authenticationFailures = Counter.builder("jwt.authentication")
+                .tag("outcome", "failure")
+                .register(meterRegistry);
+    }
+
+    public static JwtMetrics noop() {
+        return NOOP;
+    }
+
+    public void recordTokensIssued(long nanos) {
+        this.tokensIssued.increment();
+        this.requestTokensTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatchIssued(int count, long nanos) {
+        this.tokensIssued.increment(count);
+        this.batchTokensTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTokenRefreshed(long nanos) {
+        this.tokensRefreshed.increment();
+        this.refreshTokenTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTokenRevoked(long nanos) {
+        this.tokensRevoked.increment();
+        this.logoutTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSubjectLoggedOut(long nanos) {
+        this.subjectsLoggedOut.increment();
+        this.logoutEverywhereTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordDeserialization(TokenFormat format, TokenDeserializationResult result, long nanos) {
+        this.recordDeserializationTime(format, nanos);
+        this.recordDeserialization(result);
+    }
+
+    /**
+     * Counts a failed deserialization without timing it, for deserializations timed by
+     * {@link #recordDeserializationTime(TokenFormat, long)} where they happened.
+     */
+    public void recordDeserialization(TokenDeserializationResult result) {
+        if (result instanceof TokenDeserializationResult.Failure failure) {
+            this.deserializationFailures.get(failure.reason()).increment();
+        }
+    }
+
+    public void recordDeserializationTime(TokenFormat format, long nanos) {
+        switch (format) {
+            case JWS -> this.accessTokenVerificationTimer.record(nanos, TimeUnit.NANOSECONDS);
+            case JWE -> this.refreshTokenDecryptionTimer.record(nanos, TimeUnit.NANOSECONDS);
+            case UNKNOWN -> {
+            }
+        }
+    }
+
+    public void recordRevocationLookup(long nanos) {
+        this.revocationLookupTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAuthentication(boolean successful) {
+        (successful ? this.authenticationSuccesses : this.authenticationFailures).increment();
+    }
+
+    private Timer filterTimer(String filter) {
+        return Timer.builder("jwt.filter.requests")
+                .description("Time spent handling requests to the JWT endpoints")
+                .tag("filter", filter)
+                .register(this.meterRegistry);
+    }
+}
@@ -0,0 +1,107 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Signers, verifiers, encrypters or decrypters built once per key and looked up by key id.
+ * <p>
+ * The first key of the ring is the current one, used for new tokens; every key of the ring is accepted,
+ * so old and new keys can be active side by side during a rotation. A key without an id is the legacy key:
+ * it is used for any key id the ring does not know, which covers tokens issued before key ids were
+ * introduced, whose {@code kid} header held the token id. The ring is an immutable snapshot swapped
+ * on {@link #reload(List)}, so lookups never block and in-flight lookups keep the keys they started with.
+ */
+public class KeyRing<T> {
+    private final Factory<T> factory;
+
+    private volatile Snapshot<T> snapshot;
+
+    public KeyRing(Factory<T> factory, List<OctetSequenceKey> keys) {
+        this.factory = factory;
+        this.reload(keys);
+    }
+
+    /**
+     * A ring of a single legacy key, for components built from one signer, verifier, encrypter or decrypter.
+     * Such a ring has no factory to build other keys with, so it cannot be reloaded.
+     */
+    public static <T> KeyRing<T> of(T value) {
+        return new KeyRing<>(value);
+    }
+
+    private KeyRing(T value) {
+        this.factory = null;
+        this.snapshot = new Snapshot<>(new Key<>(null, value), Map.of(), value);
+    }
+
+    public Key<T> current() {
+        return this.snapshot.current();
+    }
+
+    public T get(String keyId) {
+        var snapshot = this.snapshot;
+        var value = keyId == null ? null : snapshot.keys().get(keyId);
+        return value != null ? value : snapshot.legacy();
+    }
+
+    public void reload(List<OctetSequenceKey> keys) {
+        this.prepareReload(keys).run();
+    }
+
+    /**
+     * Builds the values of the given keys and returns the action that swaps them in, so that several
+     * rings can be validated before any of them is changed.
+     */
+    Runnable prepareReload(List<OctetSequenceKey> keys) {
+        if (this.factory == null) {
+            throw new IllegalStateException("A single key ring cannot be reloaded");
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("A key ring needs at least one key");
+        }
+
+        Key<T> current = null;
+        T legacy = null;
+        var values = new HashMap<String, T>();
+        for (var key : keys) {
+            T value;
+            try {
+                value = this.factory.create(key);
+            } catch (JOSEException exception) {
+                throw new IllegalArgumentException("Invalid key " + key.getKeyID(), exception);
+            }
+            if (current == null) {
+                current = new Key<>(key.getKeyID(), value);
+            }
+            if (key.getKeyID() == null) {
+                if (legacy != null) {
+                    throw new IllegalArgumentException("Only one key may have no key id");
+                }
+                legacy = value;
+            } else if (values.putIfAbsent(key.getKeyID(), value) != null) {
+                throw new IllegalArgumentException("Duplicate key id " + key.getKeyID());
+            }
+        }
+        var snapshot = new Snapshot<>(current, Map.copyOf(values), legacy);
+        return () -> this.snapshot = snapshot;
+    }
+
+    @FunctionalInterface
+    public interface Factory<T> {
+        T create(OctetSequenceKey key) throws JOSEException;
+    }
+
+    /**
+     * A key's value together with its id, which is {@code null} for the legacy key.
+     */
+    public record Key<T>(String keyId, T value) {
+    }
+
+    private record Snapshot<T>(Key<T> current, Map<String, T> keys, T legacy) {
+    }
+}
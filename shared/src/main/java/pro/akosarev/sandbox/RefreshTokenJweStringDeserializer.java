@@ -0,0 +1,65 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEDecrypter;
+import com.nimbusds.jwt.EncryptedJWT;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static pro.akosarev.sandbox.TokenDeserializationResult.Reason;
+import static pro.akosarev.sandbox.TokenDeserializationResult.failure;
+
+public class RefreshTokenJweStringDeserializer implements TokenStringDeserializer {
+    private final KeyRing<JWEDecrypter> jweDecrypters;
+
+    private final Map<Integer, AuthorityDictionary> authorityDictionaries = new HashMap<>();
+
+    public RefreshTokenJweStringDeserializer(JWEDecrypter jweDecrypter) {
+        this(KeyRing.of(jweDecrypter));
+    }
+
+    public RefreshTokenJweStringDeserializer(KeyRing<JWEDecrypter> jweDecrypters) {
+        this.jweDecrypters = jweDecrypters;
+    }
+
+    /**
+     * Registers the dictionaries of the refresh tokens that are still valid, so their authorities can be decoded.
+     */
+    public void setAuthorityDictionaries(AuthorityDictionary... authorityDictionaries) {
+        this.authorityDictionaries.clear();
+        for (var authorityDictionary : authorityDictionaries) {
+            this.authorityDictionaries.put(authorityDictionary.version(), authorityDictionary);
+        }
+    }
+
+    @Override
+    public TokenDeserializationResult deserialize(String string) {
+        EncryptedJWT encryptedJWT;
+        try {
+            encryptedJWT = EncryptedJWT.parse(string);
+        } catch (ParseException exception) {
+            return failure(Reason.MALFORMED);
+        }
+
+        var header = encryptedJWT.getHeader();
+        var jweDecrypter = this.jweDecrypters.get(header.getKeyID());
+        if (jweDecrypter == null) {
+            return failure(Reason.UNKNOWN_KEY);
+        }
+        if (!jweDecrypter.supportedJWEAlgorithms().contains(header.getAlgorithm()) ||
+                !jweDecrypter.supportedEncryptionMethods().contains(header.getEncryptionMethod())) {
+            return failure(Reason.UNSUPPORTED_ALGORITHM);
+        }
+
+        try {
+            encryptedJWT.decrypt(jweDecrypter);
+            return TokenClaims.toToken(encryptedJWT.getJWTClaimsSet(), this.authorityDictionaries);
+        } catch (JOSEException exception) {
+            return failure(Reason.DECRYPTION_FAILED);
+        } catch (ParseException exception) {
+            return failure(Reason.INVALID_CLAIMS);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.*;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import java.util.Date;
+import java.util.function.Function;
+
+public class RefreshTokenJweStringSerializer implements Function<Token, String> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshTokenJweStringSerializer.class);
+
+    private final KeyRing<JWEEncrypter> jweEncrypters;
+
+    @Setter
+    private JWEAlgorithm jweAlgorithm = JWEAlgorithm.DIR;
+
+    @Setter
+    private EncryptionMethod encryptionMethod = EncryptionMethod.A128GCM;
+
+    /**
+     * Compression of the claims before encryption, {@code DEF} shrinks the authorities of users with many roles.
+     */
+    @Setter
+    private CompressionAlgorithm compressionAlgorithm;
+
+    /**
+     * Dictionary to encode authorities as indexes with, all authorities are written as strings if {@code null}.
+     */
+    @Setter
+    private AuthorityDictionary authorityDictionary;
+
+    public RefreshTokenJweStringSerializer(JWEEncrypter jweEncrypter) {
+        this(KeyRing.of(jweEncrypter));
+    }
+
+    public RefreshTokenJweStringSerializer(JWEEncrypter jweEncrypter, JWEAlgorithm jweAlgorithm, EncryptionMethod encryptionMethod) {
+        this(KeyRing.of(jweEncrypter));
+        this.jweAlgorithm = jweAlgorithm;
+        this.encryptionMethod = encryptionMethod;
+    }
+
+    public RefreshTokenJweStringSerializer(KeyRing<JWEEncrypter> jweEncrypters) {
+        this.jweEncrypters = jweEncrypters;
+    }
+
+    @Override
+    public String apply(Token token) {
+        var jweEncrypter = this.jweEncrypters.current();
+        var jwsHeader = new JWEHeader.Builder(this.jweAlgorithm, this.encryptionMethod)
+                .keyID(jweEncrypter.keyId() != null ? jweEncrypter.keyId() : token.id().toString())
+                .compressionAlgorithm(this.compressionAlgorithm)
+                .build();
+        var claimsSetBuilder = new JWTClaimsSet.Builder()
+                .jwtID(token.id().toString())
+                .subject(token.subject())
+                .issueTime(Date.from(token.createdAt()))
+                .expirationTime(Date.from(token.expiresAt()));
+        if (token.epoch() != 0) {
+            claimsSetBuilder.claim(TokenClaims.EPOCH_CLAIM, token.epoch());
+        }
+        if (this.authorityDictionary != null) {
+            var encoded = this.authorityDictionary.encode(token.authorities());
+            claimsSetBuilder.claim(AuthorityDictionary.VERSION_CLAIM, this.authorityDictionary.version())
+                    .claim(AuthorityDictionary.INDEXES_CLAIM, encoded.indexes());
+            if (!encoded.extraAuthorities().isEmpty()) {
+                claimsSetBuilder.claim(AuthorityDictionary.EXTRA_AUTHORITIES_CLAIM, encoded.extraAuthorities());
+            }
+        } else {
+            claimsSetBuilder.claim("authorities", token.authorities());
+        }
+        var encryptedJWT = new EncryptedJWT(jwsHeader, claimsSetBuilder.build());
+        try {
+            encryptedJWT.encrypt(jweEncrypter.value());
+
+            return encryptedJWT.serialize();
+        } catch (JOSEException exception) {
+            LOGGER.error(exception.getMessage(), exception);
+        }
+        return null;
+    }
+}
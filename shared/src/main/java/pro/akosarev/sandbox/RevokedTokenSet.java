@@ -0,0 +1,339 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Compact in-memory set of revoked token ids.
+ * <p>
+ * Ids are stored as pairs of primitive longs in an open-addressing table with linear probing,
+ * the all-zero pair marks an empty slot. Every id is also placed into a timing wheel slot
+ * of its {@code keepUntil} tick, so expired ids are removed a whole wheel slot at a time.
+ * The table keeps the latest expiry tick of every id, so an id added again with a later
+ * {@code keepUntil} outlives the wheel slot it was first placed into.
+ * Lookups are lock-free in the common case and fall back to a read lock on contention with writers.
+ */
+public class RevokedTokenSet implements TokenRevocationChecker, MeterBinder {
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final int MIN_BUCKET_CAPACITY = 16;
+
+    private final StampedLock lock = new StampedLock();
+
+    private final long tickMillis;
+
+    private final long[][] wheel;
+
+    private final int[] wheelSizes;
+
+    private long[] overflow = new long[0];
+
+    private int overflowSize;
+
+    private long currentTick;
+
+    private long[] table;
+
+    private long[] expiryTicks;
+
+    private int size;
+
+    private int threshold;
+
+    private boolean containsNil;
+
+    private long nilExpiryTick;
+
+    public RevokedTokenSet() {
+        this(1 << 10, Duration.ofMinutes(1), 2048);
+    }
+
+    public RevokedTokenSet(int expectedSize, Duration tick, int wheelSize) {
+        if (tick.toMillis() <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive");
+        }
+        this.tickMillis = tick.toMillis();
+        this.wheel = new long[wheelSize][];
+        this.wheelSizes = new int[wheelSize];
+        this.currentTick = System.currentTimeMillis() / this.tickMillis;
+        var slots = Integer.highestOneBit(Math.max(16, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.table = new long[slots << 1];
+        this.expiryTicks = new long[slots];
+        this.threshold = (int) (slots * LOAD_FACTOR);
+    }
+
+    @Override
+    public boolean isRevoked(UUID tokenId) {
+        var mostSigBits = tokenId.getMostSignificantBits();
+        var leastSigBits = tokenId.getLeastSignificantBits();
+        var stamp = this.lock.tryOptimisticRead();
+        var found = this.lookup(mostSigBits, leastSigBits);
+        if (!this.lock.validate(stamp)) {
+            stamp = this.lock.readLock();
+            try {
+                found = this.lookup(mostSigBits, leastSigBits);
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    public void add(UUID tokenId, Instant keepUntil) {
+        var expiryTick = Math.floorDiv(keepUntil.toEpochMilli(), this.tickMillis) + 1;
+        var stamp = this.lock.writeLock();
+        try {
+            if (expiryTick <= this.currentTick) {
+                return;
+            }
+            var mostSigBits = tokenId.getMostSignificantBits();
+            var leastSigBits = tokenId.getLeastSignificantBits();
+            if (this.insert(mostSigBits, leastSigBits, expiryTick)) {
+                this.schedule(mostSigBits, leastSigBits, expiryTick);
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    public void purgeExpired(Instant now) {
+        var nowTick = Math.floorDiv(now.toEpochMilli(), this.tickMillis);
+        var stamp = this.lock.writeLock();
+        try {
+            var ticks = Math.min(nowTick - this.currentTick, this.wheel.length);
+            for (var i = 0; i < ticks; i++) {
+                var index = (int) Math.floorMod(this.currentTick + 1 + i, (long) this.wheel.length);
+                var bucket = this.wheel[index];
+                for (var j = 0; j < this.wheelSizes[index]; j += 2) {
+                    this.remove(bucket[j], bucket[j + 1], nowTick);
+                }
+                this.wheel[index] = null;
+                this.wheelSizes[index] = 0;
+            }
+            this.currentTick = Math.max(this.currentTick, nowTick);
+            this.drainOverflow();
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        var stamp = this.lock.readLock();
+        try {
+            return this.size + (this.containsNil ? 1 : 0);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("jwt.revocation.in-memory.size", this, RevokedTokenSet::size)
+                .register(registry);
+    }
+
+    public long footprintBytes() {
+        var stamp = this.lock.readLock();
+        try {
+            long bytes = (long) (this.table.length + this.expiryTicks.length + this.overflow.length) * Long.BYTES;
+            for (var bucket : this.wheel) {
+                if (bucket != null) {
+                    bytes += (long) bucket.length * Long.BYTES;
+                }
+            }
+            return bytes;
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean lookup(long mostSigBits, long leastSigBits) {
+        if (mostSigBits == 0 && leastSigBits == 0) {
+            return this.containsNil;
+        }
+        var table = this.table;
+        var slots = table.length >>> 1;
+        var mask = slots - 1;
+        var slot = hash(mostSigBits, leastSigBits) & mask;
+        for (var probes = 0; probes < slots; probes++) {
+            var msb = table[slot << 1];
+            var lsb = table[(slot << 1) + 1];
+            if (msb == mostSigBits && lsb == leastSigBits) {
+                return true;
+            }
+            if (msb == 0 && lsb == 0) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the id has to be scheduled, that is whether it is new or now expires later.
+     */
+    private boolean insert(long mostSigBits, long leastSigBits, long expiryTick) {
+        if (mostSigBits == 0 && leastSigBits == 0) {
+            if (this.containsNil && this.nilExpiryTick >= expiryTick) {
+                return false;
+            }
+            this.containsNil = true;
+            this.nilExpiryTick = expiryTick;
+            return true;
+        }
+        if (this.size >= this.threshold) {
+            this.resize();
+        }
+        var mask = (this.table.length >>> 1) - 1;
+        var slot = hash(mostSigBits, leastSigBits) & mask;
+        while (true) {
+            var msb = this.table[slot << 1];
+            var lsb = this.table[(slot << 1) + 1];
+            if (msb == mostSigBits && lsb == leastSigBits) {
+                if (this.expiryTicks[slot] >= expiryTick) {
+                    return false;
+                }
+                this.expiryTicks[slot] = expiryTick;
+                return true;
+            }
+            if (msb == 0 && lsb == 0) {
+                this.table[slot << 1] = mostSigBits;
+                this.table[(slot << 1) + 1] = leastSigBits;
+                this.expiryTicks[slot] = expiryTick;
+                this.size++;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void remove(long mostSigBits, long leastSigBits, long nowTick) {
+        if (mostSigBits == 0 && leastSigBits == 0) {
+            if (this.nilExpiryTick <= nowTick) {
+                this.containsNil = false;
+            }
+            return;
+        }
+        var mask = (this.table.length >>> 1) - 1;
+        var slot = hash(mostSigBits, leastSigBits) & mask;
+        while (true) {
+            var msb = this.table[slot << 1];
+            var lsb = this.table[(slot << 1) + 1];
+            if (msb == 0 && lsb == 0) {
+                return;
+            }
+            if (msb == mostSigBits && lsb == leastSigBits) {
+                if (this.expiryTicks[slot] > nowTick) {
+                    return;
+                }
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        var hole = slot;
+        var next = (hole + 1) & mask;
+        while (true) {
+            var msb = this.table[next << 1];
+            var lsb = this.table[(next << 1) + 1];
+            if (msb == 0 && lsb == 0) {
+                break;
+            }
+            var home = hash(msb, lsb) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.table[hole << 1] = msb;
+                this.table[(hole << 1) + 1] = lsb;
+                this.expiryTicks[hole] = this.expiryTicks[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.table[hole << 1] = 0;
+        this.table[(hole << 1) + 1] = 0;
+        this.expiryTicks[hole] = 0;
+        this.size--;
+    }
+
+    private void resize() {
+        var old = this.table;
+        var slots = old.length;
+        var mask = slots - 1;
+        var resized = new long[slots << 1];
+        var resizedExpiryTicks = new long[slots];
+        for (var i = 0; i < old.length; i += 2) {
+            var msb = old[i];
+            var lsb = old[i + 1];
+            if (msb != 0 || lsb != 0) {
+                var slot = hash(msb, lsb) & mask;
+                while (resized[slot << 1] != 0 || resized[(slot << 1) + 1] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                resized[slot << 1] = msb;
+                resized[(slot << 1) + 1] = lsb;
+                resizedExpiryTicks[slot] = this.expiryTicks[i >>> 1];
+            }
+        }
+        this.table = resized;
+        this.expiryTicks = resizedExpiryTicks;
+        this.threshold = (int) (slots * LOAD_FACTOR);
+    }
+
+    private void schedule(long mostSigBits, long leastSigBits, long expiryTick) {
+        if (expiryTick - this.currentTick > this.wheel.length) {
+            this.overflow = ensureCapacity(this.overflow, this.overflowSize + 3);
+            this.overflow[this.overflowSize++] = mostSigBits;
+            this.overflow[this.overflowSize++] = leastSigBits;
+            this.overflow[this.overflowSize++] = expiryTick;
+            return;
+        }
+        var index = (int) Math.floorMod(expiryTick, (long) this.wheel.length);
+        var bucket = this.wheel[index] == null ? new long[MIN_BUCKET_CAPACITY] : this.wheel[index];
+        bucket = ensureCapacity(bucket, this.wheelSizes[index] + 2);
+        bucket[this.wheelSizes[index]++] = mostSigBits;
+        bucket[this.wheelSizes[index]++] = leastSigBits;
+        this.wheel[index] = bucket;
+    }
+
+    private void drainOverflow() {
+        var remaining = 0;
+        for (var i = 0; i < this.overflowSize; i += 3) {
+            var mostSigBits = this.overflow[i];
+            var leastSigBits = this.overflow[i + 1];
+            var expiryTick = this.overflow[i + 2];
+            if (expiryTick <= this.currentTick) {
+                this.remove(mostSigBits, leastSigBits, this.currentTick);
+            } else if (expiryTick - this.currentTick <= this.wheel.length) {
+                this.schedule(mostSigBits, leastSigBits, expiryTick);
+            } else {
+                this.overflow[remaining++] = mostSigBits;
+                this.overflow[remaining++] = leastSigBits;
+                this.overflow[remaining++] = expiryTick;
+            }
+        }
+        this.overflowSize = remaining;
+    }
+
+    private static long[] ensureCapacity(long[] array, int capacity) {
+        if (array.length >= capacity) {
+            return array;
+        }
+        return Arrays.copyOf(array, Math.max(capacity, array.length + (array.length >>> 1)));
+    }
+
+    private static int hash(long mostSigBits, long leastSigBits) {
+        var hash = mostSigBits ^ Long.rotateLeft(leastSigBits, 32);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+}
@@ -0,0 +1,53 @@
+package pro.akosarev.sandbox;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread reusable objects, such as buffers and {@link javax.crypto.Mac} instances, that stay reusable
+ * on virtual threads.
+ * <p>
+ * A platform thread keeps its object in a {@link ThreadLocal}. A virtual thread usually lives for a single
+ * request, so a thread local would create an object per request; virtual threads borrow objects from
+ * a bounded lock-free queue instead and hand them back on {@link #release(Object)}.
+ */
+final class ThreadLocalPool<T> {
+    private static final int MAXIMUM_POOLED = Runtime.getRuntime().availableProcessors() * 2;
+
+    private final Supplier<T> factory;
+
+    private final ThreadLocal<T> platformThreadObjects;
+
+    private final ConcurrentLinkedQueue<T> virtualThreadObjects = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    ThreadLocalPool(Supplier<T> factory) {
+        this.factory = factory;
+        this.platformThreadObjects = ThreadLocal.withInitial(factory);
+    }
+
+    T acquire() {
+        if (!Thread.currentThread().isVirtual()) {
+            return this.platformThreadObjects.get();
+        }
+        var object = this.virtualThreadObjects.poll();
+        if (object == null) {
+            return this.factory.get();
+        }
+        this.pooled.decrementAndGet();
+        return object;
+    }
+
+    void release(T object) {
+        if (!Thread.currentThread().isVirtual()) {
+            return;
+        }
+        if (this.pooled.incrementAndGet() > MAXIMUM_POOLED) {
+            this.pooled.decrementAndGet();
+            return;
+        }
+        this.virtualThreadObjects.offer(object);
+    }
+}
@@ -4,9 +4,18 @@ import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * @param epoch the token epoch of the subject when the token was issued, the token is revoked
+ *              once the subject's epoch is advanced past it
+ */
 public record Token(UUID id,
                     String subject,
                     List<String> authorities,
                     Instant createdAt,
-                    Instant expiresAt) {
+                    Instant expiresAt,
+                    long epoch) {
+
+    public Token(UUID id, String subject, List<String> authorities, Instant createdAt, Instant expiresAt) {
+        this(id, subject, authorities, createdAt, expiresAt, 0);
+    }
 }
@@ -1,8 +1,7 @@
 package pro.akosarev.sandbox;
 
-import lombok.AllArgsConstructor;
+import lombok.Setter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.AuthenticationUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -10,24 +9,37 @@ import org.springframework.security.web.authentication.preauth.PreAuthenticatedA
 
 import java.time.Instant;
 
-@AllArgsConstructor
 public class TokenAuthenticationUserDetailsService
         implements AuthenticationUserDetailsService<PreAuthenticatedAuthenticationToken> {
-    private final JdbcTemplate jdbcTemplate;
+    private final TokenRevocationChecker tokenRevocationChecker;
+
+    private final AuthorityRegistry authorityRegistry;
+
+    @Setter
+    private TokenEpochRegistry tokenEpochRegistry;
+
+    public TokenAuthenticationUserDetailsService(JdbcTemplate jdbcTemplate) {
+        this(new JdbcTokenRevocationChecker(jdbcTemplate));
+    }
+
+    public TokenAuthenticationUserDetailsService(TokenRevocationChecker tokenRevocationChecker) {
+        this(tokenRevocationChecker, new AuthorityRegistry());
+    }
+
+    public TokenAuthenticationUserDetailsService(TokenRevocationChecker tokenRevocationChecker,
+                                                 AuthorityRegistry authorityRegistry) {
+        this.tokenRevocationChecker = tokenRevocationChecker;
+        this.authorityRegistry = authorityRegistry;
+    }
 
     @Override
     public UserDetails loadUserDetails(PreAuthenticatedAuthenticationToken authenticationToken)
             throws UsernameNotFoundException {
         if (authenticationToken.getPrincipal() instanceof Token token) {
-            return new TokenUser(token.subject(), "nopassword", true, true,
-                    !this.jdbcTemplate.queryForObject(
-                            "select exists(select id from t_deactivated_token where id = ?)",
-                            Boolean.class, token.id()) &&
-                            token.expiresAt().isAfter(Instant.now()),
-                    true,
-                    token.authorities().stream()
-                            .map(SimpleGrantedAuthority::new)
-                            .toList(), token);
+            return new TokenPrincipal(token, this.authorityRegistry.authoritySet(token.authorities()),
+                    !this.tokenRevocationChecker.isRevoked(token.id()) &&
+                            (this.tokenEpochRegistry == null || this.tokenEpochRegistry.isCurrent(token)) &&
+                            token.expiresAt().isAfter(Instant.now()));
         }
         throw new UsernameNotFoundException("Principal must me of type Token");
     }
@@ -0,0 +1,64 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static pro.akosarev.sandbox.TokenDeserializationResult.Reason;
+import static pro.akosarev.sandbox.TokenDeserializationResult.failure;
+import static pro.akosarev.sandbox.TokenDeserializationResult.success;
+
+final class TokenClaims {
+    static final String EPOCH_CLAIM = "epoch";
+
+    private TokenClaims() {
+    }
+
+    static TokenDeserializationResult toToken(JWTClaimsSet claimsSet) {
+        return toToken(claimsSet, Map.of());
+    }
+
+    static TokenDeserializationResult toToken(JWTClaimsSet claimsSet,
+                                              Map<Integer, AuthorityDictionary> authorityDictionaries) {
+        try {
+            var id = claimsSet.getJWTID();
+            var authorities = claimsSet.getStringListClaim("authorities");
+            if (authorities == null && claimsSet.getClaim(AuthorityDictionary.VERSION_CLAIM) != null) {
+                authorities = decodeAuthorities(claimsSet, authorityDictionaries);
+            }
+            var issueTime = claimsSet.getIssueTime();
+            var expirationTime = claimsSet.getExpirationTime();
+            if (id == null || claimsSet.getSubject() == null || authorities == null ||
+                    issueTime == null || expirationTime == null) {
+                return failure(Reason.INVALID_CLAIMS);
+            }
+            var epoch = claimsSet.getLongClaim(EPOCH_CLAIM);
+            return success(new Token(UUID.fromString(id), claimsSet.getSubject(), authorities,
+                    issueTime.toInstant(), expirationTime.toInstant(), epoch != null ? epoch : 0));
+        } catch (ParseException | IllegalArgumentException exception) {
+            return failure(Reason.INVALID_CLAIMS);
+        }
+    }
+
+    private static List<String> decodeAuthorities(JWTClaimsSet claimsSet,
+                                                  Map<Integer, AuthorityDictionary> authorityDictionaries)
+            throws ParseException {
+        var authorityDictionary = authorityDictionaries.get(
+                claimsSet.getIntegerClaim(AuthorityDictionary.VERSION_CLAIM));
+        if (authorityDictionary == null || !(claimsSet.getClaim(AuthorityDictionary.INDEXES_CLAIM)
+                instanceof List<?> indexes)) {
+            return null;
+        }
+        var numbers = indexes.stream()
+                .map(index -> index instanceof Number number ? number : null)
+                .toList();
+        if (numbers.contains(null)) {
+            return null;
+        }
+        var extraAuthorities = claimsSet.getStringListClaim(AuthorityDictionary.EXTRA_AUTHORITIES_CLAIM);
+        return authorityDictionary.decode(numbers, extraAuthorities != null ? extraAuthorities : List.of());
+    }
+}
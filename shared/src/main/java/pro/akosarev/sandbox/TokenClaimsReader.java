@@ -0,0 +1,344 @@
+package pro.akosarev.sandbox;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static pro.akosarev.sandbox.TokenDeserializationResult.Reason;
+import static pro.akosarev.sandbox.TokenDeserializationResult.failure;
+import static pro.akosarev.sandbox.TokenDeserializationResult.success;
+
+/**
+ * Single-pass reader of the JWT claims a {@link Token} is made of, and of the key id of a JOSE header.
+ * <p>
+ * Only the top-level {@code jti}, {@code sub}, {@code iat}, {@code exp}, {@code authorities} and {@code epoch} members
+ * are decoded, values of any other member are skipped without being materialized. Skipped values are still
+ * checked against the JSON grammar, and a member that occurs twice rejects the whole object, as it may be read
+ * differently by another parser.
+ */
+final class TokenClaimsReader {
+    private final byte[] json;
+
+    private final int length;
+
+    private int position;
+
+    private TokenClaimsReader(byte[] json, int length) {
+        this.json = json;
+        this.length = length;
+    }
+
+    static TokenDeserializationResult read(byte[] json, int length) {
+        try {
+            return new TokenClaimsReader(json, length).readToken();
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeException exception) {
+            return failure(Reason.INVALID_CLAIMS);
+        }
+    }
+
+    /**
+     * Reads the {@code kid} member of a JOSE header, {@code null} if there is none.
+     */
+    static String readKeyId(byte[] json, int length) {
+        var reader = new TokenClaimsReader(json, length);
+        var names = new HashSet<String>();
+        String keyId = null;
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                var name = reader.readName(names);
+                if (name.equals("kid")) {
+                    keyId = reader.readNullableString();
+                } else {
+                    reader.skipValue();
+                }
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        reader.expectEnd();
+        return keyId;
+    }
+
+    private TokenDeserializationResult readToken() {
+        String id = null;
+        String subject = null;
+        List<String> authorities = null;
+        Long issueTime = null;
+        Long expirationTime = null;
+        Long epoch = null;
+        var names = new HashSet<String>();
+
+        this.expect('{');
+        if (!this.consume('}')) {
+            do {
+                var name = this.readName(names);
+                switch (name) {
+                    case "jti" -> id = this.readNullableString();
+                    case "sub" -> subject = this.readNullableString();
+                    case "iat" -> issueTime = this.readNullableSeconds();
+                    case "exp" -> expirationTime = this.readNullableSeconds();
+                    case "authorities" -> authorities = this.readNullableStringList();
+                    case TokenClaims.EPOCH_CLAIM -> epoch = this.readNullableSeconds();
+                    default -> this.skipValue();
+                }
+            } while (this.consume(','));
+            this.expect('}');
+        }
+        this.expectEnd();
+
+        if (id == null || subject == null || authorities == null || issueTime == null || expirationTime == null) {
+            return failure(Reason.INVALID_CLAIMS);
+        }
+        return success(new Token(UUID.fromString(id), subject, authorities,
+                Instant.ofEpochSecond(issueTime), Instant.ofEpochSecond(expirationTime), epoch != null ? epoch : 0));
+    }
+
+    private String readName(Set<String> names) {
+        var name = this.readString();
+        if (!names.add(name)) {
+            throw new IllegalArgumentException("Duplicate member " + name);
+        }
+        this.expect(':');
+        return name;
+    }
+
+    private String readNullableString() {
+        return this.consumeLiteral("null") ? null : this.readString();
+    }
+
+    private Long readNullableSeconds() {
+        if (this.consumeLiteral("null")) {
+            return null;
+        }
+        var start = this.skipWhitespace();
+        if (!this.skipNumber()) {
+            // fractions and exponents are truncated to whole seconds, as Nimbus does
+            var seconds = Double.parseDouble(new String(this.json, start, this.position - start,
+                    StandardCharsets.US_ASCII));
+            if (!(Math.abs(seconds) < 0x1p63)) {
+                throw new ArithmeticException("Seconds out of range at " + start);
+            }
+            return (long) seconds;
+        }
+        var negative = this.json[start] == '-';
+        var seconds = 0L;
+        for (var i = negative ? start + 1 : start; i < this.position; i++) {
+            seconds = Math.addExact(Math.multiplyExact(seconds, 10), this.json[i] - '0');
+        }
+        return negative ? -seconds : seconds;
+    }
+
+    private List<String> readNullableStringList() {
+        if (this.consumeLiteral("null")) {
+            return null;
+        }
+        this.expect('[');
+        var values = new ArrayList<String>();
+        if (!this.consume(']')) {
+            do {
+                values.add(this.readString());
+            } while (this.consume(','));
+            this.expect(']');
+        }
+        return values;
+    }
+
+    private String readString() {
+        this.expect('"');
+        var start = this.position;
+        while (this.position < this.length) {
+            var b = this.json[this.position];
+            if (b == '"') {
+                return new String(this.json, start, this.position++ - start, StandardCharsets.UTF_8);
+            }
+            if (b == '\\') {
+                return this.readEscapedString(start);
+            }
+            if (b >= 0 && b < 0x20) {
+                throw new IllegalArgumentException("Unescaped control character at " + this.position);
+            }
+            this.position++;
+        }
+        throw new IllegalArgumentException("Unterminated string");
+    }
+
+    private String readEscapedString(int start) {
+        var builder = new StringBuilder(new String(this.json, start, this.position - start, StandardCharsets.UTF_8));
+        var chunkStart = this.position;
+        while (this.position < this.length) {
+            var b = this.json[this.position];
+            if (b == '"') {
+                builder.append(new String(this.json, chunkStart, this.position++ - chunkStart, StandardCharsets.UTF_8));
+                return builder.toString();
+            }
+            if (b == '\\') {
+                builder.append(new String(this.json, chunkStart, this.position - chunkStart, StandardCharsets.UTF_8));
+                if (this.position + 1 >= this.length) {
+                    break;
+                }
+                var escaped = this.json[this.position + 1];
+                this.position += 2;
+                switch (escaped) {
+                    case '"', '\\', '/' -> builder.append((char) escaped);
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case 'u' -> {
+                        if (this.position + 4 > this.length) {
+                            throw new IllegalArgumentException("Truncated unicode escape");
+                        }
+                        var c = 0;
+                        for (var i = 0; i < 4; i++) {
+                            var digit = Character.digit(this.json[this.position++], 16);
+                            if (digit < 0) {
+                                throw new IllegalArgumentException("Invalid unicode escape");
+                            }
+                            c = c << 4 | digit;
+                        }
+                        builder.append((char) c);
+                    }
+                    default -> throw new IllegalArgumentException("Invalid escape sequence");
+                }
+                chunkStart = this.position;
+            } else if (b >= 0 && b < 0x20) {
+                throw new IllegalArgumentException("Unescaped control character at " + this.position);
+            } else {
+                this.position++;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string");
+    }
+
+    private void skipValue() {
+        var start = this.skipWhitespace();
+        if (start >= this.length) {
+            throw new IllegalArgumentException("Value expected");
+        }
+        switch (this.json[start]) {
+            case '"' -> this.readString();
+            case '{' -> this.skipContainer('{', '}');
+            case '[' -> this.skipContainer('[', ']');
+            case 't' -> this.expectLiteral("true");
+            case 'f' -> this.expectLiteral("false");
+            case 'n' -> this.expectLiteral("null");
+            default -> this.skipNumber();
+        }
+    }
+
+    /**
+     * Skips a number, which must follow the JSON grammar.
+     *
+     * @return whether the number is an integer, without a fraction or an exponent
+     */
+    private boolean skipNumber() {
+        var start = this.position;
+        if (this.position < this.length && this.json[this.position] == '-') {
+            this.position++;
+        }
+        var integerStart = this.position;
+        var integerDigits = this.skipDigits();
+        if (integerDigits == 0 || integerDigits > 1 && this.json[integerStart] == '0') {
+            throw new IllegalArgumentException("Invalid number at " + start);
+        }
+        var integer = true;
+        if (this.position < this.length && this.json[this.position] == '.') {
+            this.position++;
+            if (this.skipDigits() == 0) {
+                throw new IllegalArgumentException("Invalid number at " + start);
+            }
+            integer = false;
+        }
+        if (this.position < this.length && (this.json[this.position] == 'e' || this.json[this.position] == 'E')) {
+            this.position++;
+            if (this.position < this.length && (this.json[this.position] == '+' || this.json[this.position] == '-')) {
+                this.position++;
+            }
+            if (this.skipDigits() == 0) {
+                throw new IllegalArgumentException("Invalid number at " + start);
+            }
+            integer = false;
+        }
+        return integer;
+    }
+
+    private int skipDigits() {
+        var start = this.position;
+        while (this.position < this.length && this.json[this.position] >= '0' && this.json[this.position] <= '9') {
+            this.position++;
+        }
+        return this.position - start;
+    }
+
+    private void skipContainer(char open, char close) {
+        this.expect(open);
+        if (this.consume(close)) {
+            return;
+        }
+        do {
+            if (open == '{') {
+                this.readString();
+                this.expect(':');
+            }
+            this.skipValue();
+        } while (this.consume(','));
+        this.expect(close);
+    }
+
+    private boolean consumeLiteral(String literal) {
+        var start = this.skipWhitespace();
+        if (start + literal.length() > this.length) {
+            return false;
+        }
+        for (var i = 0; i < literal.length(); i++) {
+            if (this.json[start + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        this.position += literal.length();
+        return true;
+    }
+
+    private void expectLiteral(String literal) {
+        if (!this.consumeLiteral(literal)) {
+            throw new IllegalArgumentException("'%s' expected at %d".formatted(literal, this.position));
+        }
+    }
+
+    private boolean consume(char c) {
+        if (this.skipWhitespace() < this.length && this.json[this.position] == c) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!this.consume(c)) {
+            throw new IllegalArgumentException("'%s' expected at %d".formatted(c, this.position));
+        }
+    }
+
+    private void expectEnd() {
+        if (this.skipWhitespace() < this.length) {
+            throw new IllegalArgumentException("Unexpected content at " + this.position);
+        }
+    }
+
+    private int skipWhitespace() {
+        while (this.position < this.length) {
+            var b = this.json[this.position];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                break;
+            }
+            this.position++;
+        }
+        return this.position;
+    }
+}
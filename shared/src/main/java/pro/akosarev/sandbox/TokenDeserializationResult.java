@@ -0,0 +1,32 @@
+package pro.akosarev.sandbox;
+
+public sealed interface TokenDeserializationResult {
+
+    static TokenDeserializationResult success(Token token) {
+        return new Success(token);
+    }
+
+    static TokenDeserializationResult failure(Reason reason) {
+        return new Failure(reason);
+    }
+
+    default Token tokenOrNull() {
+        return this instanceof Success success ? success.token() : null;
+    }
+
+    record Success(Token token) implements TokenDeserializationResult {
+    }
+
+    record Failure(Reason reason) implements TokenDeserializationResult {
+    }
+
+    enum Reason {
+        MALFORMED,
+        UNSUPPORTED_ALGORITHM,
+        UNKNOWN_KEY,
+        INVALID_SIGNATURE,
+        DECRYPTION_FAILED,
+        INVALID_CLAIMS,
+        REJECTED
+    }
+}
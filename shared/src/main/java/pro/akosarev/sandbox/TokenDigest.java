@@ -0,0 +1,26 @@
+package pro.akosarev.sandbox;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public record TokenDigest(long high, long low) {
+    private static final ThreadLocalPool<MessageDigest> MESSAGE_DIGESTS = new ThreadLocalPool<>(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    });
+
+    public static TokenDigest of(String token) {
+        var messageDigest = MESSAGE_DIGESTS.acquire();
+        try {
+            var digest = ByteBuffer.wrap(messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            return new TokenDigest(digest.getLong(), digest.getLong());
+        } finally {
+            MESSAGE_DIGESTS.release(messageDigest);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package pro.akosarev.sandbox;
+
+/**
+ * Per-subject token epochs: advancing the epoch of a subject revokes every token issued to it before.
+ * Subjects whose epoch was never advanced are at epoch 0.
+ */
+public interface TokenEpochRegistry {
+
+    long currentEpoch(String subject);
+
+    /**
+     * Epoch to issue new tokens of the subject at. It must not lag behind epochs advanced elsewhere, or the
+     * new tokens would be revoked as soon as the advance is picked up.
+     */
+    default long issuingEpoch(String subject) {
+        return this.currentEpoch(subject);
+    }
+
+    /**
+     * Advances the epoch of the subject and returns the new epoch.
+     */
+    long advance(String subject);
+
+    default boolean isCurrent(Token token) {
+        return token.epoch() >= this.currentEpoch(token.subject());
+    }
+}
@@ -0,0 +1,38 @@
+package pro.akosarev.sandbox;
+
+/**
+ * Compact serialization of a bearer token, told apart by the number of segments
+ * without decoding or parsing anything.
+ */
+public enum TokenFormat {
+    JWS,
+    JWE,
+    UNKNOWN;
+
+    public static TokenFormat of(String token) {
+        var segments = 1;
+        var segmentLength = 0;
+        for (var i = 0; i < token.length(); i++) {
+            var c = token.charAt(i);
+            if (c == '.') {
+                if (segmentLength == 0 && segments != 2) {
+                    return UNKNOWN;
+                }
+                segments++;
+                segmentLength = 0;
+            } else if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_') {
+                segmentLength++;
+            } else {
+                return UNKNOWN;
+            }
+        }
+        if (segmentLength == 0) {
+            return UNKNOWN;
+        }
+        return switch (segments) {
+            case 3 -> JWS;
+            case 5 -> JWE;
+            default -> UNKNOWN;
+        };
+    }
+}
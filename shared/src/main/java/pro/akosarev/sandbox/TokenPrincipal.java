@@ -0,0 +1,57 @@
+package pro.akosarev.sandbox;
+
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Principal of an authenticated {@link Token}.
+ * <p>
+ * Unlike {@link org.springframework.security.core.userdetails.User} it neither copies nor sorts
+ * the authorities, they are the {@link AuthoritySet} of the token's authorities. It is a {@link UserDetails},
+ * so it plugs into the pre-authenticated provider, which checks {@link #isCredentialsNonExpired()}.
+ */
+public final class TokenPrincipal implements UserDetails {
+    private final Token token;
+
+    private final AuthoritySet authorities;
+
+    private final boolean credentialsNonExpired;
+
+    public TokenPrincipal(Token token, AuthoritySet authorities, boolean credentialsNonExpired) {
+        this.token = token;
+        this.authorities = authorities;
+        this.credentialsNonExpired = credentialsNonExpired;
+    }
+
+    public Token getToken() {
+        return this.token;
+    }
+
+    public boolean hasAuthority(String authority) {
+        return this.authorities.contains(authority);
+    }
+
+    @Override
+    public AuthoritySet getAuthorities() {
+        return this.authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return "nopassword";
+    }
+
+    @Override
+    public String getUsername() {
+        return this.token.subject();
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return this.credentialsNonExpired;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenPrincipal [Username=%s, Authorities=%s]".formatted(this.getUsername(), this.authorities);
+    }
+}
@@ -0,0 +1,8 @@
+package pro.akosarev.sandbox;
+
+import java.util.UUID;
+
+public interface TokenRevocationChecker {
+
+    boolean isRevoked(UUID tokenId);
+}
@@ -0,0 +1,31 @@
+package pro.akosarev.sandbox;
+
+import java.util.function.Function;
+
+public interface TokenStringDeserializer extends Function<String, Token> {
+
+    static TokenStringDeserializer from(Function<String, Token> deserializer) {
+        if (deserializer instanceof TokenStringDeserializer tokenStringDeserializer) {
+            return tokenStringDeserializer;
+        }
+        return string -> {
+            var token = deserializer.apply(string);
+            return token != null ? TokenDeserializationResult.success(token) :
+                    TokenDeserializationResult.failure(TokenDeserializationResult.Reason.REJECTED);
+        };
+    }
+
+    TokenDeserializationResult deserialize(String string);
+
+    /**
+     * Deserializes a token whose digest the caller has already computed.
+     */
+    default TokenDeserializationResult deserialize(String string, TokenDigest digest) {
+        return this.deserialize(string);
+    }
+
+    @Override
+    default Token apply(String string) {
+        return this.deserialize(string).tokenOrNull();
+    }
+}
@@ -0,0 +1,21 @@
+package pro.akosarev.sandbox;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+public record Tokens(String accessToken,
+                     String accessTokenExpiry,
+                     String refreshToken,
+                     String refreshTokenExpiry) {
+
+    static final ObjectWriter WRITER = writer(new ObjectMapper());
+
+    /**
+     * A writer bound to {@link Tokens}, so the serializer is resolved once rather than on every response.
+     */
+    static ObjectWriter writer(ObjectMapper objectMapper) {
+        return objectMapper.writerFor(Tokens.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+}
@@ -0,0 +1,144 @@
+package pro.akosarev.sandbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AuthoritySetTest {
+
+    private final AuthorityRegistry registry = new AuthorityRegistry();
+
+    @Test
+    void contains_IndexesAcrossWordBoundaries_FindsEveryAuthority() {
+        var authorities = IntStream.range(0, 130).mapToObj("ROLE_%d"::formatted).toList();
+        authorities.forEach(this.registry::intern);
+        var members = List.of("ROLE_0", "ROLE_63", "ROLE_64", "ROLE_127", "ROLE_128", "ROLE_129");
+
+        var authoritySet = this.registry.authoritySet(members);
+
+        assertThat(authoritySet).hasSize(6);
+        assertThat(authorities).allMatch(authority -> authoritySet.contains(authority) == members.contains(authority));
+    }
+
+    @Test
+    void iterator_AuthoritiesInAnyOrder_YieldsInternedAuthoritiesInIndexOrder() {
+        IntStream.range(0, 70).mapToObj("ROLE_%d"::formatted).forEach(this.registry::intern);
+
+        var authoritySet = this.registry.authoritySet(List.of("ROLE_69", "ROLE_2", "ROLE_64", "ROLE_0"));
+
+        assertThat(authoritySet).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_0", "ROLE_2", "ROLE_64", "ROLE_69");
+        assertThat(authoritySet).allMatch(authority -> authority == this.registry.lookup(authority.getAuthority()));
+    }
+
+    @Test
+    void iterator_Exhausted_ThrowsNoSuchElementException() {
+        var iterator = this.registry.authoritySet(List.of("ROLE_MANAGER")).iterator();
+        iterator.next();
+
+        assertThat(iterator.hasNext()).isFalse();
+        assertThatThrownBy(iterator::next).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    void authoritySet_NoAuthorities_IsEmpty() {
+        var authoritySet = this.registry.authoritySet(List.of());
+
+        assertThat(authoritySet).isEmpty();
+        assertThat(authoritySet.contains("ROLE_MANAGER")).isFalse();
+    }
+
+    @Test
+    void authoritySet_DuplicateAuthorities_CountsThemOnce() {
+        assertThat(this.registry.authoritySet(List.of("ROLE_MANAGER", "ROLE_MANAGER"))).hasSize(1);
+    }
+
+    @Test
+    void contains_ForeignGrantedAuthority_ComparesByName() {
+        var authoritySet = this.registry.authoritySet(List.of("JWT_REFRESH", "JWT_LOGOUT"));
+
+        assertThat(authoritySet.contains(new SimpleGrantedAuthority("JWT_LOGOUT"))).isTrue();
+        assertThat(authoritySet.contains(new SimpleGrantedAuthority("ROLE_MANAGER"))).isFalse();
+        assertThat(authoritySet.contains((GrantedAuthority) () -> null)).isFalse();
+        assertThat(authoritySet.contains((Object) "JWT_LOGOUT")).isFalse();
+    }
+
+    @Test
+    void contains_InternedAuthorityOfOtherRegistry_ComparesByName() {
+        var authoritySet = this.registry.authoritySet(List.of("JWT_REFRESH", "JWT_LOGOUT"));
+        var otherRegistry = new AuthorityRegistry();
+        var sameIndexOtherName = otherRegistry.intern("ROLE_MANAGER");
+        var otherIndexSameName = otherRegistry.authoritySet(List.of("ROLE_MANAGER", "JWT_LOGOUT")).stream()
+                .filter(authority -> authority.getAuthority().equals("JWT_LOGOUT"))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(authoritySet.contains(sameIndexOtherName)).isFalse();
+        assertThat(authoritySet.contains(otherIndexSameName)).isTrue();
+    }
+
+    @Test
+    void contains_AuthorityInternedAfterSetWasBuilt_ReturnsFalse() {
+        var authoritySet = this.registry.authoritySet(List.of("ROLE_MANAGER"));
+        IntStream.range(0, 100).mapToObj("ROLE_%d"::formatted).forEach(this.registry::intern);
+
+        assertThat(authoritySet.contains("ROLE_99")).isFalse();
+        assertThat(authoritySet.contains(this.registry.lookup("ROLE_99"))).isFalse();
+    }
+
+    @Test
+    void contains_UnknownAuthority_DoesNotInternIt() {
+        var authoritySet = this.registry.authoritySet(List.of("ROLE_MANAGER"));
+
+        assertThat(authoritySet.contains("ROLE_UNKNOWN")).isFalse();
+        assertThat(this.registry.lookup("ROLE_UNKNOWN")).isNull();
+        assertThat(this.registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void intern_ConcurrentThreads_InternsEveryAuthorityOnce() throws Exception {
+        var threads = 8;
+        var authorities = IntStream.range(0, 500).mapToObj("ROLE_%d"::formatted).toList();
+        var interned = ConcurrentHashMap.<InternedAuthority>newKeySet();
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (var thread = 0; thread < threads; thread++) {
+                var offset = thread * 61;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (var i = 0; i < authorities.size(); i++) {
+                        interned.add(this.registry.intern(authorities.get((offset + i) % authorities.size())));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(interned).hasSize(500);
+        assertThat(this.registry.size()).isEqualTo(500);
+        assertThat(interned).extracting(InternedAuthority::index)
+                .containsExactlyInAnyOrderElementsOf(IntStream.range(0, 500).boxed().toList());
+        assertThat(interned).allMatch(authority -> this.registry.lookup(authority.authority()) == authority &&
+                this.registry.authority(authority.index()) == authority);
+    }
+}
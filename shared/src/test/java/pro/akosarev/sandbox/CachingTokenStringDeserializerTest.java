@@ -0,0 +1,128 @@
+package pro.akosarev.sandbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingTokenStringDeserializerTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final Map<String, Token> tokens = new HashMap<>();
+
+    private final Map<String, Integer> verifications = new HashMap<>();
+
+    @Test
+    void deserialize_SameTokenTwice_VerifiesItOnce() {
+        var deserializer = this.deserializer(10);
+        var token = this.token("a", NOW.plus(Duration.ofMinutes(5)));
+
+        assertThat(deserializer.deserialize("a")).isEqualTo(TokenDeserializationResult.success(token));
+        assertThat(deserializer.deserialize("a")).isEqualTo(TokenDeserializationResult.success(token));
+
+        assertThat(this.verifications).containsEntry("a", 1);
+        assertThat(deserializer.hitCount()).isEqualTo(1);
+        assertThat(deserializer.missCount()).isEqualTo(1);
+        assertThat(deserializer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void deserialize_CachedTokenExpired_VerifiesItAgainAndEvictsIt() {
+        var deserializer = this.deserializer(10);
+        var expiresAt = NOW.plus(Duration.ofMinutes(5));
+        this.token("a", expiresAt);
+        deserializer.deserialize("a");
+
+        deserializer.setClock(Clock.fixed(expiresAt, ZoneOffset.UTC));
+        deserializer.deserialize("a");
+
+        assertThat(this.verifications).containsEntry("a", 2);
+        assertThat(deserializer.evictionCount()).isEqualTo(1);
+        assertThat(deserializer.size()).isZero();
+    }
+
+    @Test
+    void deserialize_OlderTokenExpired_EvictsItOnInsert() {
+        var deserializer = this.deserializer(10);
+        this.token("a", NOW.plus(Duration.ofMinutes(1)));
+        this.token("b", NOW.plus(Duration.ofMinutes(10)));
+        this.token("c", NOW.plus(Duration.ofMinutes(10)));
+        deserializer.deserialize("a");
+        deserializer.deserialize("b");
+
+        deserializer.setClock(Clock.fixed(NOW.plus(Duration.ofMinutes(2)), ZoneOffset.UTC));
+        deserializer.deserialize("c");
+
+        assertThat(deserializer.size()).isEqualTo(2);
+        assertThat(deserializer.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deserialize_MaximumSizeExceeded_EvictsToken() {
+        var deserializer = this.deserializer(2);
+        this.token("a", NOW.plus(Duration.ofMinutes(5)));
+        this.token("b", NOW.plus(Duration.ofMinutes(5)));
+        this.token("c", NOW.plus(Duration.ofMinutes(5)));
+
+        deserializer.deserialize("a");
+        deserializer.deserialize("b");
+        deserializer.deserialize("c");
+
+        assertThat(deserializer.size()).isEqualTo(2);
+        assertThat(deserializer.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deserialize_DelegateRejectsToken_DoesNotCacheIt() {
+        var deserializer = this.deserializer(10);
+
+        assertThat(deserializer.deserialize("unknown"))
+                .isEqualTo(TokenDeserializationResult.failure(TokenDeserializationResult.Reason.REJECTED));
+        deserializer.deserialize("unknown");
+
+        assertThat(this.verifications).containsEntry("unknown", 2);
+        assertThat(deserializer.size()).isZero();
+    }
+
+    @Test
+    void bindTo_MeterRegistry_ReportsHitsMissesAndSize() {
+        var deserializer = this.deserializer(10);
+        var meterRegistry = new SimpleMeterRegistry();
+        deserializer.bindTo(meterRegistry);
+        this.token("a", NOW.plus(Duration.ofMinutes(5)));
+
+        deserializer.deserialize("a");
+        deserializer.deserialize("a");
+
+        assertThat(meterRegistry.get("jwt.access-token-cache.requests").tag("result", "hit").functionCounter()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("jwt.access-token-cache.requests").tag("result", "miss").functionCounter()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("jwt.access-token-cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    private CachingTokenStringDeserializer deserializer(int maximumSize) {
+        var deserializer = new CachingTokenStringDeserializer(string -> {
+            this.verifications.merge(string, 1, Integer::sum);
+            return this.tokens.get(string);
+        }, maximumSize);
+        deserializer.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+        return deserializer;
+    }
+
+    private Token token(String string, Instant expiresAt) {
+        var token = new Token(UUID.randomUUID(), "j.jameson", List.of("ROLE_MANAGER"),
+                expiresAt.minus(Duration.ofMinutes(5)), expiresAt);
+        this.tokens.put(string, token);
+        return token;
+    }
+}
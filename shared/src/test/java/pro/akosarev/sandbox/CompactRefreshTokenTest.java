@@ -0,0 +1,172 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.CompressionAlgorithm;
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactRefreshTokenTest {
+    private static final AuthorityDictionary VERSION_1 =
+            AuthorityDictionary.forRefreshTokens(1, List.of("ROLE_MANAGER"));
+
+    private static final AuthorityDictionary VERSION_2 =
+            AuthorityDictionary.forRefreshTokens(2, List.of("ROLE_MANAGER", "ROLE_ADMIN"));
+
+    private OctetSequenceKey key;
+
+    private RefreshTokenJweStringSerializer serializer;
+
+    private RefreshTokenJweStringDeserializer deserializer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        this.key = new OctetSequenceKeyGenerator(128).generate();
+        this.serializer = new RefreshTokenJweStringSerializer(new DirectEncrypter(this.key));
+        this.deserializer = new RefreshTokenJweStringDeserializer(new DirectDecrypter(this.key));
+    }
+
+    @Test
+    void apply_DefCompression_RoundTrips() throws Exception {
+        this.serializer.setCompressionAlgorithm(CompressionAlgorithm.DEF);
+        var token = token(List.of("JWT_REFRESH", "JWT_LOGOUT", "GRANT_ROLE_MANAGER"));
+
+        var string = this.serializer.apply(token);
+
+        assertThat(EncryptedJWT.parse(string).getHeader().getCompressionAlgorithm())
+                .isEqualTo(CompressionAlgorithm.DEF);
+        assertThat(this.deserializer.deserialize(string)).isEqualTo(TokenDeserializationResult.success(token));
+    }
+
+    @Test
+    void apply_AuthorityDictionary_WritesIndexesInsteadOfAuthorities() throws Exception {
+        this.serializer.setAuthorityDictionary(VERSION_1);
+        this.deserializer.setAuthorityDictionaries(VERSION_1);
+        var token = token(List.of("JWT_REFRESH", "JWT_LOGOUT", "GRANT_ROLE_MANAGER"));
+
+        var string = this.serializer.apply(token);
+
+        var claimsSet = this.decrypt(string);
+        assertThat(claimsSet.getClaim("authorities")).isNull();
+        assertThat(claimsSet.getIntegerClaim(AuthorityDictionary.VERSION_CLAIM)).isEqualTo(1);
+        assertThat(claimsSet.getClaim(AuthorityDictionary.INDEXES_CLAIM)).isEqualTo(List.of(0L, 1L, 2L));
+        assertThat(claimsSet.getClaim(AuthorityDictionary.EXTRA_AUTHORITIES_CLAIM)).isNull();
+        assertThat(this.deserializer.deserialize(string)).isEqualTo(TokenDeserializationResult.success(token));
+    }
+
+    @Test
+    void apply_AuthoritiesMissingFromDictionary_WritesThemAsStrings() throws Exception {
+        this.serializer.setAuthorityDictionary(VERSION_1);
+        this.deserializer.setAuthorityDictionaries(VERSION_1);
+        var token = token(List.of("JWT_REFRESH", "GRANT_ROLE_ADMIN", "JWT_LOGOUT"));
+
+        var string = this.serializer.apply(token);
+
+        assertThat(this.decrypt(string).getStringListClaim(AuthorityDictionary.EXTRA_AUTHORITIES_CLAIM))
+                .containsExactly("GRANT_ROLE_ADMIN");
+        assertThat(this.deserializer.apply(string).authorities())
+                .containsExactly("JWT_REFRESH", "JWT_LOGOUT", "GRANT_ROLE_ADMIN");
+    }
+
+    @Test
+    void deserialize_TokenOfOlderDictionaryVersion_DecodesIt() {
+        this.serializer.setAuthorityDictionary(VERSION_1);
+        var string = this.serializer.apply(token(List.of("JWT_REFRESH", "GRANT_ROLE_MANAGER")));
+        this.deserializer.setAuthorityDictionaries(VERSION_1, VERSION_2);
+
+        assertThat(this.deserializer.apply(string).authorities()).containsExactly("JWT_REFRESH", "GRANT_ROLE_MANAGER");
+    }
+
+    @Test
+    void deserialize_UnknownDictionaryVersion_RejectsToken() {
+        this.serializer.setAuthorityDictionary(VERSION_1);
+        var string = this.serializer.apply(token(List.of("JWT_REFRESH")));
+        this.deserializer.setAuthorityDictionaries(VERSION_2);
+
+        assertThat(this.deserializer.deserialize(string))
+                .isEqualTo(TokenDeserializationResult.failure(TokenDeserializationResult.Reason.INVALID_CLAIMS));
+    }
+
+    @Test
+    void deserialize_TokenWithoutDictionaryClaims_ReadsAuthorities() {
+        var token = token(List.of("JWT_REFRESH", "GRANT_ROLE_MANAGER"));
+        var string = this.serializer.apply(token);
+        this.deserializer.setAuthorityDictionaries(VERSION_1);
+
+        assertThat(this.deserializer.deserialize(string)).isEqualTo(TokenDeserializationResult.success(token));
+    }
+
+    @Test
+    void deserialize_FractionalIndex_RejectsToken() throws Exception {
+        this.deserializer.setAuthorityDictionaries(VERSION_1);
+
+        assertThat(this.deserializer.deserialize(this.encrypt(List.of(0, 1.5))))
+                .isEqualTo(TokenDeserializationResult.failure(TokenDeserializationResult.Reason.INVALID_CLAIMS));
+    }
+
+    @Test
+    void deserialize_IndexOutOfRange_RejectsToken() throws Exception {
+        this.deserializer.setAuthorityDictionaries(VERSION_1);
+
+        assertThat(this.deserializer.deserialize(this.encrypt(List.of(3))))
+                .isEqualTo(TokenDeserializationResult.failure(TokenDeserializationResult.Reason.INVALID_CLAIMS));
+        assertThat(this.deserializer.deserialize(this.encrypt(List.of(-1))))
+                .isEqualTo(TokenDeserializationResult.failure(TokenDeserializationResult.Reason.INVALID_CLAIMS));
+    }
+
+    @Test
+    void deserialize_IntegralIndexWrittenAsDecimal_DecodesIt() throws Exception {
+        this.deserializer.setAuthorityDictionaries(VERSION_1);
+
+        assertThat(this.deserializer.apply(this.encrypt(List.of(2.0))).authorities())
+                .containsExactly("GRANT_ROLE_MANAGER");
+    }
+
+    @Test
+    void constructor_DuplicateAuthority_ThrowsIllegalArgumentException() {
+        assertThatThrownBy(() -> new AuthorityDictionary(1, List.of("JWT_REFRESH", "JWT_REFRESH")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private JWTClaimsSet decrypt(String string) throws Exception {
+        var encryptedJWT = EncryptedJWT.parse(string);
+        encryptedJWT.decrypt(new DirectDecrypter(this.key));
+        return encryptedJWT.getJWTClaimsSet();
+    }
+
+    private String encrypt(List<? extends Number> indexes) throws Exception {
+        var now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        var encryptedJWT = new EncryptedJWT(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A128GCM),
+                new JWTClaimsSet.Builder()
+                        .jwtID(UUID.randomUUID().toString())
+                        .subject("j.jameson")
+                        .issueTime(Date.from(now))
+                        .expirationTime(Date.from(now.plus(1, ChronoUnit.DAYS)))
+                        .claim(AuthorityDictionary.VERSION_CLAIM, 1)
+                        .claim(AuthorityDictionary.INDEXES_CLAIM, indexes)
+                        .build());
+        encryptedJWT.encrypt(new DirectEncrypter(this.key));
+        return encryptedJWT.serialize();
+    }
+
+    private static Token token(List<String> authorities) {
+        var now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        return new Token(UUID.randomUUID(), "j.jameson", authorities, now, now.plus(1, ChronoUnit.DAYS));
+    }
+}
@@ -0,0 +1,138 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pro.akosarev.sandbox.FastAccessTokenJwsStringSerializerTest.generateKey;
+import static pro.akosarev.sandbox.FastAccessTokenJwsStringSerializerTest.token;
+import static pro.akosarev.sandbox.TokenDeserializationResult.Reason;
+import static pro.akosarev.sandbox.TokenDeserializationResult.failure;
+import static pro.akosarev.sandbox.TokenDeserializationResult.success;
+
+class FastAccessTokenJwsStringDeserializerTest {
+
+    private OctetSequenceKey key;
+
+    private FastAccessTokenJwsStringDeserializer deserializer;
+
+    @BeforeEach
+    void setUp() throws JOSEException {
+        this.key = generateKey("key-1", JWSAlgorithm.HS256);
+        this.deserializer = new FastAccessTokenJwsStringDeserializer(
+                new KeyRing<>(HmacKey::of, List.of(this.key, generateKey("key-2", JWSAlgorithm.HS512))));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 42})
+    void deserialize_NimbusSerializer_ReadsSameToken(long epoch) {
+        var serializer = new AccessTokenJwsStringSerializer(new KeyRing<>(MACSigner::new, List.of(this.key)));
+        var token = token(epoch, "ROLE_MANAGER", "ROLE_\"quoted\"\\", "ROLE_ПОЛЬЗОВАТЕЛЬ", "ROLE_\u0001\n");
+
+        assertThat(this.deserializer.deserialize(serializer.apply(token))).isEqualTo(success(token));
+    }
+
+    @Test
+    void deserialize_NimbusTokenWithUnknownClaims_ReadsToken() throws JOSEException {
+        var token = token(0, "ROLE_MANAGER");
+        var claims = new JWTClaimsSet.Builder()
+                .jwtID(token.id().toString())
+                .subject(token.subject())
+                .issueTime(Date.from(token.createdAt()))
+                .expirationTime(Date.from(token.expiresAt()))
+                .claim("authorities", token.authorities())
+                .claim("nested", Map.of("list", List.of(1, "two", List.of()), "flag", true))
+                .claim("nothing", null)
+                .build();
+
+        assertThat(this.deserializer.deserialize(this.sign(new JWSHeader.Builder(JWSAlgorithm.HS256)
+                .keyID("key-1").build(), claims))).isEqualTo(success(token));
+    }
+
+    @Test
+    void deserialize_TamperedPayload_ReturnsInvalidSignature() {
+        var parts = this.serialize().split("\\.");
+        var claims = new String(Base64.getUrlDecoder().decode(parts[1])).replace("ROLE_MANAGER", "ROLE_ADMIN__");
+        var tampered = parts[0] + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes())
+                + "." + parts[2];
+
+        assertThat(this.deserializer.deserialize(tampered)).isEqualTo(failure(Reason.INVALID_SIGNATURE));
+    }
+
+    @Test
+    void deserialize_TamperedSignature_ReturnsInvalidSignature() {
+        var string = this.serialize();
+        var last = string.charAt(string.length() - 2);
+        var tampered = string.substring(0, string.length() - 2) + (last == 'A' ? 'B' : 'A') +
+                string.charAt(string.length() - 1);
+
+        assertThat(this.deserializer.deserialize(tampered)).isEqualTo(failure(Reason.INVALID_SIGNATURE));
+    }
+
+    @Test
+    void deserialize_TruncatedSignature_ReturnsInvalidSignature() {
+        var string = this.serialize();
+
+        assertThat(this.deserializer.deserialize(string.substring(0, string.length() - 4)))
+                .isEqualTo(failure(Reason.INVALID_SIGNATURE));
+    }
+
+    @Test
+    void deserialize_UnknownKeyId_ReturnsUnknownKey() throws JOSEException {
+        var otherKey = generateKey("key-3", JWSAlgorithm.HS256);
+        var serializer = new FastAccessTokenJwsStringSerializer(new KeyRing<>(HmacKey::of, List.of(otherKey)));
+
+        assertThat(this.deserializer.deserialize(serializer.apply(token(0, "ROLE_MANAGER"))))
+                .isEqualTo(failure(Reason.UNKNOWN_KEY));
+    }
+
+    @Test
+    void deserialize_NoKeyId_ReturnsUnknownKey() throws JOSEException {
+        var token = token(0, "ROLE_MANAGER");
+        var claims = new JWTClaimsSet.Builder()
+                .jwtID(token.id().toString())
+                .subject(token.subject())
+                .issueTime(Date.from(token.createdAt()))
+                .expirationTime(Date.from(token.expiresAt()))
+                .claim("authorities", token.authorities())
+                .build();
+
+        assertThat(this.deserializer.deserialize(this.sign(new JWSHeader(JWSAlgorithm.HS256), claims)))
+                .isEqualTo(failure(Reason.UNKNOWN_KEY));
+    }
+
+    @Test
+    void deserialize_KeyIdOfAnotherKey_ReturnsInvalidSignature() {
+        var token = this.serialize();
+        var header = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"kid\":\"key-2\",\"alg\":\"HS512\"}".getBytes());
+
+        assertThat(this.deserializer.deserialize(header + token.substring(token.indexOf('.'))))
+                .isEqualTo(failure(Reason.INVALID_SIGNATURE));
+    }
+
+    private String serialize() {
+        return new FastAccessTokenJwsStringSerializer(new KeyRing<>(HmacKey::of, List.of(this.key)))
+                .apply(token(0, "ROLE_MANAGER"));
+    }
+
+    private String sign(JWSHeader header, JWTClaimsSet claims) throws JOSEException {
+        var signedJWT = new SignedJWT(header, claims);
+        signedJWT.sign(new MACSigner(this.key));
+        return signedJWT.serialize();
+    }
+}
@@ -0,0 +1,70 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastAccessTokenJwsStringSerializerTest {
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 42})
+    void apply_NimbusDeserializer_ReadsSameToken(long epoch) throws JOSEException {
+        var key = generateKey("key-1", JWSAlgorithm.HS256);
+        var serializer = new FastAccessTokenJwsStringSerializer(new KeyRing<>(HmacKey::of, List.of(key)));
+        var deserializer = new AccessTokenJwsStringDeserializer(new KeyRing<>(MACVerifier::new, List.of(key)));
+        var token = token(epoch, "ROLE_MANAGER", "ROLE_\"quoted\"\\", "ROLE_ПОЛЬЗОВАТЕЛЬ", "ROLE_\u0001\n");
+
+        var result = deserializer.deserialize(serializer.apply(token));
+
+        assertThat(result).isEqualTo(TokenDeserializationResult.success(token));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"HS256", "HS384", "HS512"})
+    void apply_KeyWithId_WritesSameStringAsNimbusSerializer(String algorithm) throws JOSEException {
+        var key = generateKey("key-1", JWSAlgorithm.parse(algorithm));
+        var serializer = new FastAccessTokenJwsStringSerializer(new KeyRing<>(HmacKey::of, List.of(key)));
+        var nimbusSerializer = new AccessTokenJwsStringSerializer(new KeyRing<>(MACSigner::new, List.of(key)));
+        nimbusSerializer.setJwsAlgorithm(JWSAlgorithm.parse(algorithm));
+        var token = token(7, "ROLE_MANAGER", "ROLE_ ");
+
+        assertThat(serializer.apply(token)).isEqualTo(nimbusSerializer.apply(token));
+    }
+
+    @Test
+    void apply_LegacyKey_WritesSameStringAsNimbusSerializer() throws JOSEException {
+        var key = generateKey(null, JWSAlgorithm.HS256);
+        var serializer = new FastAccessTokenJwsStringSerializer(key.toSecretKey());
+        var nimbusSerializer = new AccessTokenJwsStringSerializer(new MACSigner(key));
+        var token = token(0);
+
+        assertThat(serializer.apply(token)).isEqualTo(nimbusSerializer.apply(token));
+    }
+
+    static OctetSequenceKey generateKey(String keyId, JWSAlgorithm algorithm) throws JOSEException {
+        return new OctetSequenceKeyGenerator(algorithm == JWSAlgorithm.HS256 ? 256 :
+                algorithm == JWSAlgorithm.HS384 ? 384 : 512)
+                .keyID(keyId)
+                .algorithm(algorithm)
+                .generate();
+    }
+
+    static Token token(long epoch, String... authorities) {
+        var createdAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        return new Token(UUID.randomUUID(), "j.jameson", List.of(authorities), createdAt,
+                createdAt.plus(5, ChronoUnit.MINUTES), epoch);
+    }
+}
@@ -0,0 +1,111 @@
+package pro.akosarev.sandbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcRevokedTokenSetLoaderTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private RevokedTokenSet revokedTokenSet;
+
+    private JdbcRevokedTokenSetLoader loader;
+
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        this.jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:%s;MODE=PostgreSQL;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID())));
+        this.jdbcTemplate.execute("""
+                create table t_deactivated_token
+                (
+                    id               uuid primary key,
+                    c_keep_until     timestamp not null,
+                    c_deactivated_at timestamp not null
+                )""");
+        this.revokedTokenSet = new RevokedTokenSet();
+        this.loader = new JdbcRevokedTokenSetLoader(this.jdbcTemplate, this.revokedTokenSet);
+        this.now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        this.setTime(this.now);
+    }
+
+    @Test
+    void poll_NoSafetyRefreshInterval_RefreshesEveryTime() {
+        this.loader.poll();
+        var tokenId = this.deactivate(this.now);
+
+        this.loader.poll();
+
+        assertThat(this.revokedTokenSet.isRevoked(tokenId)).isTrue();
+    }
+
+    @Test
+    void poll_WithinSafetyRefreshInterval_SkipsRefresh() {
+        this.loader.setSafetyRefreshInterval(Duration.ofMinutes(5));
+        this.loader.poll();
+        var tokenId = this.deactivate(this.now);
+
+        this.setTime(this.now.plus(Duration.ofMinutes(4)));
+        this.loader.poll();
+
+        assertThat(this.revokedTokenSet.isRevoked(tokenId)).isFalse();
+
+        this.setTime(this.now.plus(Duration.ofMinutes(5)));
+        this.loader.poll();
+
+        assertThat(this.revokedTokenSet.isRevoked(tokenId)).isTrue();
+    }
+
+    @Test
+    void poll_RefreshedByCatchUp_SkipsRefresh() {
+        this.loader.setSafetyRefreshInterval(Duration.ofMinutes(5));
+        this.setTime(this.now.plus(Duration.ofMinutes(10)));
+        this.loader.refresh();
+        var tokenId = this.deactivate(this.now);
+
+        this.loader.poll();
+
+        assertThat(this.revokedTokenSet.isRevoked(tokenId)).isFalse();
+    }
+
+    @Test
+    void refresh_TokenExpired_KeepsTokenUntilPurged() {
+        var tokenId = this.deactivate(this.now);
+        this.loader.refresh();
+
+        this.setTime(this.now.plus(Duration.ofHours(2)));
+        this.loader.refresh();
+
+        assertThat(this.revokedTokenSet.size()).isEqualTo(1);
+
+        this.loader.purgeExpired();
+
+        assertThat(this.revokedTokenSet.isRevoked(tokenId)).isFalse();
+        assertThat(this.revokedTokenSet.size()).isZero();
+    }
+
+    private UUID deactivate(Instant deactivatedAt) {
+        var tokenId = UUID.randomUUID();
+        this.jdbcTemplate.update(
+                "insert into t_deactivated_token (id, c_keep_until, c_deactivated_at) values (?, ?, ?)", tokenId,
+                Timestamp.from(deactivatedAt.plus(Duration.ofHours(1))), Timestamp.from(deactivatedAt));
+        return tokenId;
+    }
+
+    private void setTime(Instant instant) {
+        this.loader.setClock(Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,157 @@
+package pro.akosarev.sandbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JdbcTokenEpochRegistryTest {
+
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        this.dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:%s;MODE=PostgreSQL;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID()));
+        this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+        this.jdbcTemplate.execute("""
+                create table t_token_epoch
+                (
+                    c_subject    varchar primary key,
+                    c_epoch      bigint    not null,
+                    c_updated_at timestamp not null default now()
+                )""");
+    }
+
+    @Test
+    void advance_NewSubject_InsertsFirstEpoch() {
+        var registry = new JdbcTokenEpochRegistry(this.jdbcTemplate);
+
+        assertThat(registry.currentEpoch("j.jameson")).isZero();
+        assertThat(registry.advance("j.jameson")).isEqualTo(1);
+        assertThat(registry.advance("j.jameson")).isEqualTo(2);
+
+        assertThat(registry.currentEpoch("j.jameson")).isEqualTo(2);
+        assertThat(registry.currentEpoch("p.parker")).isZero();
+        assertThat(this.epochInTable("j.jameson")).isEqualTo(2);
+    }
+
+    @Test
+    void advance_RowInsertedConcurrently_RetriesWithUpdate() {
+        var racing = new AtomicBoolean(true);
+        var registry = new JdbcTokenEpochRegistry(new JdbcTemplate(this.dataSource) {
+            @Override
+            public int update(String sql, Object... args) {
+                // another node inserts the row between the update and the insert of this one
+                if (sql.startsWith("insert") && racing.getAndSet(false)) {
+                    super.update(sql, args);
+                }
+                return super.update(sql, args);
+            }
+        });
+
+        assertThat(registry.advance("j.jameson")).isEqualTo(2);
+        assertThat(this.epochInTable("j.jameson")).isEqualTo(2);
+    }
+
+    @Test
+    void advance_ConcurrentAdvances_AdvancesOncePerCall() throws Exception {
+        var registry = new JdbcTokenEpochRegistry(this.jdbcTemplate);
+        var start = new CountDownLatch(1);
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            var futures = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> {
+                        start.await();
+                        return registry.advance("j.jameson");
+                    }))
+                    .toList();
+            start.countDown();
+            for (var future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        assertThat(this.epochInTable("j.jameson")).isEqualTo(8);
+        assertThat(registry.currentEpoch("j.jameson")).isEqualTo(8);
+    }
+
+    @Test
+    void refresh_EpochAdvancedOnOtherNode_PicksUpEpoch() {
+        var registry = new JdbcTokenEpochRegistry(this.jdbcTemplate);
+        var otherNode = new JdbcTokenEpochRegistry(this.jdbcTemplate);
+        registry.load();
+
+        otherNode.advance("j.jameson");
+
+        assertThat(registry.currentEpoch("j.jameson")).isZero();
+        registry.refresh();
+        assertThat(registry.currentEpoch("j.jameson")).isEqualTo(1);
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_RowOlderThanWatermarkAndOverlap_SkipsRow() {
+        var now = Instant.now();
+        this.insert("j.jameson", 3, now);
+        var registry = new JdbcTokenEpochRegistry(this.jdbcTemplate);
+        registry.setOverlap(Duration.ofSeconds(30));
+        registry.load();
+
+        this.insert("p.parker", 1, now.minus(Duration.ofSeconds(31)));
+        this.insert("m.jones", 1, now.minus(Duration.ofSeconds(29)));
+        registry.refresh();
+
+        assertThat(registry.currentEpoch("j.jameson")).isEqualTo(3);
+        assertThat(registry.currentEpoch("p.parker")).isZero();
+        assertThat(registry.currentEpoch("m.jones")).isEqualTo(1);
+    }
+
+    @Test
+    void refresh_StaleRow_KeepsLaterEpoch() {
+        var registry = new JdbcTokenEpochRegistry(this.jdbcTemplate);
+        registry.advance("j.jameson");
+        registry.advance("j.jameson");
+        this.jdbcTemplate.update("update t_token_epoch set c_epoch = 1 where c_subject = ?", "j.jameson");
+
+        registry.refresh();
+
+        assertThat(registry.currentEpoch("j.jameson")).isEqualTo(2);
+    }
+
+    @Test
+    void issuingEpoch_EpochAdvancedOnOtherNode_ReadsEpochFromTable() {
+        var registry = new JdbcTokenEpochRegistry(this.jdbcTemplate);
+        var otherNode = new JdbcTokenEpochRegistry(this.jdbcTemplate);
+        registry.load();
+        otherNode.advance("j.jameson");
+
+        assertThat(registry.issuingEpoch("j.jameson")).isEqualTo(1);
+        assertThat(registry.currentEpoch("j.jameson")).isEqualTo(1);
+        assertThat(registry.issuingEpoch("p.parker")).isZero();
+    }
+
+    private void insert(String subject, long epoch, Instant updatedAt) {
+        this.jdbcTemplate.update("insert into t_token_epoch (c_subject, c_epoch, c_updated_at) values (?, ?, ?)",
+                subject, epoch, Timestamp.from(updatedAt));
+    }
+
+    private long epochInTable(String subject) {
+        return this.jdbcTemplate.queryForObject("select c_epoch from t_token_epoch where c_subject = ?", Long.class,
+                subject);
+    }
+}
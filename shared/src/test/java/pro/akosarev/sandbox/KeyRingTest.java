@@ -0,0 +1,103 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jose.KeyLengthException;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyRingTest {
+
+    @Test
+    void current_SeveralKeys_IsFirstKey() throws Exception {
+        var keyRing = new KeyRing<>(OctetSequenceKey::getKeyID, List.of(key("2025-02"), key("2025-01")));
+
+        assertThat(keyRing.current()).isEqualTo(new KeyRing.Key<>("2025-02", "2025-02"));
+        assertThat(keyRing.get("2025-01")).isEqualTo("2025-01");
+    }
+
+    @Test
+    void get_UnknownKeyIdWithLegacyKey_ReturnsLegacyKey() throws Exception {
+        var keyRing = new KeyRing<>(key -> key.getKeyID() == null ? "legacy" : key.getKeyID(),
+                List.of(key("2025-01"), key(null)));
+
+        assertThat(keyRing.get("2025-01")).isEqualTo("2025-01");
+        assertThat(keyRing.get("8b4c1e5e-3f2a-4e6b-9d1c-7a0f2b3c4d5e")).isEqualTo("legacy");
+        assertThat(keyRing.get(null)).isEqualTo("legacy");
+    }
+
+    @Test
+    void get_UnknownKeyIdWithoutLegacyKey_ReturnsNull() throws Exception {
+        var keyRing = new KeyRing<>(OctetSequenceKey::getKeyID, List.of(key("2025-01")));
+
+        assertThat(keyRing.get("2024-12")).isNull();
+        assertThat(keyRing.get(null)).isNull();
+    }
+
+    @Test
+    void constructor_DuplicateKeyId_ThrowsIllegalArgumentException() {
+        assertThatThrownBy(() -> new KeyRing<>(OctetSequenceKey::getKeyID, List.of(key("2025-01"), key("2025-01"))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Duplicate key id 2025-01");
+    }
+
+    @Test
+    void constructor_TwoKeysWithoutKeyId_ThrowsIllegalArgumentException() {
+        assertThatThrownBy(() -> new KeyRing<>(key -> key, List.of(key(null), key(null))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Only one key may have no key id");
+    }
+
+    @Test
+    void constructor_NoKeys_ThrowsIllegalArgumentException() {
+        assertThatThrownBy(() -> new KeyRing<>(OctetSequenceKey::getKeyID, List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void reload_InvalidKey_KeepsKeys() throws Exception {
+        var keyRing = new KeyRing<>(key -> {
+            if ("invalid".equals(key.getKeyID())) {
+                throw new KeyLengthException("Invalid key length");
+            }
+            return key.getKeyID();
+        }, List.of(key("2025-01")));
+
+        assertThatThrownBy(() -> keyRing.reload(List.of(key("2025-02"), key("invalid"))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid key invalid");
+        assertThat(keyRing.current().keyId()).isEqualTo("2025-01");
+        assertThat(keyRing.get("2025-02")).isNull();
+    }
+
+    @Test
+    void prepareReload_NotRun_KeepsKeysUntilRun() throws Exception {
+        var keyRing = new KeyRing<>(OctetSequenceKey::getKeyID, List.of(key("2025-01")));
+
+        var reload = keyRing.prepareReload(List.of(key("2025-02")));
+
+        assertThat(keyRing.current().keyId()).isEqualTo("2025-01");
+        reload.run();
+        assertThat(keyRing.current().keyId()).isEqualTo("2025-02");
+        assertThat(keyRing.get("2025-01")).isNull();
+    }
+
+    @Test
+    void reload_SingleKeyRing_ThrowsIllegalStateException() throws Exception {
+        var keyRing = KeyRing.of("legacy");
+
+        assertThatThrownBy(() -> keyRing.reload(List.of(key("2025-01"))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("A single key ring cannot be reloaded");
+        assertThat(keyRing.current()).isEqualTo(new KeyRing.Key<>(null, "legacy"));
+        assertThat(keyRing.get("2025-01")).isEqualTo("legacy");
+    }
+
+    private static OctetSequenceKey key(String keyId) throws Exception {
+        return new OctetSequenceKeyGenerator(256).keyID(keyId).generate();
+    }
+}
@@ -0,0 +1,299 @@
+package pro.akosarev.sandbox;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RevokedTokenSetTest {
+    private static final Duration TICK = Duration.ofMinutes(1);
+
+    private static final Instant START = Instant.now().truncatedTo(ChronoUnit.HOURS).plus(1, ChronoUnit.DAYS);
+
+    @Test
+    void isRevoked_AddedToken_ReturnsTrue() {
+        var revokedTokenSet = revokedTokenSet(16, 8);
+        var tokenId = UUID.randomUUID();
+
+        revokedTokenSet.add(tokenId, START.plus(TICK));
+
+        assertThat(revokedTokenSet.isRevoked(tokenId)).isTrue();
+        assertThat(revokedTokenSet.isRevoked(UUID.randomUUID())).isFalse();
+        assertThat(revokedTokenSet.size()).isEqualTo(1);
+    }
+
+    @Test
+    void add_AlreadyExpired_IgnoresToken() {
+        var revokedTokenSet = revokedTokenSet(16, 8);
+        var tokenId = UUID.randomUUID();
+
+        revokedTokenSet.add(tokenId, START.minus(TICK));
+
+        assertThat(revokedTokenSet.isRevoked(tokenId)).isFalse();
+        assertThat(revokedTokenSet.size()).isZero();
+    }
+
+    @Test
+    void add_NilUuid_TracksItSeparately() {
+        var revokedTokenSet = revokedTokenSet(16, 8);
+        var nil = new UUID(0, 0);
+
+        assertThat(revokedTokenSet.isRevoked(nil)).isFalse();
+        revokedTokenSet.add(nil, START.plus(TICK));
+
+        assertThat(revokedTokenSet.isRevoked(nil)).isTrue();
+        assertThat(revokedTokenSet.size()).isEqualTo(1);
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(2)));
+        assertThat(revokedTokenSet.isRevoked(nil)).isFalse();
+        assertThat(revokedTokenSet.size()).isZero();
+    }
+
+    @Test
+    void purgeExpired_CollisionChains_KeepsRemainingTokensReachable() {
+        var random = new Random(42);
+        for (var round = 0; round < 200; round++) {
+            var revokedTokenSet = revokedTokenSet(8, 8);
+            var expected = new HashMap<UUID, Instant>();
+            for (var i = 0; i < 12; i++) {
+                var tokenId = new UUID(random.nextLong(), random.nextLong());
+                var keepUntil = START.plus(TICK.multipliedBy(random.nextInt(6)));
+                revokedTokenSet.add(tokenId, keepUntil);
+                expected.put(tokenId, keepUntil);
+            }
+
+            for (var tick = 1; tick <= 7; tick++) {
+                var now = START.plus(TICK.multipliedBy(tick));
+                revokedTokenSet.purgeExpired(now);
+                expected.values().removeIf(keepUntil -> keepUntil.isBefore(now));
+
+                assertThat(revokedTokenSet.size()).isEqualTo(expected.size());
+                for (var tokenId : expected.keySet()) {
+                    assertThat(revokedTokenSet.isRevoked(tokenId)).isTrue();
+                }
+            }
+        }
+    }
+
+    @Test
+    void add_MoreThanExpectedSize_ResizesAndKeepsEveryToken() {
+        var revokedTokenSet = revokedTokenSet(4, 8);
+        var tokenIds = new ArrayList<UUID>();
+        for (var i = 0; i < 5_000; i++) {
+            var tokenId = UUID.randomUUID();
+            tokenIds.add(tokenId);
+            revokedTokenSet.add(tokenId, START.plus(TICK));
+        }
+        var footprint = revokedTokenSet.footprintBytes();
+
+        assertThat(revokedTokenSet.size()).isEqualTo(5_000);
+        assertThat(tokenIds).allMatch(revokedTokenSet::isRevoked);
+        assertThat(footprint).isGreaterThan(5_000L * 2 * Long.BYTES);
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(2)));
+        assertThat(revokedTokenSet.size()).isZero();
+        assertThat(tokenIds).noneMatch(revokedTokenSet::isRevoked);
+    }
+
+    @Test
+    void purgeExpired_KeepUntilOnTickBoundary_KeepsTokenUntilTheTickHasPassed() {
+        var revokedTokenSet = revokedTokenSet(16, 4);
+        var tokenId = UUID.randomUUID();
+        var keepUntil = START.plus(TICK.multipliedBy(2));
+        revokedTokenSet.add(tokenId, keepUntil);
+
+        revokedTokenSet.purgeExpired(keepUntil);
+        assertThat(revokedTokenSet.isRevoked(tokenId)).isTrue();
+
+        revokedTokenSet.purgeExpired(keepUntil.plus(TICK).minusMillis(1));
+        assertThat(revokedTokenSet.isRevoked(tokenId)).isTrue();
+
+        revokedTokenSet.purgeExpired(keepUntil.plus(TICK));
+        assertThat(revokedTokenSet.isRevoked(tokenId)).isFalse();
+    }
+
+    @Test
+    void purgeExpired_KeepUntilAtWheelHorizon_RemovesTokenOnTheLastWheelSlot() {
+        var revokedTokenSet = revokedTokenSet(16, 4);
+        var tokenId = UUID.randomUUID();
+        var keepUntil = START.plus(TICK.multipliedBy(3));
+        revokedTokenSet.add(tokenId, keepUntil);
+
+        for (var tick = 1; tick <= 3; tick++) {
+            revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(tick)));
+            assertThat(revokedTokenSet.isRevoked(tokenId)).isTrue();
+        }
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(4)));
+        assertThat(revokedTokenSet.isRevoked(tokenId)).isFalse();
+    }
+
+    @Test
+    void purgeExpired_KeepUntilPastWheelHorizon_KeepsTokenInOverflowUntilItExpires() {
+        var revokedTokenSet = revokedTokenSet(16, 4);
+        var tokenId = UUID.randomUUID();
+        var keepUntil = START.plus(TICK.multipliedBy(10));
+        revokedTokenSet.add(tokenId, keepUntil);
+
+        for (var tick = 1; tick <= 10; tick++) {
+            revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(tick)));
+            assertThat(revokedTokenSet.isRevoked(tokenId)).isTrue();
+        }
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(11)));
+        assertThat(revokedTokenSet.isRevoked(tokenId)).isFalse();
+        assertThat(revokedTokenSet.size()).isZero();
+    }
+
+    @Test
+    void purgeExpired_JumpPastWholeWheel_RemovesWheelAndOverflowTokens() {
+        var revokedTokenSet = revokedTokenSet(16, 4);
+        var inWheel = UUID.randomUUID();
+        var inOverflow = UUID.randomUUID();
+        var survivor = UUID.randomUUID();
+        revokedTokenSet.add(inWheel, START.plus(TICK));
+        revokedTokenSet.add(inOverflow, START.plus(TICK.multipliedBy(9)));
+        revokedTokenSet.add(survivor, START.plus(TICK.multipliedBy(30)));
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(20)));
+
+        assertThat(revokedTokenSet.isRevoked(inWheel)).isFalse();
+        assertThat(revokedTokenSet.isRevoked(inOverflow)).isFalse();
+        assertThat(revokedTokenSet.isRevoked(survivor)).isTrue();
+        assertThat(revokedTokenSet.size()).isEqualTo(1);
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(31)));
+        assertThat(revokedTokenSet.isRevoked(survivor)).isFalse();
+    }
+
+    @Test
+    void add_SameTokenWithLaterKeepUntil_KeepsTokenUntilTheLaterExpiry() {
+        var revokedTokenSet = revokedTokenSet(16, 4);
+        var inWheel = UUID.randomUUID();
+        var inOverflow = UUID.randomUUID();
+        revokedTokenSet.add(inWheel, START.plus(TICK));
+        revokedTokenSet.add(inWheel, START.plus(TICK.multipliedBy(3)));
+        revokedTokenSet.add(inOverflow, START.plus(TICK.multipliedBy(6)));
+        revokedTokenSet.add(inOverflow, START.plus(TICK.multipliedBy(8)));
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(3)));
+        assertThat(revokedTokenSet.isRevoked(inWheel)).isTrue();
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(4)));
+        assertThat(revokedTokenSet.isRevoked(inWheel)).isFalse();
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(8)));
+        assertThat(revokedTokenSet.isRevoked(inOverflow)).isTrue();
+        assertThat(revokedTokenSet.size()).isEqualTo(1);
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(9)));
+        assertThat(revokedTokenSet.isRevoked(inOverflow)).isFalse();
+    }
+
+    @Test
+    void add_SameTokenWithEarlierKeepUntil_KeepsTheLaterExpiry() {
+        var revokedTokenSet = revokedTokenSet(16, 4);
+        var tokenId = UUID.randomUUID();
+        revokedTokenSet.add(tokenId, START.plus(TICK.multipliedBy(3)));
+        revokedTokenSet.add(tokenId, START.plus(TICK));
+
+        revokedTokenSet.purgeExpired(START.plus(TICK.multipliedBy(2)));
+
+        assertThat(revokedTokenSet.isRevoked(tokenId)).isTrue();
+        assertThat(revokedTokenSet.size()).isEqualTo(1);
+    }
+
+    @Test
+    void constructor_NonPositiveTick_ThrowsIllegalArgumentException() {
+        assertThatThrownBy(() -> new RevokedTokenSet(16, Duration.ZERO, 4))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RevokedTokenSet(16, TICK, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void isRevoked_ConcurrentWriters_AlwaysFindsPublishedTokens() throws Exception {
+        var revokedTokenSet = revokedTokenSet(4, 8);
+        var writers = 4;
+        var tokensPerWriter = 20_000;
+        var published = new AtomicReferenceArray<UUID>(writers * tokensPerWriter);
+        var publishedCount = new AtomicInteger();
+        var misses = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(writers + 2);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (var writer = 0; writer < writers; writer++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (var i = 0; i < tokensPerWriter; i++) {
+                        var tokenId = UUID.randomUUID();
+                        revokedTokenSet.add(tokenId, START.plus(TICK.multipliedBy(1 + i % 6)));
+                        published.set(publishedCount.getAndIncrement(), tokenId);
+                        if (i % 1_000 == 0) {
+                            revokedTokenSet.purgeExpired(START);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            var readers = List.of(executor.submit(reader(revokedTokenSet, published, publishedCount, misses, start)),
+                    executor.submit(reader(revokedTokenSet, published, publishedCount, misses, start)));
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+            for (var reader : readers) {
+                reader.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(misses).hasValue(0);
+        assertThat(revokedTokenSet.size()).isEqualTo(writers * tokensPerWriter);
+    }
+
+    private static Callable<Void> reader(RevokedTokenSet revokedTokenSet,
+                                         AtomicReferenceArray<UUID> published, AtomicInteger publishedCount,
+                                         AtomicInteger misses, CountDownLatch start) {
+        return () -> {
+            start.await();
+            var random = new Random();
+            while (publishedCount.get() < published.length()) {
+                var count = publishedCount.get();
+                if (count == 0) {
+                    continue;
+                }
+                var tokenId = published.get(random.nextInt(count));
+                if (tokenId != null && !revokedTokenSet.isRevoked(tokenId)) {
+                    misses.incrementAndGet();
+                }
+                if (revokedTokenSet.isRevoked(UUID.randomUUID())) {
+                    misses.incrementAndGet();
+                }
+            }
+            return null;
+        };
+    }
+
+    private static RevokedTokenSet revokedTokenSet(int expectedSize, int wheelSize) {
+        var revokedTokenSet = new RevokedTokenSet(expectedSize, TICK, wheelSize);
+        revokedTokenSet.purgeExpired(START);
+        return revokedTokenSet;
+    }
+}
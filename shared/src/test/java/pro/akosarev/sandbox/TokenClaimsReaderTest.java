@@ -0,0 +1,123 @@
+package pro.akosarev.sandbox;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static pro.akosarev.sandbox.TokenDeserializationResult.Reason;
+import static pro.akosarev.sandbox.TokenDeserializationResult.failure;
+import static pro.akosarev.sandbox.TokenDeserializationResult.success;
+
+class TokenClaimsReaderTest {
+    private static final String ID = "5f0e6b5e-3c52-4d5e-9a43-8d1e0c8a7f11";
+
+    private static final String CLAIMS = """
+            "sub":"j.jameson","exp":1700000300,"iat":1700000000,"jti":"%s","authorities":["ROLE_MANAGER"]"""
+            .formatted(ID);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{%s}",
+            "{%s,\"epoch\":3}",
+            "{%s,\"other\":{\"list\":[1,-2.5e+3,true,false,null,\"\\u00e9\\n\"],\"empty\":{}}}",
+            " {\t%s ,\"other\" : [ ] }\n"
+    })
+    void read_ValidClaims_ReadsSameTokenAsNimbus(String json) throws ParseException {
+        var claims = json.formatted(CLAIMS);
+
+        var result = read(claims);
+
+        assertThat(result).isInstanceOf(TokenDeserializationResult.Success.class);
+        assertThat(result).isEqualTo(TokenClaims.toToken(JWTClaimsSet.parse(claims)));
+    }
+
+    @Test
+    void read_FractionalSeconds_TruncatesThemAsNimbus() throws ParseException {
+        var claims = """
+                {"sub":"j.jameson","exp":1.7000003005E9,"iat":1700000000.9,"jti":"%s","authorities":[]}"""
+                .formatted(ID);
+
+        assertThat(read(claims)).isEqualTo(success(new Token(UUID.fromString(ID), "j.jameson", List.of(),
+                Instant.ofEpochSecond(1700000000), Instant.ofEpochSecond(1700000300))));
+        assertThat(read(claims)).isEqualTo(TokenClaims.toToken(JWTClaimsSet.parse(claims)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{%s,\"jti\":\"00000000-0000-0000-0000-000000000000\"}",
+            "{%s,\"sub\":\"admin\"}",
+            "{%s,\"other\":1,\"other\":2}"
+    })
+    void read_DuplicateMember_ReturnsInvalidClaims(String json) {
+        var claims = json.formatted(CLAIMS);
+
+        assertThat(read(claims)).isEqualTo(failure(Reason.INVALID_CLAIMS));
+        assertThatThrownBy(() -> JWTClaimsSet.parse(claims)).isInstanceOf(ParseException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{%s,\"other\":tru}",
+            "{%s,\"other\":nul}",
+            "{%s,\"other\":nullx}",
+            "{%s,\"other\":undefined}",
+            "{%s,\"other\":NaN}",
+            "{%s,\"other\":01}",
+            "{%s,\"other\":1.}",
+            "{%s,\"other\":.5}",
+            "{%s,\"other\":+1}",
+            "{%s,\"other\":1e}",
+            "{%s,\"other\":-}",
+            "{%s,\"other\":'single'}",
+            "{%s,\"other\":\"\\u+041\"}",
+            "{%s,\"other\":\"\\x\"}",
+            "{%s,\"other\":\"tab\tinside\"}",
+            "{%s,\"other\":[1,]}",
+            "{%s,\"other\":{\"a\"}}",
+            "{%s,}",
+            "{%s} trailing",
+            "{%s,\"epoch\":\"3\"}",
+            "{%s,\"epoch\":1e400}"
+    })
+    void read_MalformedValue_ReturnsInvalidClaims(String json) {
+        assertThat(read(json.formatted(CLAIMS))).isEqualTo(failure(Reason.INVALID_CLAIMS));
+    }
+
+    @Test
+    void readKeyId_KeyIdAmongOtherMembers_ReturnsKeyId() {
+        var header = bytes("{\"alg\":\"HS256\",\"crit\":[],\"kid\":\"key-1\",\"b64\":true}");
+
+        assertThat(TokenClaimsReader.readKeyId(header, header.length)).isEqualTo("key-1");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"kid\":\"key-1\",\"alg\":\"HS256\",\"kid\":\"key-2\"}",
+            "{\"kid\":\"key-1\",\"alg\":HS256}",
+            "{\"kid\":\"key-1\"}{}"
+    })
+    void readKeyId_MalformedHeader_ThrowsIllegalArgumentException(String json) {
+        var header = bytes(json);
+
+        assertThatThrownBy(() -> TokenClaimsReader.readKeyId(header, header.length))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static TokenDeserializationResult read(String json) {
+        var bytes = bytes(json);
+        return TokenClaimsReader.read(bytes, bytes.length);
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}